@@ -0,0 +1,148 @@
+package com.almondtools.rexlex.automaton;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToLazyAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.benchmark.Corpora;
+import com.almondtools.rexlex.pattern.Pattern;
+
+/**
+ * measures the compile pipeline phase by phase. Each phase works destructively on its input, so the input of each phase is
+ * prepared (untimed) before each invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompileBenchmark {
+
+	@State(Scope.Thread)
+	public static class Input {
+
+		@Param({ "date", "url", "keywords", "ambiguous" })
+		public String pattern;
+
+		GenericAutomaton nfa;
+
+		@Setup(Level.Trial)
+		public void compile() {
+			nfa = Pattern.compileGenericAutomaton(Corpora.pattern(pattern));
+		}
+
+	}
+
+	@State(Scope.Thread)
+	public static class EpsilonInput extends Input {
+
+		GenericAutomaton automaton;
+
+		@Setup(Level.Invocation)
+		public void prepare() {
+			automaton = nfa.clone();
+		}
+
+	}
+
+	@State(Scope.Thread)
+	public static class DeterminizeInput extends Input {
+
+		GenericAutomaton automaton;
+
+		@Setup(Level.Invocation)
+		public void prepare() {
+			automaton = nfa.clone().eliminateEpsilons();
+		}
+
+	}
+
+	@State(Scope.Thread)
+	public static class TotalizeInput extends Input {
+
+		GenericAutomaton automaton;
+
+		@Setup(Level.Invocation)
+		public void prepare() {
+			automaton = nfa.clone().eliminateEpsilons().determinize();
+		}
+
+	}
+
+	@State(Scope.Thread)
+	public static class MinimizeInput extends Input {
+
+		GenericAutomaton automaton;
+
+		@Setup(Level.Invocation)
+		public void prepare() {
+			automaton = nfa.clone().eliminateEpsilons().determinize().totalizeAndClean();
+		}
+
+	}
+
+	@State(Scope.Thread)
+	public static class StoredInput extends Input {
+
+		byte[] stored;
+
+		@Setup(Level.Trial)
+		public void store() throws IOException {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			nfa.toAutomaton(new ToTabledAutomaton()).storeBinary(new TokenTypeRegistry()).to(out);
+			stored = out.toByteArray();
+		}
+
+	}
+
+	@Benchmark
+	public GenericAutomaton parse(Input input) {
+		return Pattern.compileGenericAutomaton(Corpora.pattern(input.pattern));
+	}
+
+	@Benchmark
+	public GenericAutomaton eliminateEpsilons(EpsilonInput input) {
+		return input.automaton.eliminateEpsilons();
+	}
+
+	@Benchmark
+	public GenericAutomaton determinize(DeterminizeInput input) {
+		return input.automaton.determinize();
+	}
+
+	@Benchmark
+	public GenericAutomaton totalizeAndClean(TotalizeInput input) {
+		return input.automaton.totalizeAndClean();
+	}
+
+	@Benchmark
+	public GenericAutomaton minimize(MinimizeInput input) {
+		return input.automaton.minimize();
+	}
+
+	@Benchmark
+	public TabledAutomaton toTabledAutomaton(Input input) {
+		return input.nfa.toAutomaton(new ToTabledAutomaton());
+	}
+
+	@Benchmark
+	public LazyAutomaton toLazyAutomaton(Input input) {
+		return input.nfa.toAutomaton(new ToLazyAutomaton());
+	}
+
+	@Benchmark
+	public TabledAutomaton loadBinary(StoredInput input) throws IOException {
+		return new TabledAutomatonBinaryImport(new TokenTypeRegistry()).from(new ByteArrayInputStream(input.stored));
+	}
+
+}
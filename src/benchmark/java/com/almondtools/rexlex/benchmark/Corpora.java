@@ -0,0 +1,207 @@
+package com.almondtools.rexlex.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.pattern.DefaultTokenType;
+
+/**
+ * generates patterns and corpora for the benchmarks. All corpora are generated from fixed seeds, such that results are comparable across commits.
+ */
+public final class Corpora {
+
+	private static final long SEED = 0x5eed;
+
+	private static final String[] KEYWORDS = {
+		"abstract", "boolean", "break", "case", "catch", "class", "continue", "default", "do", "double", "else", "extends", "final", "finally",
+		"for", "if", "implements", "import", "instanceof", "int", "interface", "long", "new", "package", "private", "protected", "public",
+		"return", "static", "super", "switch", "this", "throw", "throws", "try", "void", "while" };
+	private static final String[] OPERATORS = { "(", ")", "{", "}", ";", ".", ",", "=", "==", "+", "-", "*", "<", ">", "&&", "||" };
+	private static final String[] LEVELS = { "DEBUG", "INFO", "INFO", "INFO", "WARN", "ERROR" };
+
+	private Corpora() {
+	}
+
+	public static String pattern(String name) {
+		if (name.equals("date")) {
+			return "\\d{2}-\\d{2}-\\d{4}";
+		} else if (name.equals("url")) {
+			return "(([^:]+)://)?([^:/]+)(:([0-9]+))?(/[a-z0-9/._-]*)";
+		} else if (name.equals("keywords")) {
+			StringBuilder buffer = new StringBuilder();
+			for (String keyword : KEYWORDS) {
+				if (buffer.length() > 0) {
+					buffer.append('|');
+				}
+				buffer.append(keyword);
+			}
+			return buffer.toString();
+		} else if (name.equals("ambiguous")) {
+			return "(a|b)*a(a|b){8}";
+		} else if (name.equals("small-range")) {
+			return "[0-9]+(\\.[0-9]+)?";
+		} else if (name.equals("low-byte")) {
+			return "ERROR [a-z]+ [0-9]+";
+		} else if (name.equals("bit-mask")) {
+			return "[a-z\u00e0-\u00ff]+ \u2192 [a-z\u00e0-\u00ff]+";
+		} else {
+			throw new IllegalArgumentException("unknown pattern " + name);
+		}
+	}
+
+	public static Map<String, TokenType> lexerPatterns(String name) {
+		Map<String, TokenType> patterns = new LinkedHashMap<String, TokenType>();
+		if (name.equals("keywords")) {
+			for (String keyword : KEYWORDS) {
+				patterns.put(keyword, DefaultTokenType.ACCEPT);
+			}
+			for (String operator : OPERATORS) {
+				patterns.put(operator.replaceAll("([(){}.*+|])", "\\\\$1"), DefaultTokenType.ACCEPT);
+			}
+		} else if (name.equals("java")) {
+			patterns.put(pattern("keywords"), DefaultTokenType.ACCEPT);
+			patterns.put("[a-zA-Z_][a-zA-Z_0-9]*", DefaultTokenType.ACCEPT);
+			patterns.put("[0-9]+", DefaultTokenType.ACCEPT);
+			patterns.put("\"[^\"\\n]*\"", DefaultTokenType.ACCEPT);
+			patterns.put("//[^\\n]*", DefaultTokenType.IGNORE);
+			patterns.put("[ \\t\\r\\n]+", DefaultTokenType.IGNORE);
+			for (String operator : OPERATORS) {
+				patterns.put(operator.replaceAll("([(){}.*+|])", "\\\\$1"), DefaultTokenType.ACCEPT);
+			}
+		} else if (name.equals("backtracking")) {
+			patterns.put("[a-z]+", DefaultTokenType.ACCEPT);
+			patterns.put("[a-z]+( [a-z]+)*:", DefaultTokenType.ACCEPT); // labels, not matching in prose(), but scanning the rest of each sentence
+			patterns.put("[ .\\n]+", DefaultTokenType.IGNORE);
+		} else {
+			throw new IllegalArgumentException("unknown lexer " + name);
+		}
+		return patterns;
+	}
+
+	/**
+	 * a log with one line per entry, each line has a date and about every 20th line is an ERROR line
+	 */
+	public static String log(int size) {
+		Random random = new Random(SEED);
+		StringBuilder buffer = new StringBuilder(size + 128);
+		while (buffer.length() < size) {
+			buffer.append(String.format("%02d-%02d-%04d ", 1 + random.nextInt(28), 1 + random.nextInt(12), 2000 + random.nextInt(30)));
+			buffer.append(random.nextInt(20) == 0 ? "ERROR" : LEVELS[random.nextInt(LEVELS.length)]).append(' ');
+			buffer.append(word(random)).append(' ').append(random.nextInt(10000)).append(' ');
+			buffer.append("http://host").append(random.nextInt(10)).append(".example.com/").append(word(random)).append('/').append(word(random));
+			buffer.append('\n');
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * text with words of latin-1 and an occasional arrow (the corpus for the bit-mask pattern)
+	 */
+	public static String text(int size) {
+		Random random = new Random(SEED);
+		StringBuilder buffer = new StringBuilder(size + 64);
+		while (buffer.length() < size) {
+			buffer.append(word(random));
+			if (random.nextInt(10) == 0) {
+				buffer.append('\u00e4');
+			}
+			buffer.append(random.nextInt(10) == 0 ? " \u2192 " : " ");
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * sentences of 1 to 60 words (the corpus for the backtracking lexer)
+	 */
+	public static String prose(int size) {
+		Random random = new Random(SEED);
+		StringBuilder buffer = new StringBuilder(size + 64);
+		while (buffer.length() < size) {
+			int words = 1 + random.nextInt(60);
+			for (int i = 0; i < words; i++) {
+				if (i > 0) {
+					buffer.append(' ');
+				}
+				buffer.append(word(random));
+			}
+			buffer.append(random.nextInt(4) == 0 ? ".\n" : ". ");
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * java-like source code
+	 */
+	public static String source(int size) {
+		Random random = new Random(SEED);
+		StringBuilder buffer = new StringBuilder(size + 64);
+		while (buffer.length() < size) {
+			int kind = random.nextInt(10);
+			if (kind < 3) {
+				buffer.append(KEYWORDS[random.nextInt(KEYWORDS.length)]);
+			} else if (kind < 6) {
+				buffer.append(word(random));
+			} else if (kind < 8) {
+				buffer.append(OPERATORS[random.nextInt(OPERATORS.length)]);
+			} else if (kind < 9) {
+				buffer.append(random.nextInt(100000));
+			} else if (random.nextBoolean()) {
+				buffer.append('"').append(word(random)).append(' ').append(word(random)).append('"');
+			} else {
+				buffer.append("// ").append(word(random)).append('\n');
+			}
+			buffer.append(random.nextInt(8) == 0 ? "\n\t" : " ");
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * an input that completely matches the given pattern
+	 */
+	public static String match(String name, int size) {
+		StringBuilder buffer = new StringBuilder(size + 16);
+		if (name.equals("small-range")) {
+			while (buffer.length() < size) {
+				buffer.append("0123456789");
+			}
+			buffer.append(".5");
+		} else if (name.equals("low-byte")) {
+			buffer.append("ERROR ");
+			while (buffer.length() < size) {
+				buffer.append("abcdefghij");
+			}
+			buffer.append(" 42");
+		} else if (name.equals("bit-mask")) {
+			while (buffer.length() < size) {
+				buffer.append("abc\u00e4\u00f6\u00fc");
+			}
+			buffer.append(" \u2192 x");
+		} else {
+			throw new IllegalArgumentException("unknown pattern " + name);
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * an input with sparse matches of the given pattern
+	 */
+	public static String search(String name, int size) {
+		if (name.equals("bit-mask")) {
+			return text(size);
+		} else {
+			return log(size);
+		}
+	}
+
+	private static String word(Random random) {
+		int length = 2 + random.nextInt(8);
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char) ('a' + random.nextInt(26));
+		}
+		return new String(chars);
+	}
+
+}
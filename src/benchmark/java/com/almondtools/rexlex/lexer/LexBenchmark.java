@@ -0,0 +1,111 @@
+package com.almondtools.rexlex.lexer;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.almondtools.rexlex.Token;
+import com.almondtools.rexlex.TokenFactory;
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.benchmark.Corpora;
+import com.almondtools.rexlex.pattern.TokenCursor;
+
+/**
+ * measures lexing of java-like source code. The number of lexed tokens is reported as secondary result (tokens/s).
+ *
+ * The backtracking lexer lexes prose with a pattern that scans over the rest of the sentence without matching, i.e. each word is
+ * followed by a mismatch and the lexer backtracks to the end of the word (the tabled automaton memoizes the dead ends of long
+ * scans). The other lexers hardly backtrack, they measure the costs of mismatches that do not need memoization.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LexBenchmark {
+
+	@Param({ "keywords", "java", "backtracking" })
+	public String lexer;
+
+	@Param({ "100000" })
+	public int size;
+
+	private DynamicLexer<SimpleToken> dynamicLexer;
+	private String input;
+
+	@Setup
+	public void setup() {
+		dynamicLexer = new DynamicLexer<SimpleToken>(Corpora.lexerPatterns(lexer), new SimpleTokenFactory());
+		input = lexer.equals("backtracking") ? Corpora.prose(size) : Corpora.source(size);
+	}
+
+	@Benchmark
+	public void lex(Tokens tokens) {
+		Iterator<SimpleToken> tokenIterator = dynamicLexer.lex(input);
+		while (tokenIterator.hasNext()) {
+			tokenIterator.next();
+			tokens.tokens++;
+		}
+	}
+
+	@Benchmark
+	public void cursor(Tokens tokens) {
+		TokenCursor cursor = dynamicLexer.cursor(input);
+		while (cursor.next()) {
+			tokens.tokens++;
+		}
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Tokens {
+
+		public long tokens;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			tokens = 0;
+		}
+
+	}
+
+	private static class SimpleToken implements Token {
+
+		private String literal;
+		private TokenType type;
+
+		public SimpleToken(String literal, TokenType type) {
+			this.literal = literal;
+			this.type = type;
+		}
+
+		@Override
+		public String getLiteral() {
+			return literal;
+		}
+
+		@Override
+		public TokenType getType() {
+			return type;
+		}
+
+	}
+
+	private static class SimpleTokenFactory implements TokenFactory<SimpleToken> {
+
+		@Override
+		public SimpleToken createToken(String literal, TokenType type) {
+			return new SimpleToken(literal, type);
+		}
+
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.almondtools.rexlex.pattern;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.almondtools.rexlex.automaton.CharClassMapper;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToBitParallelAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToLazyAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToPikeVMAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.automaton.TabledAutomaton;
+import com.almondtools.rexlex.benchmark.Corpora;
+
+/**
+ * measures matching and finding. The patterns are chosen such that each of them is mapped by another char class mapper
+ * (small-range, low-byte, bit-mask), the setup fails if a pattern is not mapped as expected.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MatchBenchmark {
+
+	@Param({ "small-range", "low-byte", "bit-mask" })
+	public String mapper;
+
+	@Param({ "default", "lazy", "bit-parallel", "pike-vm", "search" })
+	public String builder;
+
+	@Param({ "100000" })
+	public int size;
+
+	private Pattern pattern;
+	private String matchInput;
+	private String searchInput;
+
+	@Setup
+	public void setup() {
+		String regex = Corpora.pattern(mapper);
+		verifyMapper(regex);
+		pattern = Pattern.compile(regex, matcherBuilder());
+		matchInput = Corpora.match(mapper, size);
+		searchInput = Corpora.search(mapper, size);
+		if (!pattern.matcher(matchInput).matches()) {
+			throw new IllegalStateException("match input does not match " + regex);
+		}
+		if (!pattern.finder(searchInput).find()) {
+			throw new IllegalStateException("search input does not contain " + regex);
+		}
+	}
+
+	private void verifyMapper(String regex) {
+		TabledAutomaton automaton = Pattern.compileAutomaton(regex, new ToTabledAutomaton());
+		CharClassMapper charClassMapper = automaton.getCharClassMapper();
+		String expected = mapper.replace("-", "").toLowerCase();
+		String actual = charClassMapper.getClass().getSimpleName().toLowerCase();
+		if (!actual.startsWith(expected)) {
+			throw new IllegalStateException("pattern " + regex + " is mapped by " + charClassMapper.getClass().getSimpleName() + ", expected " + mapper);
+		}
+	}
+
+	private MatcherBuilder matcherBuilder() {
+		if (builder.equals("default")) {
+			return new DefaultMatcherBuilder(new ToTabledAutomaton());
+		} else if (builder.equals("lazy")) {
+			return new DefaultMatcherBuilder(new ToLazyAutomaton());
+		} else if (builder.equals("bit-parallel")) {
+			return new DefaultMatcherBuilder(new ToBitParallelAutomaton());
+		} else if (builder.equals("pike-vm")) {
+			return new DefaultMatcherBuilder(new ToPikeVMAutomaton());
+		} else if (builder.equals("search")) {
+			return new SearchMatcherBuilder();
+		} else {
+			throw new IllegalArgumentException("unknown builder " + builder);
+		}
+	}
+
+	@Benchmark
+	public boolean matches() {
+		return pattern.matcher(matchInput).matches();
+	}
+
+	@Benchmark
+	public int find() {
+		Finder finder = pattern.finder(searchInput);
+		int count = 0;
+		while (finder.find()) {
+			count++;
+		}
+		return count;
+	}
+
+}
@@ -1,9 +1,56 @@
 package com.almondtools.rexlex;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.util.Iterator;
 
+import net.amygdalum.util.io.IORuntimeException;
+
 public interface Lexer<T extends Token> {
 
 	Iterator<T> lex(String input);
 
+	/**
+	 * lexes the input in a streaming way, i.e. only the chars of the tokens not yet lexed completely are held in memory.
+	 *
+	 * The default implementation (for lexers without streaming support) reads the complete input and lexes it with {@link #lex(String)}.
+	 */
+	default Iterator<T> lex(Reader input) {
+		try {
+			StringBuilder buffer = new StringBuilder();
+			char[] chars = new char[8192];
+			int read = input.read(chars);
+			while (read >= 0) {
+				buffer.append(chars, 0, read);
+				read = input.read(chars);
+			}
+			return lex(buffer.toString());
+		} catch (IOException e) {
+			throw new IORuntimeException(e);
+		}
+	}
+
+	/**
+	 * lexes the input (decoded with the given charset) in a streaming way, i.e. only the chars of the tokens not yet lexed completely are held in memory.
+	 *
+	 * The default implementation decodes the input and lexes it with {@link #lex(Reader)}.
+	 */
+	default Iterator<T> lex(ReadableByteChannel input, Charset charset) {
+		return lex(Channels.newReader(input, charset.newDecoder(), -1));
+	}
+
+	/**
+	 * lexes the input (e.g. a memory mapped file) without copying it. ISO-8859-1, US-ASCII and UTF-8 input is not decoded up front,
+	 * together with a {@link RangeTokenFactory} literals are only decoded if they are requested.
+	 *
+	 * The default implementation (for lexers without byte buffer support) decodes the input and lexes it with {@link #lex(String)}.
+	 */
+	default Iterator<T> lex(ByteBuffer input, Charset charset) {
+		return lex(charset.decode(input.duplicate()).toString());
+	}
+
 }
@@ -0,0 +1,15 @@
+package com.almondtools.rexlex;
+
+import net.amygdalum.util.io.CharProvider;
+
+/**
+ * a token factory that receives the position of the token instead of its literal. Such a factory may defer slicing the literal
+ * (e.g. until the literal is requested), which saves decoding and copying for tokens that are filtered or only inspected by type.
+ * 
+ * Note that windowed char providers (as used for streaming input) guarantee access to the token chars only during this call.
+ */
+public interface RangeTokenFactory<T extends Token> extends TokenFactory<T> {
+
+	T createToken(CharProvider chars, long start, long end, TokenType type);
+
+}
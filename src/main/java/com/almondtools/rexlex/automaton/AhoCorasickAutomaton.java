@@ -0,0 +1,397 @@
+package com.almondtools.rexlex.automaton;
+
+import static com.almondtools.rexlex.automaton.AutomatonProperty.ACYCLIC;
+import static com.almondtools.rexlex.automaton.AutomatonProperty.LINEAR;
+import static net.amygdalum.util.text.CharUtils.after;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.almondtools.rexlex.Token;
+import com.almondtools.rexlex.TokenFactory;
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.pattern.TokenIterator;
+
+import net.amygdalum.util.io.CharProvider;
+import net.amygdalum.util.text.CharUtils;
+
+/**
+ * a trie of literals with Aho-Corasick failure links. Anchored matching walks the trie (and behaves like the minimal deterministic
+ * automaton of the literals), failure links are only used to skip positions that cannot start a match.
+ *
+ * The children of the trie nodes are looked up in a transition table over the character classes of the literals (as in a
+ * {@link TabledAutomaton}). The table is dense if it is small (at most {@link #MAX_DENSE_SIZE} bytes) and compressed otherwise,
+ * tries with more than {@link #MAX_TABLE_CELLS} cells (nodes x character classes) look up the children by binary search.
+ */
+public class AhoCorasickAutomaton implements Automaton {
+
+	static final int START = 0;
+	static final int ERROR = 1;
+
+	static final long MAX_TABLE_CELLS = 1 << 22;
+	static final long MAX_DENSE_SIZE = 1 << 18;
+
+	private Map<String, TokenType> words;
+	private TokenType errorType;
+
+	private char[][] chars; // #states x #children (sorted)
+	private int[][] targets; // #states x #children
+	private TokenType[] types; // #states
+	private int[] depth; // #states
+	private int[] fail; // #states
+	private boolean[] output; // #states
+	private boolean[] accepting; // #states
+
+	private CharClassMapper charClassMapper;
+	private TransitionTable table; // #states x #character classes (or null if the table would be too large)
+
+	public AhoCorasickAutomaton(Map<String, TokenType> words, TokenType errorType) {
+		this.words = new LinkedHashMap<String, TokenType>(words);
+		this.errorType = errorType;
+		initTrie();
+		initTable();
+		initFailures();
+	}
+
+	private void initTrie() {
+		List<TreeMap<Character, Integer>> children = new ArrayList<TreeMap<Character, Integer>>();
+		List<TokenType> types = new ArrayList<TokenType>();
+		List<Integer> depth = new ArrayList<Integer>();
+
+		children.add(new TreeMap<Character, Integer>());
+		types.add(null);
+		depth.add(0);
+		children.add(new TreeMap<Character, Integer>());
+		types.add(errorType);
+		depth.add(0);
+
+		for (Map.Entry<String, TokenType> entry : words.entrySet()) {
+			String word = entry.getKey();
+			int node = START;
+			for (int i = 0; i < word.length(); i++) {
+				char c = word.charAt(i);
+				Integer next = children.get(node).get(c);
+				if (next == null) {
+					next = children.size();
+					children.get(node).put(c, next);
+					children.add(new TreeMap<Character, Integer>());
+					types.add(null);
+					depth.add(i + 1);
+				}
+				node = next;
+			}
+			types.set(node, entry.getValue());
+		}
+
+		int nodes = children.size();
+		this.chars = new char[nodes][];
+		this.targets = new int[nodes][];
+		this.types = types.toArray(new TokenType[0]);
+		this.depth = new int[nodes];
+		for (int node = 0; node < nodes; node++) {
+			TreeMap<Character, Integer> nodeChildren = children.get(node);
+			chars[node] = new char[nodeChildren.size()];
+			targets[node] = new int[nodeChildren.size()];
+			int i = 0;
+			for (Map.Entry<Character, Integer> child : nodeChildren.entrySet()) {
+				chars[node][i] = child.getKey();
+				targets[node][i] = child.getValue();
+				i++;
+			}
+			this.depth[node] = depth.get(node);
+		}
+	}
+
+	private void initTable() {
+		SortedSet<Character> relevant = new TreeSet<Character>();
+		relevant.add(Character.MIN_VALUE);
+		for (char[] nodeChars : chars) {
+			for (char c : nodeChars) {
+				relevant.add(c);
+				if (c < Character.MAX_VALUE) {
+					relevant.add(after(c));
+				}
+			}
+		}
+		int charClassCount = relevant.size();
+		if ((long) types.length * charClassCount > MAX_TABLE_CELLS) {
+			return;
+		}
+		charClassMapper = CharClassMappers.bestFor(CharUtils.fromWrapped(relevant));
+		int[] transitions = new int[types.length * charClassCount];
+		Arrays.fill(transitions, ERROR);
+		for (int node = 0; node < types.length; node++) {
+			for (int i = 0; i < chars[node].length; i++) {
+				transitions[node * charClassCount + charClassMapper.getIndex(chars[node][i])] = targets[node][i];
+			}
+		}
+		TransitionTable dense = TransitionTable.dense(transitions, charClassCount);
+		table = dense.size() <= MAX_DENSE_SIZE ? dense : TransitionTable.compress(transitions, charClassCount);
+	}
+
+	private void initFailures() {
+		int nodes = types.length;
+		fail = new int[nodes];
+		output = new boolean[nodes];
+		accepting = new boolean[nodes];
+		for (int node = 0; node < nodes; node++) {
+			accepting[node] = accepts(types[node]);
+		}
+		output[START] = accepts(types[START]);
+		Queue<Integer> todo = new ArrayDeque<Integer>();
+		todo.add(START);
+		while (!todo.isEmpty()) {
+			int node = todo.remove();
+			for (int i = 0; i < chars[node].length; i++) {
+				char c = chars[node][i];
+				int target = targets[node][i];
+				if (node == START) {
+					fail[target] = START;
+				} else {
+					fail[target] = scan(fail[node], c);
+				}
+				output[target] = accepts(types[target]) || output[fail[target]];
+				todo.add(target);
+			}
+		}
+	}
+
+	private static boolean accepts(TokenType type) {
+		return type != null && type.accept();
+	}
+
+	public Map<String, TokenType> getWords() {
+		return words;
+	}
+
+	public int getStateCount() {
+		return types.length;
+	}
+
+	public int getStartState() {
+		return START;
+	}
+
+	public int getErrorState() {
+		return ERROR;
+	}
+
+	char[] getChars(int state) {
+		return chars[state];
+	}
+
+	int[] getTargets(int state) {
+		return targets[state];
+	}
+
+	int getFailure(int state) {
+		return fail[state];
+	}
+
+	public int next(int state, char ch) {
+		if (table != null) {
+			return table.target(state, charClassMapper.getIndex(ch));
+		}
+		int i = Arrays.binarySearch(chars[state], ch);
+		if (i < 0) {
+			return ERROR;
+		} else {
+			return targets[state][i];
+		}
+	}
+
+	private int scan(int state, char ch) {
+		while (true) {
+			int next = next(state, ch);
+			if (next != ERROR) {
+				return next;
+			} else if (state == START) {
+				return START;
+			}
+			state = fail[state];
+		}
+	}
+
+	public TokenType getType(int state) {
+		return types[state];
+	}
+
+	@Override
+	public String getId() {
+		return String.valueOf(START);
+	}
+
+	@Override
+	public TokenType getErrorType() {
+		return errorType;
+	}
+
+	@Override
+	public AutomatonProperty getProperty() {
+		for (char[] nodeChars : chars) {
+			if (nodeChars.length > 1) {
+				return ACYCLIC;
+			}
+		}
+		return LINEAR;
+	}
+
+	@Override
+	public Iterable<String> getSamples(final int limit) {
+		List<String> samples = new ArrayList<String>();
+		Iterator<String> wordIterator = words.keySet().iterator();
+		while (wordIterator.hasNext() && samples.size() < limit) {
+			samples.add(wordIterator.next());
+		}
+		return samples;
+	}
+
+	@Override
+	public <T extends Token> Iterator<T> tokenize(CharProvider chars, TokenFactory<T> factory) {
+		return new TokenIterator<T>(this, chars, factory);
+	}
+
+	@Override
+	public AutomatonMatcher matcher() {
+		return new Matcher();
+	}
+
+	@Override
+	public AhoCorasickAutomaton revert() {
+		Map<String, TokenType> reverted = new LinkedHashMap<String, TokenType>();
+		for (Map.Entry<String, TokenType> entry : words.entrySet()) {
+			reverted.put(new StringBuilder(entry.getKey()).reverse().toString(), entry.getValue());
+		}
+		return new AhoCorasickAutomaton(reverted, errorType);
+	}
+
+	@Override
+	public AhoCorasickAutomatonExport store(String name) {
+		return new AhoCorasickAutomatonExport(this, name);
+	}
+
+	class Matcher implements AutomatonMatcher {
+
+		private AutomatonMatcherListener listener;
+
+		private CharProvider chars;
+		private long matchStart;
+
+		private int state;
+
+		public Matcher() {
+			this.listener = new BaseListener();
+			this.state = -1;
+		}
+
+		@Override
+		public Matcher withListener(AutomatonMatcherListener listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		@Override
+		public AutomatonMatcherListener applyTo(CharProvider chars) {
+			this.chars = chars;
+			resume(chars, START, chars.current());
+			return listener;
+		}
+
+		@Override
+		public boolean isSuspended() {
+			return state != -1 && chars != null;
+		}
+
+		@Override
+		public AutomatonMatcherListener resume() {
+			resume(chars, state, matchStart);
+			return listener;
+		}
+
+		private void resume(CharProvider chars, int state, long matchStart) {
+			if (state == -1) {
+				return;
+			}
+			while (true) {
+				if (state == ERROR) {
+					boolean suspend = recoverMismatch(chars, matchStart);
+					state = START;
+					matchStart = chars.current();
+					if (suspend) {
+						this.matchStart = matchStart;
+						this.state = state;
+						return;
+					}
+					if (chars.finished()) {
+						this.state = -1;
+						return;
+					}
+				} else {
+					if (accepting[state]) {
+						TokenType accept = types[state];
+						chars.mark();
+						boolean suspend = listener.reportMatch(chars, matchStart, accept);
+						if (chars.changed()) {
+							state = START;
+						}
+						if (chars.finished()) {
+							this.state = -1;
+							return;
+						}
+						state = next(state, chars.next());
+						if (suspend) {
+							this.matchStart = matchStart;
+							this.state = state;
+							return;
+						}
+					} else if (chars.finished()) {
+						boolean suspend = recoverMismatch(chars, matchStart);
+						state = START;
+						matchStart = chars.current();
+						if (suspend) {
+							this.matchStart = matchStart;
+							this.state = state;
+							return;
+						}
+						if (chars.finished()) {
+							this.state = -1;
+							return;
+						}
+					} else {
+						state = next(state, chars.next());
+					}
+				}
+			}
+		}
+
+		/**
+		 * a listener resuming at the next position would be notified of a mismatch at each position that does not start a word,
+		 * so we skip to the leftmost position that is still the start of a partially or completely matched word
+		 */
+		private boolean recoverMismatch(CharProvider chars, long matchStart) {
+			boolean suspend = listener.recoverMismatch(chars, matchStart);
+			if (!suspend && !output[START] && chars.current() == matchStart + 1) {
+				int state = START;
+				while (!chars.finished()) {
+					state = scan(state, chars.next());
+					if (output[state]) {
+						break;
+					}
+				}
+				chars.move(chars.current() - depth[state]);
+			}
+			return suspend;
+		}
+
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.almondtools.rexlex.automaton;
+
+import static com.almondtools.rexlex.automaton.AhoCorasickAutomaton.START;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import com.almondtools.rexlex.TokenType;
+
+import net.amygdalum.util.text.CharUtils;
+
+public class AhoCorasickAutomatonExport implements AutomatonExport {
+
+	private AhoCorasickAutomaton automaton;
+	private String name;
+
+	public AhoCorasickAutomatonExport(AhoCorasickAutomaton automaton, String name) {
+		this.automaton = automaton;
+		this.name = name;
+	}
+
+	@Override
+	public void to(OutputStream out) throws IOException {
+		Writer w = null;
+		try {
+			w = new OutputStreamWriter(out, "UTF-8");
+			w.write("digraph \"" + name + "\" {\n");
+			writeStart(w);
+			writeAutomaton(w);
+			w.write("}");
+		} finally {
+			if (w != null) {
+				w.close();
+			}
+		}
+	}
+
+	private void writeStart(Writer w) throws IOException {
+		w.write("start [shape=point];\n");
+		w.write("start -> " + START + ";\n");
+	}
+
+	public void writeAutomaton(Writer writer) throws IOException {
+		for (int state = 0; state < automaton.getStateCount(); state++) {
+			if (state == automaton.getErrorState()) {
+				// skip this state
+				continue;
+			}
+			writeState(writer, state);
+			char[] chars = automaton.getChars(state);
+			int[] targets = automaton.getTargets(state);
+			for (int i = 0; i < chars.length; i++) {
+				writeTransition(writer, state, chars[i], targets[i]);
+			}
+			if (state != START) {
+				writeFailure(writer, state, automaton.getFailure(state));
+			}
+		}
+	}
+
+	private void writeState(Writer writer, int state) throws IOException {
+		TokenType type = automaton.getType(state);
+		if (type == null) {
+			String format = " [shape=circle]";
+			writer.write(state + format + ";\n");
+		} else {
+			String format = " [shape=doublecircle label=\"" + state + "\\n(" + type.toString() + ")\"]";
+			writer.write(state + format + ";\n");
+		}
+	}
+
+	private void writeTransition(Writer writer, int state, char ch, int target) throws IOException {
+		String format = " [label=\"" + charToString(ch) + "\"]";
+		writer.write(state + " -> " + target + format + ";\n");
+	}
+
+	private void writeFailure(Writer writer, int state, int target) throws IOException {
+		writer.write(state + " -> " + target + " [style=dashed];\n");
+	}
+
+	private String charToString(char ch) {
+		if (CharUtils.isAsciiPrintable(ch)) {
+			return String.valueOf(ch);
+		} else {
+			StringBuilder buffer = new StringBuilder("\\u");
+			String hex = Integer.toHexString((int) ch);
+			for (int i = 0; i < 4 - hex.length(); i++) {
+				buffer.append('0');
+			}
+			buffer.append(hex);
+			return buffer.toString();
+		}
+	}
+
+}
@@ -13,7 +13,8 @@ public interface AutomatonMatcherListener {
 	boolean reportMatch(CharProvider chars, long start, TokenType accepted);
 
 	/**
-	 * reports a mismatch
+	 * reports a mismatch. A listener that resumes at start + 1 (without suspending) should do so for all subsequent mismatches
+	 * until the next match, matchers may skip these mismatches.
 	 * @return true if process should suspend, false if process should resume
 	 */
 	boolean recoverMismatch(CharProvider chars, long start);
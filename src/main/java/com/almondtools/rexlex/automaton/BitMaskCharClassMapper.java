@@ -5,11 +5,12 @@ import static net.amygdalum.util.text.CharUtils.before;
 
 import java.util.List;
 
-import net.amygdalum.util.map.CharIntMap;
-
 public final class BitMaskCharClassMapper implements CharClassMapper {
 	
+	private static final int ASCII = 0x80;
+
 	private char[] chars;
+	private int[] ascii;
 	private int[] highbyte;
 	private int[][] lowbyte;
 
@@ -17,50 +18,44 @@ public final class BitMaskCharClassMapper implements CharClassMapper {
 		this.chars = chars;
 		this.highbyte = computeHighByte(chars);
 		this.lowbyte = computeLowByte(chars);
+		this.ascii = computeAscii();
+	}
+
+	private int[] computeAscii() {
+		int[] ascii = new int[ASCII];
+		for (char c = 0; c < ASCII; c++) {
+			ascii[c] = map(c);
+		}
+		return ascii;
 	}
 
 	static int[][] computeLowByte(char[] chars) {
-		CharIntMap map = new CharIntMap(-1);
-		
+		int[] highbytes = computeHighByte(chars);
+		int[][] lowbytes = new int[highbytes[255] + 1][];
+
 		int index = 0;
-		int value = 0;
-		for (char c : chars) {
-			int high = (c >> 8) & 0xff;
-			if (index > high) {
-				map.add(c, value - 1);
+		for (int high = 0; high < 256; high++) {
+			int row = highbytes[high];
+			if (lowbytes[row] != null) {
 				continue;
 			}
-			map.add(c, value);
-			while (index <= high) {
-				index++;
-			}
-			value++;
-		}
-				
-		int[][] lowbytes = new int[value + 1][256];
-		for (int i = 0; i < chars.length; i++) {
-			char c = chars[i];
-			int row = map.get(c);
-			int low = c & 0xff;
-			lowbytes[row][low] = i;
-		}
-		
-		int lastValue = 0;
-		for (int i = 0; i < lowbytes.length; i++) {
-			int[] row = lowbytes[i];
-			for (int j = 0; j < row.length; j++) {
-				if (row[j] > lastValue) {
-					lastValue = row[j];
-				} else {
-					row[j] = lastValue;
+			lowbytes[row] = new int[256];
+			for (int low = 0; low < 256; low++) {
+				int c = high << 8 | low;
+				while (index + 1 < chars.length && chars[index + 1] <= c) {
+					index++;
 				}
+				lowbytes[row][low] = index;
 			}
 		}
-		
+
 		return lowbytes;
 	}
 
-
+	/**
+	 * maps each high byte to a row of low bytes. High bytes containing relevant chars have rows of their own, the high bytes
+	 * between them share a row (in which all low bytes map to the same char class).
+	 */
 	static int[] computeHighByte(char[] chars) {
 		int[] highbytes = new int[256];
 		int index = 0;
@@ -70,10 +65,15 @@ public final class BitMaskCharClassMapper implements CharClassMapper {
 			if (index > high) {
 				continue;
 			}
-			while (index <= high) {
-				highbytes[index] = value;
-				index++;
+			if (index < high) {
+				while (index < high) {
+					highbytes[index] = value;
+					index++;
+				}
+				value++;
 			}
+			highbytes[index] = value;
+			index++;
 			value++;
 		}
 		while (index < 256) {
@@ -85,6 +85,13 @@ public final class BitMaskCharClassMapper implements CharClassMapper {
 
 
 	public int getIndex(char ch) {
+		if (ch < ASCII) {
+			return ascii[ch];
+		}
+		return map(ch);
+	}
+
+	private int map(char ch) {
 		int h = (ch >> 8) & 0xff; 
 		int l = ch & 0xff; 
 		int i = highbyte[h];
@@ -0,0 +1,387 @@
+package com.almondtools.rexlex.automaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.almondtools.rexlex.Token;
+import com.almondtools.rexlex.TokenFactory;
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToBitParallelAutomaton;
+import com.almondtools.rexlex.automaton.GenericAutomaton.EventTransition;
+import com.almondtools.rexlex.automaton.GenericAutomaton.State;
+import com.almondtools.rexlex.pattern.DefaultTokenType;
+import com.almondtools.rexlex.pattern.TokenIterator;
+
+import net.amygdalum.util.io.CharProvider;
+
+/**
+ * simulates a small nondeterministic automaton bit-parallel (Glushkov style). Each position is an event transition of the
+ * epsilon-free automaton (the start is an extra position), the set of active positions is kept in one long word. A step on a char
+ * class computes the positions following the active positions (with one table lookup per 8 positions) and masks them with the
+ * positions matching the char class.
+ *
+ * There is no determinization, so compiling is linear in the size of the pattern, and matching is O(1) per char without any
+ * allocation. The automaton supports at most {@link #MAX_POSITIONS} positions. The joint types of the sets of token types are
+ * computed in advance (if there are at most {@link #MAX_JOINT_TYPES} token types), so a step with several live token types only
+ * looks up its type.
+ */
+public class BitParallelAutomaton implements Automaton {
+
+	public static final int MAX_POSITIONS = 64;
+	static final int MAX_JOINT_TYPES = 10;
+
+	static final long ERROR = 0l;
+
+	private static final long START = 1l;
+
+	private GenericAutomaton nfa;
+	private TokenType errorType;
+	private CharClassMapper charClassMapper;
+	private int positionCount;
+	private long startState;
+	private long[][] follow; // #chunks of 8 positions x 256 (followers of the positions in the chunk)
+	private long[] charClassMasks; // #character classes (positions matching the character class)
+	private long typedMask;
+	private long acceptMask;
+	private TokenType[] types; // #positions
+	private int[][] typeSets; // #chunks of 8 positions x 256 (one bit per token type of the positions in the chunk), null if there are too many token types
+	private TokenType[] jointTypes; // #sets of token types (the joint type of the token types in the set)
+
+	/**
+	 * @param nfa an epsilon-free automaton with at most {@link #MAX_POSITIONS} positions (see {@link #positionsOf(GenericAutomaton)})
+	 * @param errorType the type of the error state
+	 */
+	BitParallelAutomaton(GenericAutomaton nfa, TokenType errorType) {
+		this.nfa = nfa;
+		this.errorType = errorType == null ? DefaultTokenType.ERROR : errorType;
+		this.charClassMapper = CharClassMappers.bestFor(nfa.computeRelevantCharacters());
+		Set<State> live = nfa.findLiveStates();
+		Map<List<Object>, Position> positions = positionsOf(nfa, live);
+		if (positions.size() > MAX_POSITIONS) {
+			throw new IllegalArgumentException("automaton has " + positions.size() + " positions, at most " + MAX_POSITIONS + " are supported");
+		}
+		this.positionCount = positions.size();
+		this.startState = live.contains(nfa.getStart()) ? START : ERROR;
+		initTables(positions);
+	}
+
+	/**
+	 * @return the number of positions of an epsilon-free automaton (the start and the distinct event transitions to live states)
+	 */
+	static int positionsOf(GenericAutomaton nfa) {
+		return positionsOf(nfa, nfa.findLiveStates()).size();
+	}
+
+	private static Map<List<Object>, Position> positionsOf(GenericAutomaton nfa, Set<State> live) {
+		Map<List<Object>, Position> positions = new LinkedHashMap<List<Object>, Position>();
+		positions.put(keyOf(nfa.getStart()), new Position(positions.size(), null, nfa.getStart()));
+		for (State state : nfa.findAllStates()) {
+			for (EventTransition transition : state.getEventTransitions()) {
+				if (live.contains(transition.getTarget())) {
+					List<Object> key = keyOf(transition);
+					if (!positions.containsKey(key)) {
+						positions.put(key, new Position(positions.size(), transition, transition.getTarget()));
+					}
+				}
+			}
+		}
+		return positions;
+	}
+
+	private static List<Object> keyOf(State start) {
+		return Arrays.<Object> asList(start);
+	}
+
+	private static List<Object> keyOf(EventTransition transition) {
+		return Arrays.<Object> asList(transition.getTarget(), transition.getFrom(), transition.getTo());
+	}
+
+	private void initTables(Map<List<Object>, Position> positions) {
+		int charClassCount = charClassMapper.indexCount();
+		long[] followers = new long[positionCount];
+		charClassMasks = new long[charClassCount];
+		types = new TokenType[positionCount];
+		for (Position position : positions.values()) {
+			int i = position.index;
+			long bit = 1l << i;
+			for (EventTransition transition : position.target.getEventTransitions()) {
+				Position next = positions.get(keyOf(transition));
+				if (next != null) {
+					followers[i] |= 1l << next.index;
+				}
+			}
+			if (position.transition != null) {
+				for (int c = 0; c < charClassCount; c++) {
+					if (position.transition.matches(charClassMapper.representative(c))) {
+						charClassMasks[c] |= bit;
+					}
+				}
+			}
+			TokenType type = position.target.getType();
+			types[i] = type;
+			if (type != null) {
+				typedMask |= bit;
+				if (type.accept()) {
+					acceptMask |= bit;
+				}
+			}
+		}
+		follow = new long[(positionCount + 7) / 8][256];
+		for (int chunk = 0; chunk < follow.length; chunk++) {
+			for (int b = 1; b < 256; b++) {
+				int position = chunk * 8 + Integer.numberOfTrailingZeros(b);
+				long lowestFollowers = position < positionCount ? followers[position] : 0l;
+				follow[chunk][b] = follow[chunk][b & (b - 1)] | lowestFollowers;
+			}
+		}
+		initJointTypes();
+	}
+
+	private void initJointTypes() {
+		List<TokenType> distinct = new ArrayList<TokenType>();
+		int[] typeBits = new int[positionCount];
+		for (int i = 0; i < positionCount; i++) {
+			TokenType type = types[i];
+			if (type == null) {
+				continue;
+			}
+			int index = distinct.indexOf(type);
+			if (index < 0) {
+				index = distinct.size();
+				distinct.add(type);
+				if (distinct.size() > MAX_JOINT_TYPES) {
+					return;
+				}
+			}
+			typeBits[i] = 1 << index;
+		}
+		typeSets = new int[follow.length][256];
+		for (int chunk = 0; chunk < typeSets.length; chunk++) {
+			for (int b = 1; b < 256; b++) {
+				int position = chunk * 8 + Integer.numberOfTrailingZeros(b);
+				int lowestTypes = position < positionCount ? typeBits[position] : 0;
+				typeSets[chunk][b] = typeSets[chunk][b & (b - 1)] | lowestTypes;
+			}
+		}
+		jointTypes = new TokenType[1 << distinct.size()];
+		for (int set = 1; set < jointTypes.length; set++) {
+			int highest = Integer.highestOneBit(set);
+			jointTypes[set] = nfa.jointTypeOf(jointTypes[set ^ highest], distinct.get(Integer.numberOfTrailingZeros(highest)));
+		}
+	}
+
+	public long getStartState() {
+		return startState;
+	}
+
+	public long getErrorState() {
+		return ERROR;
+	}
+
+	public int getPositionCount() {
+		return positionCount;
+	}
+
+	public CharClassMapper getCharClassMapper() {
+		return charClassMapper;
+	}
+
+	public long next(long state, char ch) {
+		return next(state, charClassMapper.getIndex(ch));
+	}
+
+	private long next(long state, int charClass) {
+		long followers = 0l;
+		for (int chunk = 0; state != 0; chunk++, state >>>= 8) {
+			followers |= follow[chunk][(int) (state & 0xff)];
+		}
+		return followers & charClassMasks[charClass];
+	}
+
+	public TokenType getType(long state) {
+		if (state == ERROR) {
+			return errorType;
+		}
+		long typed = state & typedMask;
+		if (typed == 0) {
+			return null;
+		} else if (typeSets != null) {
+			int set = 0;
+			for (int chunk = 0; typed != 0; chunk++, typed >>>= 8) {
+				set |= typeSets[chunk][(int) (typed & 0xff)];
+			}
+			return jointTypes[set];
+		}
+		TokenType type = null;
+		while (typed != 0) {
+			type = nfa.jointTypeOf(type, types[Long.numberOfTrailingZeros(typed)]);
+			typed &= typed - 1;
+		}
+		return type;
+	}
+
+	/**
+	 * @return true if the state contains an accepting position, the joint type of the state may yet be undefined (null)
+	 */
+	private boolean accepts(long state) {
+		return (state & acceptMask) != 0;
+	}
+
+	@Override
+	public String getId() {
+		return nfa.getId();
+	}
+
+	@Override
+	public TokenType getErrorType() {
+		return errorType;
+	}
+
+	@Override
+	public AutomatonProperty getProperty() {
+		return nfa.getProperty();
+	}
+
+	@Override
+	public Iterable<String> getSamples(int limit) {
+		return nfa.getSamples(limit);
+	}
+
+	@Override
+	public <T extends Token> Iterator<T> tokenize(CharProvider chars, TokenFactory<T> factory) {
+		return new TokenIterator<T>(this, chars, factory);
+	}
+
+	@Override
+	public AutomatonMatcher matcher() {
+		return new Matcher();
+	}
+
+	@Override
+	public Automaton revert() {
+		return nfa.revert().toAutomaton(new ToBitParallelAutomaton(errorType));
+	}
+
+	@Override
+	public GenericAutomatonExport store(String name) {
+		return nfa.store(name);
+	}
+
+	private static class Position {
+
+		private int index;
+		private EventTransition transition;
+		private State target;
+
+		public Position(int index, EventTransition transition, State target) {
+			this.index = index;
+			this.transition = transition;
+			this.target = target;
+		}
+
+	}
+
+	class Matcher implements AutomatonMatcher {
+
+		private AutomatonMatcherListener listener;
+
+		private CharProvider chars;
+		private long matchStart;
+
+		private long start;
+		private long state;
+		private boolean suspended;
+
+		public Matcher() {
+			this.listener = new BaseListener();
+			this.start = startState;
+		}
+
+		@Override
+		public Matcher withListener(AutomatonMatcherListener listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		@Override
+		public AutomatonMatcherListener applyTo(CharProvider chars) {
+			this.chars = chars;
+			resume(chars, start, chars.current());
+			return listener;
+		}
+
+		@Override
+		public boolean isSuspended() {
+			return suspended && chars != null;
+		}
+
+		@Override
+		public AutomatonMatcherListener resume() {
+			if (suspended) {
+				resume(chars, state, matchStart);
+			}
+			return listener;
+		}
+
+		private void suspend(long state, long matchStart) {
+			this.matchStart = matchStart;
+			this.state = state;
+			this.suspended = true;
+		}
+
+		private void resume(CharProvider chars, long state, long matchStart) {
+			suspended = false;
+			while (true) {
+				if (state == ERROR) {
+					boolean suspend = listener.recoverMismatch(chars, matchStart);
+					state = startState;
+					matchStart = chars.current();
+					if (suspend) {
+						suspend(state, matchStart);
+						return;
+					}
+					if (chars.finished()) {
+						return;
+					}
+				} else {
+					TokenType accept = accepts(state) ? getType(state) : null;
+					if (accept != null && accept.accept()) {
+						chars.mark();
+						boolean suspend = listener.reportMatch(chars, matchStart, accept);
+						if (chars.changed()) {
+							state = start;
+						}
+						if (chars.finished()) {
+							return;
+						}
+						state = next(state, charClassMapper.getIndex(chars.next()));
+						if (suspend) {
+							suspend(state, matchStart);
+							return;
+						}
+					} else if (chars.finished()) {
+						boolean suspend = listener.recoverMismatch(chars, matchStart);
+						state = startState;
+						matchStart = chars.current();
+						if (suspend) {
+							suspend(state, matchStart);
+							return;
+						}
+						if (chars.finished()) {
+							return;
+						}
+					} else {
+						state = next(state, charClassMapper.getIndex(chars.next()));
+					}
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.almondtools.rexlex.automaton;
+
+import java.util.concurrent.TimeUnit;
+
+import com.almondtools.rexlex.pattern.CompileBudget;
+import com.almondtools.rexlex.pattern.PatternCompileException;
+
+/**
+ * tracks the resources spent on one compilation against a {@link CompileBudget}. The expensive phases (determinization,
+ * minimization, table construction) report their progress cooperatively and fail with a {@link PatternCompileException} as soon
+ * as the budget is exceeded. Finishing the compilation stops the tracking, such that automata created later from the same
+ * (shared) automaton are not restricted.
+ */
+public class CompileStatistics {
+
+	private CompileBudget budget;
+	private long startTime;
+	private long stopTime;
+	private String phase;
+	private int states;
+	private long cells;
+
+	public CompileStatistics(CompileBudget budget) {
+		this.budget = budget;
+		this.startTime = System.nanoTime();
+		this.stopTime = -1;
+		this.phase = "parse";
+	}
+
+	public CompileBudget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * @return the phase that was processed last (or the phase that exceeded the budget)
+	 */
+	public String getPhase() {
+		return phase;
+	}
+
+	/**
+	 * @return the number of deterministic states constructed in the last phase
+	 */
+	public int getStates() {
+		return states;
+	}
+
+	/**
+	 * @return the number of table cells
+	 */
+	public long getCells() {
+		return cells;
+	}
+
+	public long getElapsedMillis() {
+		long time = stopTime < 0 ? System.nanoTime() : stopTime;
+		return TimeUnit.NANOSECONDS.toMillis(time - startTime);
+	}
+
+	public boolean isFinished() {
+		return stopTime >= 0;
+	}
+
+	/**
+	 * stops the tracking, later phases are not checked any more.
+	 */
+	public void finish() {
+		if (stopTime < 0) {
+			stopTime = System.nanoTime();
+		}
+	}
+
+	void enter(String phase) {
+		if (isFinished()) {
+			return;
+		}
+		this.phase = phase;
+		checkTime();
+	}
+
+	void countStates(int states) {
+		if (isFinished()) {
+			return;
+		}
+		this.states = states;
+		if (states > budget.getMaxStates()) {
+			throw exceeded("more than " + budget.getMaxStates() + " states");
+		}
+		checkTime();
+	}
+
+	void countCells(long cells) {
+		if (isFinished()) {
+			return;
+		}
+		this.cells = cells;
+		if (cells > budget.getMaxCells()) {
+			throw exceeded("more than " + budget.getMaxCells() + " table cells");
+		}
+	}
+
+	void checkTime() {
+		if (isFinished() || budget.getMaxMillis() == CompileBudget.UNLIMITED_MILLIS) {
+			return;
+		}
+		if (getElapsedMillis() > budget.getMaxMillis()) {
+			throw exceeded("more than " + budget.getMaxMillis() + " ms");
+		}
+	}
+
+	private PatternCompileException exceeded(String reason) {
+		finish();
+		return new PatternCompileException("compile budget exceeded in " + phase + ": " + reason, this);
+	}
+
+	@Override
+	public String toString() {
+		return "phase: " + phase + ", states: " + states + ", cells: " + cells + ", time: " + getElapsedMillis() + " ms";
+	}
+
+}
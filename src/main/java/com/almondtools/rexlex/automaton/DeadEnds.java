@@ -0,0 +1,108 @@
+package com.almondtools.rexlex.automaton;
+
+import java.util.Arrays;
+
+/**
+ * the (state, position) pairs of a deterministic automaton from which the input does not lead to an accepting state any more, each
+ * mapped to the position where the automaton fails. A matcher that backtracks (e.g. a lexer resuming at the end of the longest match,
+ * or a search determining the longest match at each match start) may skip to the failing position as soon as a scan reaches such a
+ * pair, which keeps maximal munch tokenization linear (memoization as in Reps: "Maximal-Munch" Tokenization in Linear Time).
+ */
+class DeadEnds {
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final long FREE = -1;
+
+	private long stateCount;
+	private long[] keys;
+	private long[] ends;
+	private int size;
+	private long limit;
+
+	DeadEnds(int stateCount) {
+		this.stateCount = stateCount;
+		this.keys = new long[INITIAL_CAPACITY];
+		this.ends = new long[INITIAL_CAPACITY];
+		Arrays.fill(keys, FREE);
+	}
+
+	/**
+	 * @return the position after the last recorded position, positions from here on are not recorded
+	 */
+	long limit() {
+		return limit;
+	}
+
+	/**
+	 * @return the position where the automaton fails starting in the given state at the given position, or -1 if this pair is not known
+	 *         to be dead
+	 */
+	long end(int state, long pos) {
+		if (pos >= limit) {
+			return FREE;
+		}
+		long key = pos * stateCount + state;
+		int mask = keys.length - 1;
+		for (int i = hash(key) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return ends[i];
+			}
+		}
+		return FREE;
+	}
+
+	void add(int state, long pos, long end) {
+		if (size * 2 >= keys.length) {
+			rehash(keys.length * 2);
+		}
+		if (insert(keys, ends, pos * stateCount + state, end)) {
+			size++;
+			limit = Math.max(limit, pos + 1);
+		}
+	}
+
+	void clear() {
+		if (size > 0) {
+			if (keys.length > INITIAL_CAPACITY) {
+				keys = new long[INITIAL_CAPACITY];
+				ends = new long[INITIAL_CAPACITY];
+			}
+			Arrays.fill(keys, FREE);
+			size = 0;
+		}
+		limit = 0;
+	}
+
+	private void rehash(int capacity) {
+		long[] newKeys = new long[capacity];
+		long[] newEnds = new long[capacity];
+		Arrays.fill(newKeys, FREE);
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != FREE) {
+				insert(newKeys, newEnds, keys[i], ends[i]);
+			}
+		}
+		keys = newKeys;
+		ends = newEnds;
+	}
+
+	private static boolean insert(long[] keys, long[] ends, long key, long end) {
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (keys[i] != FREE) {
+			if (keys[i] == key) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		ends[i] = end;
+		return true;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9e3779b97f4a7c15l;
+		return (int) (h >>> 32);
+	}
+
+}
@@ -2,12 +2,14 @@ package com.almondtools.rexlex.automaton;
 
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import com.almondtools.rexlex.TokenType;
 import com.almondtools.rexlex.automaton.DeterministicAutomaton.ExactTransition;
 import com.almondtools.rexlex.automaton.DeterministicAutomaton.RangeTransition;
 import com.almondtools.rexlex.automaton.DeterministicAutomaton.State;
+import com.almondtools.rexlex.pattern.DefaultTokenType;
 
 import net.amygdalum.util.text.CharUtils;
 
@@ -38,7 +40,17 @@ public class FromGenericAutomaton {
 		public GenericAutomaton transform(GenericAutomaton automaton) {
 			return automaton.clone().eliminateEpsilons().eliminateDuplicateFinalStates().eliminateDuplicateTransitions();
 		}
-		
+
+		@Override
+		public int hashCode() {
+			return getClass().hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj != null && getClass() == obj.getClass();
+		}
+
 	}
 
 	public static class ToMinimalDeterministicGenericAutomaton implements ToAutomaton<GenericAutomaton, GenericAutomaton>{
@@ -47,7 +59,17 @@ public class FromGenericAutomaton {
 		public GenericAutomaton transform(GenericAutomaton automaton) {
 			return automaton.clone().eliminateEpsilons().determinize().totalizeAndClean().minimize();
 		}
-		
+
+		@Override
+		public int hashCode() {
+			return getClass().hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj != null && getClass() == obj.getClass();
+		}
+
 	}
 
 	public static class ToDeterministicAutomaton implements ToAutomaton<GenericAutomaton, DeterministicAutomaton> {
@@ -58,7 +80,17 @@ public class FromGenericAutomaton {
 			Map<com.almondtools.rexlex.automaton.GenericAutomaton.State, State> mappedStates = mapStates(almostDeterministic.findAllStates());
 			return new DeterministicAutomaton(mappedStates.get(almostDeterministic.getStart()), mappedStates.get(almostDeterministic.getError()));
 		}
-		
+
+		@Override
+		public int hashCode() {
+			return getClass().hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj != null && getClass() == obj.getClass();
+		}
+
 	}
 
 	public static class ToMinimalDeterministicAutomaton implements ToAutomaton<GenericAutomaton, DeterministicAutomaton>{
@@ -85,7 +117,27 @@ public class FromGenericAutomaton {
 				return new DeterministicAutomaton(mappedStates.get(almostMinimalDeterministic.getStart()), mappedStates.get(almostMinimalDeterministic.getError()));
 			}
 		}
-		
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(remainder);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			ToMinimalDeterministicAutomaton that = (ToMinimalDeterministicAutomaton) obj;
+			return Objects.equals(this.remainder, that.remainder);
+		}
+
 	}
 	
 	public static class ToTabledAutomaton implements ToAutomaton<GenericAutomaton, TabledAutomaton> {
@@ -101,13 +153,19 @@ public class FromGenericAutomaton {
 
 		@Override
 		public TabledAutomaton transform(GenericAutomaton automaton) {
-			DeterministicAutomaton dfa = createDeterministicAutomaton(automaton);
+			return transformDeterministic(automaton.clone().eliminateEpsilons().determinize());
+		}
+
+		/**
+		 * @param almostDeterministic a determinized (not yet minimized) automaton
+		 */
+		TabledAutomaton transformDeterministic(GenericAutomaton almostDeterministic) {
+			DeterministicAutomaton dfa = createDeterministicAutomaton(almostDeterministic);
 			char[] relevantChars = CharUtils.fromWrapped(dfa.computeRelevantCharacters());
-			return new TabledAutomaton(relevantChars, dfa.getStart(), dfa.getError(), dfa.getProperty());
+			return new TabledAutomaton(relevantChars, dfa.getStart(), dfa.getError(), dfa.getProperty(), almostDeterministic.getStatistics());
 		}
 
-		private DeterministicAutomaton createDeterministicAutomaton(GenericAutomaton automaton) {
-			GenericAutomaton almostDeterministic = automaton.clone().eliminateEpsilons().determinize();
+		private DeterministicAutomaton createDeterministicAutomaton(GenericAutomaton almostDeterministic) {
 			if (remainder != null) {
 				GenericAutomaton almostMinimalDeterministic = almostDeterministic.totalizeAndClean(remainder).minimize();
 				Map<com.almondtools.rexlex.automaton.GenericAutomaton.State, State> mappedStates = mapStates(almostMinimalDeterministic.findAllStates());
@@ -120,6 +178,365 @@ public class FromGenericAutomaton {
 			}
 		}
 
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(remainder);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			ToTabledAutomaton that = (ToTabledAutomaton) obj;
+			return Objects.equals(this.remainder, that.remainder);
+		}
+
+	}
+
+	/**
+	 * transforms to a tabled automaton on UTF-8 bytes. The automaton should be applied to a char provider that provides each byte
+	 * as one char (0x00-0xff), e.g. a {@link com.almondtools.rexlex.io.ByteBufferCharProvider}. The relevant chars (bytes) are
+	 * compressed to byte classes as in any other tabled automaton.
+	 */
+	public static class ToUtf8TabledAutomaton implements ToAutomaton<GenericAutomaton, TabledAutomaton> {
+
+		private TokenType remainder;
+
+		public ToUtf8TabledAutomaton() {
+		}
+
+		public ToUtf8TabledAutomaton(TokenType remainder) {
+			this.remainder = remainder;
+		}
+
+		@Override
+		public TabledAutomaton transform(GenericAutomaton automaton) {
+			return new ToTabledAutomaton(remainder).transform(automaton.encodeUtf8());
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(remainder);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			ToUtf8TabledAutomaton that = (ToUtf8TabledAutomaton) obj;
+			return Objects.equals(this.remainder, that.remainder);
+		}
+
+	}
+
+	/**
+	 * transforms to a lazy automaton, i.e. a deterministic automaton whose states are constructed when the input reaches them.
+	 * Prefer this transformation for patterns with large (exponential) deterministic automata.
+	 */
+	public static class ToLazyAutomaton implements ToAutomaton<GenericAutomaton, LazyAutomaton> {
+
+		private TokenType remainder;
+		private int maxStates;
+
+		public ToLazyAutomaton() {
+			this(null);
+		}
+
+		public ToLazyAutomaton(TokenType remainder) {
+			this(remainder, LazyAutomaton.DEFAULT_MAX_STATES);
+		}
+
+		/**
+		 * @param remainder the type of the error state
+		 * @param maxStates the maximum number of cached states, the cache is flushed if it gets larger
+		 */
+		public ToLazyAutomaton(TokenType remainder, int maxStates) {
+			this.remainder = remainder;
+			this.maxStates = maxStates;
+		}
+
+		@Override
+		public LazyAutomaton transform(GenericAutomaton automaton) {
+			return new LazyAutomaton(automaton.clone().eliminateEpsilons(), remainder, maxStates);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(remainder) * 31 + maxStates;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			ToLazyAutomaton that = (ToLazyAutomaton) obj;
+			return Objects.equals(this.remainder, that.remainder)
+				&& this.maxStates == that.maxStates;
+		}
+
+	}
+
+	/**
+	 * transforms to a bit-parallel automaton if the automaton is small enough (see {@link BitParallelAutomaton#MAX_POSITIONS}),
+	 * to a tabled automaton otherwise.
+	 */
+	public static class ToBitParallelAutomaton implements ToAutomaton<GenericAutomaton, Automaton> {
+
+		private TokenType remainder;
+
+		public ToBitParallelAutomaton() {
+		}
+
+		public ToBitParallelAutomaton(TokenType remainder) {
+			this.remainder = remainder;
+		}
+
+		@Override
+		public Automaton transform(GenericAutomaton automaton) {
+			GenericAutomaton nfa = automaton.clone().eliminateEpsilons();
+			if (BitParallelAutomaton.positionsOf(nfa) > BitParallelAutomaton.MAX_POSITIONS) {
+				return new ToTabledAutomaton(remainder).transform(automaton);
+			}
+			return new BitParallelAutomaton(nfa, remainder);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(remainder);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			ToBitParallelAutomaton that = (ToBitParallelAutomaton) obj;
+			return Objects.equals(this.remainder, that.remainder);
+		}
+
+	}
+
+	/**
+	 * transforms to an automaton that is simulated without backtracking and without determinization (in O(n*m) time), e.g. for
+	 * untrusted patterns.
+	 */
+	public static class ToPikeVMAutomaton implements ToAutomaton<GenericAutomaton, PikeVMAutomaton> {
+
+		private TokenType remainder;
+
+		public ToPikeVMAutomaton() {
+		}
+
+		public ToPikeVMAutomaton(TokenType remainder) {
+			this.remainder = remainder;
+		}
+
+		@Override
+		public PikeVMAutomaton transform(GenericAutomaton automaton) {
+			return new PikeVMAutomaton(automaton.clone(), remainder);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(remainder);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			ToPikeVMAutomaton that = (ToPikeVMAutomaton) obj;
+			return Objects.equals(this.remainder, that.remainder);
+		}
+
+	}
+
+	/**
+	 * selects the automaton by the size of the automaton:
+	 * <ul>
+	 * <li>literals (a finite set of words) are transformed to an aho-corasick automaton</li>
+	 * <li>small automata (see {@link BitParallelAutomaton#MAX_POSITIONS}) are transformed to a bit-parallel automaton</li>
+	 * <li>automata with a bounded deterministic automaton (the maximum number of table cells, i.e. states x relevant chars) are
+	 * transformed to a tabled automaton</li>
+	 * <li>all other automata are transformed to a lazy automaton</li>
+	 * </ul>
+	 * The transformation does not keep state, the selected engine is determined from the transformed automaton with
+	 * {@link Engine#of(Automaton)}.
+	 */
+	public static class ToAdaptiveAutomaton implements ToAutomaton<GenericAutomaton, Automaton> {
+
+		public static final int DEFAULT_MAX_CELLS = 1 << 20;
+
+		private static final int MAX_TRIE_NODES = 1 << 16;
+
+		private TokenType remainder;
+		private int maxCells;
+
+		public ToAdaptiveAutomaton() {
+			this(null);
+		}
+
+		public ToAdaptiveAutomaton(TokenType remainder) {
+			this(remainder, DEFAULT_MAX_CELLS);
+		}
+
+		/**
+		 * @param remainder the type of the error state
+		 * @param maxCells the maximum number of cells (states x relevant chars) of a tabled automaton
+		 */
+		public ToAdaptiveAutomaton(TokenType remainder, int maxCells) {
+			this.remainder = remainder;
+			this.maxCells = maxCells;
+		}
+
+		@Override
+		public Automaton transform(GenericAutomaton automaton) {
+			Map<String, TokenType> literals = automaton.computeLiterals(MAX_TRIE_NODES);
+			if (literals != null && !literals.isEmpty()) {
+				TokenType errorType = remainder == null ? DefaultTokenType.ERROR : remainder;
+				return new AhoCorasickAutomaton(literals, errorType);
+			}
+			GenericAutomaton nfa = automaton.clone().eliminateEpsilons();
+			if (BitParallelAutomaton.positionsOf(nfa) <= BitParallelAutomaton.MAX_POSITIONS) {
+				return new BitParallelAutomaton(nfa, remainder);
+			}
+			int relevantChars = nfa.computeRelevantCharacters().length;
+			GenericAutomaton almostDeterministic = nfa.determinize(Math.max(maxCells / relevantChars, 1));
+			if (almostDeterministic != null) {
+				return new ToTabledAutomaton(remainder).transformDeterministic(almostDeterministic);
+			}
+			return new LazyAutomaton(nfa, remainder, LazyAutomaton.DEFAULT_MAX_STATES);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(remainder) * 31 + maxCells;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			ToAdaptiveAutomaton that = (ToAdaptiveAutomaton) obj;
+			return Objects.equals(this.remainder, that.remainder)
+				&& this.maxCells == that.maxCells;
+		}
+
+		public enum Engine {
+			LITERALS, BIT_PARALLEL, TABLED, LAZY;
+
+			/**
+			 * @return the engine of the given automaton (as selected by the transformation), or null if it is not one of the engines
+			 */
+			public static Engine of(Automaton automaton) {
+				if (automaton instanceof AhoCorasickAutomaton) {
+					return LITERALS;
+				} else if (automaton instanceof BitParallelAutomaton) {
+					return BIT_PARALLEL;
+				} else if (automaton instanceof TabledAutomaton) {
+					return TABLED;
+				} else if (automaton instanceof LazyAutomaton) {
+					return LAZY;
+				} else {
+					return null;
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * builds an aho-corasick automaton for automata accepting a finite set of literals (e.g. keywords). The transformation is not the
+	 * default of matchers and lexers (detecting the literals costs an additional elimination of epsilons), it pays off for large sets
+	 * of literals and for searching these literals.
+	 */
+	public static class ToAhoCorasickAutomaton implements ToAutomaton<GenericAutomaton, Automaton> {
+
+		private static final int MAX_TRIE_NODES = 1 << 16;
+
+		private TokenType remainder;
+
+		public ToAhoCorasickAutomaton() {
+		}
+
+		public ToAhoCorasickAutomaton(TokenType remainder) {
+			this.remainder = remainder;
+		}
+
+		/**
+		 * @return an aho-corasick automaton if the automaton accepts a finite set of literals, a tabled automaton otherwise
+		 */
+		@Override
+		public Automaton transform(GenericAutomaton automaton) {
+			Map<String, TokenType> literals = automaton.computeLiterals(MAX_TRIE_NODES);
+			if (literals == null || literals.isEmpty()) {
+				return new ToTabledAutomaton(remainder).transform(automaton);
+			}
+			TokenType errorType = remainder == null ? DefaultTokenType.ERROR : remainder;
+			return new AhoCorasickAutomaton(literals, errorType);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(remainder);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			ToAhoCorasickAutomaton that = (ToAhoCorasickAutomaton) obj;
+			return Objects.equals(this.remainder, that.remainder);
+		}
+
 	}
 
 }
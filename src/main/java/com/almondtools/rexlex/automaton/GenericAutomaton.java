@@ -18,17 +18,20 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import com.almondtools.rexlex.Token;
 import com.almondtools.rexlex.TokenFactory;
 import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.pattern.CompileBudget;
 import com.almondtools.rexlex.pattern.DefaultTokenType;
 import com.almondtools.rexlex.pattern.DefaultTokenTypeFactory;
 import com.almondtools.rexlex.pattern.TokenIterator;
@@ -50,6 +53,7 @@ public class GenericAutomaton implements Automaton, Cloneable {
 	private State error;
 
 	private AutomatonProperty property;
+	private CompileStatistics statistics;
 
 	public GenericAutomaton() {
 		this(new DefaultTokenTypeFactory());
@@ -99,6 +103,21 @@ public class GenericAutomaton implements Automaton, Cloneable {
 		return error;
 	}
 
+	/**
+	 * restricts the compilation of this automaton (and of the automata derived from it) to the given budget
+	 */
+	public GenericAutomaton withBudget(CompileBudget budget) {
+		this.statistics = budget == null ? null : new CompileStatistics(budget);
+		return this;
+	}
+
+	/**
+	 * @return the statistics of the compilation or null if the compilation has no budget
+	 */
+	public CompileStatistics getStatistics() {
+		return statistics;
+	}
+
 	public TokenTypeFactory getTokenTypes() {
 		return tokenTypes;
 	}
@@ -261,43 +280,25 @@ public class GenericAutomaton implements Automaton, Cloneable {
 	 * generates a deterministic (yet not minimized) Automaton expects this automaton to be already epsilon-free and condition-free
 	 */
 	GenericAutomaton determinize() {
-		char[] relevant = computeRelevantCharacters();
-		Set<State> start = Sets.of(this.start);
-
-		Set<Set<State>> visited = new HashSet<Set<State>>();
-		LinkedList<Set<State>> todo = new LinkedList<Set<State>>();
-		Map<Set<State>, State> combinedState = new HashMap<Set<State>, State>();
+		return determinize(Integer.MAX_VALUE);
+	}
 
-		visited.add(start);
-		todo.add(start);
-		combinedState.put(start, new State());
-
-		while (todo.size() > 0) {
-			Set<State> current = todo.removeFirst();
-			State newCurrent = computeJointState(combinedState, current);
-			for (int i = 0; i < relevant.length; i++) {
-				char currentChar = relevant[i];
-				char beforeNextChar = i + 1 < relevant.length ? before(relevant[i + 1]) : Character.MAX_VALUE;
-				Set<State> possibleNext = new HashSet<State>();
-				for (State possibleCurrent : current) {
-					for (Transition next : possibleCurrent.nexts(currentChar)) {
-						possibleNext.add(next.getTarget());
-					}
-				}
-				if (!visited.contains(possibleNext)) {
-					visited.add(possibleNext);
-					todo.add(possibleNext);
-					combinedState.put(possibleNext, new State());
-				}
-				State newNext = combinedState.get(possibleNext);
-				if (currentChar == beforeNextChar) {
-					newCurrent.addTransition(new ExactTransition(currentChar, newNext));
-				} else {
-					newCurrent.addTransition(new RangeTransition(currentChar, beforeNextChar, newNext));
-				}
-			}
+	/**
+	 * generates a deterministic automaton like {@link #determinize()}, but gives up if the automaton gets too large
+	 * 
+	 * @return the deterministic automaton or null if it would have more than the given number of states
+	 */
+	GenericAutomaton determinize(int maxStates) {
+		if (statistics != null) {
+			statistics.enter("determinize");
+		}
+		State start = new SubsetDeterminizer(this, statistics).determinize(maxStates);
+		if (start == null) {
+			return null;
 		}
-		return new GenericAutomaton(combinedState.get(start));
+		GenericAutomaton deterministic = new GenericAutomaton(start);
+		deterministic.statistics = statistics;
+		return deterministic;
 	}
 
 	GenericAutomaton totalizeAndClean() {
@@ -328,165 +329,253 @@ public class GenericAutomaton implements Automaton, Cloneable {
 	 * expects dead state free, total DFA
 	 */
 	GenericAutomaton minimize() {
-		char[] relevant = computeRelevantCharacters();
-		Set<State> allStates = findAllStates();
-		Set<State> acceptStates = findAcceptStates();
-		Set<Set<State>> partitionedAcceptStates = splitByTokenType(acceptStates);
-		Set<State> innerStates = Sets.hashed(allStates).minus(acceptStates).build();
-
-		Set<Set<State>> partititions = initPartitions(innerStates, partitionedAcceptStates);
-		Map<State, List<EventTransition>> reverseTransitions = computeReverseTransitions(allStates);
-		LinkedList<Set<State>> worklist = new LinkedList<Set<State>>();
-		worklist.addAll(partitionedAcceptStates);
-		while (!worklist.isEmpty()) {
-			Set<State> item = worklist.removeFirst();
-			for (char c : relevant) {
-				Set<State> X = validOrigins(c, item, reverseTransitions);
-				List<Set<State>> partitionsSnapshot = new ArrayList<Set<State>>(partititions);
-				for (Set<State> Y : partitionsSnapshot) {
-					Set<State> iXY = Sets.intersectionOf(Y, X);
-					Set<State> cXY = Sets.complementOf(Y, X);
-					if (!iXY.isEmpty() && !cXY.isEmpty()) {
-						refine(partititions, Y, iXY, cXY);
-						if (worklist.contains(Y)) {
-							refine(worklist, Y, iXY, cXY);
-						} else {
-							if (iXY.size() <= cXY.size()) {
-								worklist.add(iXY);
-							} else {
-								worklist.add(cXY);
-							}
-						}
-					}
-				}
-			}
+		if (statistics != null) {
+			statistics.enter("minimize");
 		}
-		Map<State, State> newStates = buildNewStates(partititions);
+		Map<State, State> newStates = new HopcroftMinimizer(findAllStates(), findAcceptStates(), computeRelevantCharacters(), statistics).minimize();
 		start = newStates.get(start);
 		error = newStates.get(error);
 		return this;
 	}
 
-	private Set<Set<State>> initPartitions(Set<State> nonaccept, Set<Set<State>> accept) {
-		return Sets.hashed(accept).addConditional(!nonaccept.isEmpty(), nonaccept).build();
+	@Override
+	public GenericAutomaton revert() {
+		Revert revert = new Revert(start).apply();
+		State newstart = new State();
+		for (State state : findAcceptStates()) {
+			State newstate = revert.resolve(state);
+			TokenType newtype = revert.getType(newstate);
+			State newend = new State(newtype);
+			newstate = new Replace(newstate).replace(revert.resolve(start), newend).apply().replaced();
+			newstart.addTransition(new EpsilonTransition(newstate));
+		}
+		GenericAutomaton reverted = new GenericAutomaton(newstart);
+		reverted.statistics = statistics;
+		return reverted;
 	}
 
-	private Set<Set<State>> splitByTokenType(Set<State> states) {
-		Map<TokenType, Set<State>> split = new HashMap<TokenType, Set<State>>();
-		for (State state : states) {
-			TokenType key = state.getType();
-			Set<State> set = split.get(key);
-			if (set == null) {
-				set = new HashSet<State>();
-				split.put(key, set);
+	/**
+	 * rewrites each char transition into transitions on the UTF-8 encoding of the chars, i.e. the result accepts the UTF-8 bytes
+	 * (each byte as char 0x00-0xff) of the strings accepted by this automaton. A surrogate pair (a high surrogate transition followed
+	 * by a low surrogate transition) is rewritten to the 4 byte encoding of its code point: the high surrogate determines the first
+	 * two bytes and the upper two bits of the third byte, so the target of a high surrogate transition is split into 4 states (one
+	 * for each value of these bits), each continuing with the low surrogate transitions of the target. Unpaired surrogates have no
+	 * UTF-8 encoding, so they are dropped.
+	 */
+	GenericAutomaton encodeUtf8() {
+		GenericAutomaton automaton = clone().eliminateEpsilons();
+		Map<State, State> newStates = new IdentityHashMap<State, State>();
+		for (State state : automaton.findAllStates()) {
+			newStates.put(state, new State(state.getType()));
+		}
+		Map<State, State[]> pendingStates = new IdentityHashMap<State, State[]>();
+		for (Map.Entry<State, State> entry : newStates.entrySet()) {
+			State state = entry.getKey();
+			State newState = entry.getValue();
+			for (Transition transition : state.getTransitions()) {
+				State newTarget = newStates.get(transition.getTarget());
+				if (transition instanceof EventTransition) {
+					EventTransition eventTransition = (EventTransition) transition;
+					char from = eventTransition.getFrom();
+					char to = eventTransition.getTo();
+					for (char[][] sequence : utf8Sequences(from, to)) {
+						addSequence(newState, sequence, newTarget);
+					}
+					if (from <= Character.MAX_HIGH_SURROGATE && to >= Character.MIN_HIGH_SURROGATE) {
+						State[] pending = pendingStates.get(transition.getTarget());
+						if (pending == null) {
+							pending = new State[] { new State(), new State(), new State(), new State() };
+							pendingStates.put(transition.getTarget(), pending);
+						}
+						for (int bits = 0; bits < pending.length; bits++) {
+							for (char[][] sequence : highSurrogateSequences(from, to, bits)) {
+								addSequence(newState, sequence, pending[bits]);
+							}
+						}
+					}
+				} else {
+					newState.addTransition(transition.clone(newTarget));
+				}
 			}
-			set.add(state);
 		}
-		return Sets.hashed(split.values()).build();
+		for (Map.Entry<State, State[]> entry : pendingStates.entrySet()) {
+			State[] pending = entry.getValue();
+			for (Transition transition : entry.getKey().getTransitions()) {
+				if (!(transition instanceof EventTransition)) {
+					continue;
+				}
+				EventTransition eventTransition = (EventTransition) transition;
+				char from = eventTransition.getFrom();
+				char to = eventTransition.getTo();
+				if (from <= Character.MAX_LOW_SURROGATE && to >= Character.MIN_LOW_SURROGATE) {
+					State newTarget = newStates.get(transition.getTarget());
+					for (int bits = 0; bits < pending.length; bits++) {
+						for (char[][] sequence : lowSurrogateSequences(from, to, bits)) {
+							addSequence(pending[bits], sequence, newTarget);
+						}
+					}
+				}
+			}
+		}
+		return new GenericAutomaton(newStates.get(automaton.start), tokenTypes);
 	}
 
-	private Map<State, List<EventTransition>> computeReverseTransitions(Set<State> states) {
-		Map<State, List<EventTransition>> reverse = new IdentityHashMap<State, List<EventTransition>>();
-		for (State state : states) {
-			for (EventTransition transition : state.getEventTransitions()) {
-				State target = transition.getTarget();
-				List<EventTransition> reverseTransitions = reverse.get(target);
-				if (reverseTransitions == null) {
-					reverseTransitions = new LinkedList<EventTransition>();
-					reverse.put(target, reverseTransitions);
-				}
-				EventTransition reverseTransition = (EventTransition) transition.clone(state);
-				reverseTransitions.add(reverseTransition);
+	private static void addSequence(State state, char[][] sequence, State target) {
+		State current = state;
+		for (int i = 0; i < sequence.length; i++) {
+			State next = i == sequence.length - 1 ? target : new State();
+			char from = sequence[i][0];
+			char to = sequence[i][1];
+			if (from == to) {
+				current.addTransition(new ExactTransition(from, next));
+			} else {
+				current.addTransition(new RangeTransition(from, to, next));
 			}
+			current = next;
+		}
+	}
+
+	/**
+	 * splits a char range into sequences of byte ranges, such that each sequence accepts the UTF-8 encodings of a sub range
+	 */
+	static List<char[][]> utf8Sequences(char from, char to) {
+		List<char[][]> sequences = new ArrayList<char[][]>();
+		if (from < Character.MIN_SURROGATE) {
+			splitUtf8(from, Math.min(to, Character.MIN_SURROGATE - 1), sequences);
+		}
+		if (to > Character.MAX_SURROGATE) {
+			splitUtf8(Math.max(from, Character.MAX_SURROGATE + 1), to, sequences);
+		}
+		return sequences;
+	}
+
+	/**
+	 * splits a char range into sequences of the first two bytes of the UTF-8 encodings of the code points starting with the high
+	 * surrogates of this range, restricted to the high surrogates with the given lowest two bits (the upper bits of the third byte).
+	 */
+	static List<char[][]> highSurrogateSequences(char from, char to, int bits) {
+		List<char[][]> sequences = new ArrayList<char[][]>();
+		int min = Math.max(from, Character.MIN_HIGH_SURROGATE) - Character.MIN_HIGH_SURROGATE + 0x40;
+		int max = Math.min(to, Character.MAX_HIGH_SURROGATE) - Character.MIN_HIGH_SURROGATE + 0x40;
+		int first = (min - bits + 3) >> 2;
+		int last = (max - bits) >> 2;
+		if (first <= last) {
+			splitContinuation(first, last, 0xf0, sequences);
 		}
-		return reverse;
+		return sequences;
 	}
 
-	private void refine(Collection<Set<State>> collection, Set<State> Y, Set<State> iXY, Set<State> cXY) {
-		collection.remove(Y);
-		collection.add(iXY);
-		collection.add(cXY);
+	/**
+	 * splits a char range into sequences of the last two bytes of the UTF-8 encodings of the code points ending with the low
+	 * surrogates of this range, where the upper bits of the third byte are given by the preceding high surrogate.
+	 */
+	static List<char[][]> lowSurrogateSequences(char from, char to, int bits) {
+		List<char[][]> sequences = new ArrayList<char[][]>();
+		int min = Math.max(from, Character.MIN_LOW_SURROGATE) - Character.MIN_LOW_SURROGATE;
+		int max = Math.min(to, Character.MAX_LOW_SURROGATE) - Character.MIN_LOW_SURROGATE;
+		splitContinuation(bits << 10 | min, bits << 10 | max, 0x80, sequences);
+		return sequences;
 	}
 
-	private Set<State> validOrigins(char ch, Set<State> targets, Map<State, List<EventTransition>> reverse) {
-		Set<State> states = new HashSet<State>();
-		for (State target : targets) {
-			List<EventTransition> reverseTransitions = reverse.get(target);
-			if (reverseTransitions == null) {
-				continue;
+	/**
+	 * splits a range of values into sequences of two bytes, the first byte being the given prefix with the upper bits of the value,
+	 * the second byte being a continuation byte with the lowest 6 bits of the value.
+	 */
+	private static void splitContinuation(int from, int to, int prefix, List<char[][]> sequences) {
+		int mask = 0x3f;
+		if ((from & ~mask) != (to & ~mask)) {
+			if ((from & mask) != 0) {
+				splitContinuation(from, from | mask, prefix, sequences);
+				splitContinuation((from | mask) + 1, to, prefix, sequences);
+				return;
 			}
-			for (EventTransition transition : reverseTransitions) {
-				if (transition.matches(ch)) {
-					states.add(transition.getTarget());
-				}
+			if ((to & mask) != mask) {
+				splitContinuation(from, (to & ~mask) - 1, prefix, sequences);
+				splitContinuation(to & ~mask, to, prefix, sequences);
+				return;
 			}
 		}
-		return states;
+		sequences.add(new char[][] {
+			{ (char) (prefix | (from >> 6)), (char) (prefix | (to >> 6)) },
+			{ (char) (0x80 | (from & mask)), (char) (0x80 | (to & mask)) }
+		});
 	}
 
-	private Map<State, State> buildNewStates(Set<Set<State>> partitions) {
-		Map<State, State> newStates = new IdentityHashMap<State, State>();
-		for (Set<State> partition : partitions) {
-			State firstElement = partition.iterator().next();
-			State newState = new State(firstElement.getType());
-			for (State state : partition) {
-				newStates.put(state, newState);
+	private static void splitUtf8(int from, int to, List<char[][]> sequences) {
+		for (int max : new int[] { 0x7f, 0x7ff }) {
+			if (from <= max && to > max) {
+				splitUtf8(from, max, sequences);
+				splitUtf8(max + 1, to, sequences);
+				return;
 			}
 		}
-		for (Map.Entry<State, State> entry : newStates.entrySet()) {
-			State state = entry.getKey();
-			State newState = entry.getValue();
-			for (EventTransition transition : state.getEventTransitions()) {
-				State target = transition.getTarget();
-				State newTarget = newStates.get(target);
-				if (newState.nexts(transition.getFrom()).isEmpty()) {
-					Transition cloned = transition.clone(newTarget);
-					newState.addTransition(cloned);
+		int length = utf8Length(from);
+		for (int i = 1; i < length; i++) {
+			int mask = (1 << (6 * i)) - 1;
+			if ((from & ~mask) != (to & ~mask)) {
+				if ((from & mask) != 0) {
+					splitUtf8(from, from | mask, sequences);
+					splitUtf8((from | mask) + 1, to, sequences);
+					return;
+				}
+				if ((to & mask) != mask) {
+					splitUtf8(from, (to & ~mask) - 1, sequences);
+					splitUtf8(to & ~mask, to, sequences);
+					return;
 				}
 			}
 		}
-		return newStates;
+		char[] fromBytes = utf8Encode(from, length);
+		char[] toBytes = utf8Encode(to, length);
+		char[][] sequence = new char[length][];
+		for (int i = 0; i < length; i++) {
+			sequence[i] = new char[] { fromBytes[i], toBytes[i] };
+		}
+		sequences.add(sequence);
 	}
 
-	@Override
-	public GenericAutomaton revert() {
-		Revert revert = new Revert(start).apply();
-		State newstart = new State();
-		for (State state : findAcceptStates()) {
-			State newstate = revert.resolve(state);
-			TokenType newtype = revert.getType(newstate);
-			State newend = new State(newtype);
-			newstate = new Replace(newstate).replace(revert.resolve(start), newend).apply().replaced();
-			newstart.addTransition(new EpsilonTransition(newstate));
+	private static int utf8Length(int c) {
+		if (c < 0x80) {
+			return 1;
+		} else if (c < 0x800) {
+			return 2;
+		} else {
+			return 3;
 		}
-		return new GenericAutomaton(newstart);
 	}
 
-	private State computeJointState(Map<Set<State>, State> newstate, Set<State> current) {
-		State newCurrent = newstate.get(current);
-		newCurrent.setType(jointTypeOf(current));
-		return newCurrent;
+	private static char[] utf8Encode(int c, int length) {
+		if (length == 1) {
+			return new char[] { (char) c };
+		} else if (length == 2) {
+			return new char[] { (char) (0xc0 | (c >> 6)), (char) (0x80 | (c & 0x3f)) };
+		} else {
+			return new char[] { (char) (0xe0 | (c >> 12)), (char) (0x80 | ((c >> 6) & 0x3f)), (char) (0x80 | (c & 0x3f)) };
+		}
 	}
 
-	private TokenType jointTypeOf(Set<State> current) {
+	TokenType jointTypeOf(Set<State> current) {
 		TokenType type = null;
 		for (State part : current) {
-			TokenType newtype = part.getType();
-			if (type == null) {
-				type = newtype;
-			} else if (newtype == null) {
-				//keep type
-			} else if (type.error()) {
-				type = newtype;
-			} else if (newtype.error()) {
-				//keep type;
-			} else {
-				type = tokenTypes.union(newtype, type);
-			}
+			type = jointTypeOf(type, part.getType());
 		}
 		return type;
 	}
 
+	TokenType jointTypeOf(TokenType type, TokenType newtype) {
+		if (type == null) {
+			return newtype;
+		} else if (newtype == null) {
+			return type;
+		} else if (type.error()) {
+			return newtype;
+		} else if (newtype.error()) {
+			return type;
+		} else {
+			return tokenTypes.union(newtype, type);
+		}
+	}
+
 	char[] computeRelevantCharacters() {
 		SortedSet<Character> relevant = new TreeSet<Character>();
 		for (State state : findAllStates()) {
@@ -495,6 +584,129 @@ public class GenericAutomaton implements Automaton, Cloneable {
 		return CharUtils.fromWrapped(relevant);
 	}
 
+	/**
+	 * computes the literal that each match of this automaton starts with (empty if there is no such literal)
+	 */
+	public String computeLiteralPrefix() {
+		StringBuilder prefix = new StringBuilder();
+		Set<Set<State>> visited = new HashSet<Set<State>>();
+		Set<State> current = new LinkedHashSet<State>(start.getClosure());
+		while (visited.add(current)) {
+			Set<State> next = new LinkedHashSet<State>();
+			Character literal = null;
+			for (State state : current) {
+				if (state.accept()) {
+					return prefix.toString();
+				}
+				for (Transition transition : state.getTransitions()) {
+					if (!(transition instanceof EventTransition)) {
+						continue;
+					}
+					EventTransition eventTransition = (EventTransition) transition;
+					char from = eventTransition.getFrom();
+					if (from != eventTransition.getTo()) {
+						return prefix.toString();
+					} else if (literal != null && literal != from) {
+						return prefix.toString();
+					}
+					literal = from;
+					next.addAll(eventTransition.getTarget().getClosure());
+				}
+			}
+			if (literal == null) {
+				break;
+			}
+			prefix.append(literal.charValue());
+			current = next;
+		}
+		return prefix.toString();
+	}
+
+	/**
+	 * computes the words (and their token types) of an automaton accepting a finite set of literals, null if the automaton contains char ranges or exceeds the given number of trie nodes
+	 */
+	public Map<String, TokenType> computeLiterals(int limit) {
+		for (State state : findAllStates()) {
+			for (EventTransition transition : state.getEventTransitions()) {
+				if (transition.getFrom() != transition.getTo()) {
+					return null;
+				}
+			}
+		}
+		GenericAutomaton nfa = clone().eliminateEpsilons();
+		if (!isAcyclic(nfa.findAllStates())) {
+			return null;
+		}
+		Map<String, TokenType> literals = new LinkedHashMap<String, TokenType>();
+		Deque<String> todoWords = new ArrayDeque<String>();
+		Deque<Set<State>> todoStates = new ArrayDeque<Set<State>>();
+		todoWords.push("");
+		todoStates.push(Sets.of(nfa.start));
+		int nodes = 0;
+		while (!todoStates.isEmpty()) {
+			nodes++;
+			if (nodes > limit) {
+				return null;
+			}
+			String word = todoWords.pop();
+			Set<State> current = todoStates.pop();
+			TokenType type = nfa.jointTypeOf(current);
+			if (type != null && type.accept()) {
+				literals.put(word, type);
+			}
+			TreeMap<Character, Set<State>> nexts = new TreeMap<Character, Set<State>>();
+			for (State state : current) {
+				for (EventTransition transition : state.getEventTransitions()) {
+					char literal = transition.getFrom();
+					Set<State> next = nexts.get(literal);
+					if (next == null) {
+						next = new HashSet<State>();
+						nexts.put(literal, next);
+					}
+					next.add(transition.getTarget());
+				}
+			}
+			for (Map.Entry<Character, Set<State>> entry : nexts.descendingMap().entrySet()) {
+				todoWords.push(word + entry.getKey());
+				todoStates.push(entry.getValue());
+			}
+		}
+		return literals;
+	}
+
+	private static boolean isAcyclic(Set<State> states) {
+		Map<State, Integer> incoming = new IdentityHashMap<State, Integer>();
+		for (State state : states) {
+			incoming.put(state, 0);
+		}
+		for (State state : states) {
+			for (Transition transition : state.getTransitions()) {
+				State target = transition.getTarget();
+				incoming.put(target, incoming.get(target) + 1);
+			}
+		}
+		LinkedList<State> todo = new LinkedList<State>();
+		for (Map.Entry<State, Integer> entry : incoming.entrySet()) {
+			if (entry.getValue() == 0) {
+				todo.add(entry.getKey());
+			}
+		}
+		int sorted = 0;
+		while (!todo.isEmpty()) {
+			State state = todo.removeFirst();
+			sorted++;
+			for (Transition transition : state.getTransitions()) {
+				State target = transition.getTarget();
+				int remaining = incoming.get(target) - 1;
+				incoming.put(target, remaining);
+				if (remaining == 0) {
+					todo.add(target);
+				}
+			}
+		}
+		return sorted == states.size();
+	}
+
 	Set<State> findAcceptStates() {
 		return start.findAcceptStates();
 	}
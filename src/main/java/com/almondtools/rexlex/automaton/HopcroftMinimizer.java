@@ -0,0 +1,315 @@
+package com.almondtools.rexlex.automaton;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.GenericAutomaton.EventTransition;
+import com.almondtools.rexlex.automaton.GenericAutomaton.State;
+import com.almondtools.rexlex.automaton.GenericAutomaton.Transition;
+
+/**
+ * minimizes a deterministic automaton with Hopcroft's partition refinement on integer-indexed states. The blocks of the partition
+ * are ranges of one element array, a split moves the marked states to the front of their block and cuts them off as a new block.
+ * The predecessors of each state are indexed with their character class, such that refining with a splitter block costs only the
+ * transitions into this block, i.e. minimization takes O(n&#183;k&#183;log n) time (k = number of character classes).
+ */
+class HopcroftMinimizer {
+
+	private State[] states;
+	private char[] relevant;
+	private CompileStatistics statistics;
+
+	private int[] predecessorStart; // #states + 1 (offsets of the predecessors of each state)
+	private int[] predecessors; // #transitions x #character classes (source)
+	private int[] predecessorClasses; // #transitions x #character classes (character class)
+
+	private int[] elements; // #states (ordered by block)
+	private int[] location; // #states (index in elements)
+	private int[] blockOf; // #states
+	private int[] blockStart; // #blocks
+	private int[] blockEnd; // #blocks
+	private int[] marked; // #blocks (number of marked elements at the start of the block)
+	private int blockCount;
+
+	private int[] touched; // blocks with marked elements
+	private int touchedCount;
+
+	private int[] worklist;
+	private int worklistSize;
+	private boolean[] pending; // #blocks (block is in worklist)
+
+	/**
+	 * @param allStates the states of a deterministic, dead state free automaton
+	 * @param acceptStates the accepting states (initially split by their token type)
+	 * @param relevant the relevant characters of the automaton (each starting a character class)
+	 * @param statistics the statistics of a compilation with budget, or null
+	 */
+	HopcroftMinimizer(Set<State> allStates, Set<State> acceptStates, char[] relevant, CompileStatistics statistics) {
+		this.states = allStates.toArray(new State[0]);
+		this.relevant = relevant;
+		this.statistics = statistics;
+		Map<State, Integer> index = new IdentityHashMap<State, Integer>();
+		for (int i = 0; i < states.length; i++) {
+			index.put(states[i], i);
+		}
+		initPredecessors(index);
+		initPartition(acceptStates);
+	}
+
+	private void initPredecessors(Map<State, Integer> index) {
+		predecessorStart = new int[states.length + 1];
+		for (State state : states) {
+			for (EventTransition transition : state.getEventTransitions()) {
+				Integer target = index.get(transition.getTarget());
+				if (target != null) {
+					predecessorStart[target + 1] += lastClass(transition) - firstClass(transition) + 1;
+				}
+			}
+		}
+		for (int i = 0; i < states.length; i++) {
+			predecessorStart[i + 1] += predecessorStart[i];
+		}
+		predecessors = new int[predecessorStart[states.length]];
+		predecessorClasses = new int[predecessors.length];
+		int[] next = predecessorStart.clone();
+		for (int source = 0; source < states.length; source++) {
+			for (EventTransition transition : states[source].getEventTransitions()) {
+				Integer target = index.get(transition.getTarget());
+				if (target != null) {
+					int last = lastClass(transition);
+					for (int c = firstClass(transition); c <= last; c++) {
+						int i = next[target]++;
+						predecessors[i] = source;
+						predecessorClasses[i] = c;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the first character class with a representative not below the lower bound of the transition
+	 */
+	private int firstClass(EventTransition transition) {
+		char from = transition.getFrom();
+		int lo = 0;
+		int hi = relevant.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (relevant[mid] < from) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * @return the last character class with a representative not above the upper bound of the transition
+	 */
+	private int lastClass(EventTransition transition) {
+		char to = transition.getTo();
+		int lo = 0;
+		int hi = relevant.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (relevant[mid] <= to) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo - 1;
+	}
+
+	private void initPartition(Set<State> acceptStates) {
+		int stateCount = states.length;
+		elements = new int[stateCount];
+		location = new int[stateCount];
+		blockOf = new int[stateCount];
+		blockStart = new int[stateCount];
+		blockEnd = new int[stateCount];
+		marked = new int[stateCount];
+		touched = new int[stateCount];
+		worklist = new int[stateCount];
+		pending = new boolean[stateCount];
+
+		List<Integer> inner = new ArrayList<Integer>();
+		Map<TokenType, List<Integer>> accept = new LinkedHashMap<TokenType, List<Integer>>();
+		for (int i = 0; i < stateCount; i++) {
+			if (acceptStates.contains(states[i])) {
+				TokenType type = states[i].getType();
+				List<Integer> block = accept.get(type);
+				if (block == null) {
+					block = new ArrayList<Integer>();
+					accept.put(type, block);
+				}
+				block.add(i);
+			} else {
+				inner.add(i);
+			}
+		}
+		int size = 0;
+		for (List<Integer> block : accept.values()) {
+			size = addBlock(block, size);
+		}
+		if (!inner.isEmpty()) {
+			addBlock(inner, size);
+		}
+	}
+
+	private int addBlock(List<Integer> block, int start) {
+		int b = blockCount++;
+		blockStart[b] = start;
+		for (int state : block) {
+			elements[start] = state;
+			location[state] = start;
+			blockOf[state] = b;
+			start++;
+		}
+		blockEnd[b] = start;
+		push(b);
+		return start;
+	}
+
+	/**
+	 * @return a mapping from each state to the state representing its block
+	 */
+	Map<State, State> minimize() {
+		int[] classCount = new int[relevant.length];
+		int[] classNext = new int[relevant.length];
+		int[] classes = new int[relevant.length];
+		int[] splitters = new int[predecessors.length];
+		while (worklistSize > 0) {
+			int splitter = worklist[--worklistSize];
+			pending[splitter] = false;
+			if (statistics != null) {
+				statistics.checkTime();
+			}
+
+			int classesCount = 0;
+			for (int i = blockStart[splitter]; i < blockEnd[splitter]; i++) {
+				int state = elements[i];
+				for (int j = predecessorStart[state]; j < predecessorStart[state + 1]; j++) {
+					if (classCount[predecessorClasses[j]]++ == 0) {
+						classes[classesCount++] = predecessorClasses[j];
+					}
+				}
+			}
+			int offset = 0;
+			for (int i = 0; i < classesCount; i++) {
+				int c = classes[i];
+				classNext[c] = offset;
+				offset += classCount[c];
+			}
+			for (int i = blockStart[splitter]; i < blockEnd[splitter]; i++) {
+				int state = elements[i];
+				for (int j = predecessorStart[state]; j < predecessorStart[state + 1]; j++) {
+					splitters[classNext[predecessorClasses[j]]++] = predecessors[j];
+				}
+			}
+
+			for (int i = 0; i < classesCount; i++) {
+				int c = classes[i];
+				int end = classNext[c];
+				for (int j = end - classCount[c]; j < end; j++) {
+					mark(splitters[j]);
+				}
+				split();
+				classCount[c] = 0;
+			}
+		}
+		return buildNewStates();
+	}
+
+	private void mark(int state) {
+		int b = blockOf[state];
+		int pos = location[state];
+		int front = blockStart[b] + marked[b];
+		if (pos < front) {
+			return;
+		}
+		int other = elements[front];
+		elements[front] = state;
+		location[state] = front;
+		elements[pos] = other;
+		location[other] = pos;
+		if (marked[b]++ == 0) {
+			touched[touchedCount++] = b;
+		}
+	}
+
+	private void split() {
+		for (int i = 0; i < touchedCount; i++) {
+			int b = touched[i];
+			int m = marked[b];
+			marked[b] = 0;
+			if (m == blockEnd[b] - blockStart[b]) {
+				continue;
+			}
+			int nb = blockCount++;
+			blockStart[nb] = blockStart[b];
+			blockEnd[nb] = blockStart[b] + m;
+			blockStart[b] = blockEnd[nb];
+			for (int j = blockStart[nb]; j < blockEnd[nb]; j++) {
+				blockOf[elements[j]] = nb;
+			}
+			if (pending[b]) {
+				push(nb);
+			} else if (blockEnd[nb] - blockStart[nb] <= blockEnd[b] - blockStart[b]) {
+				push(nb);
+			} else {
+				push(b);
+			}
+		}
+		touchedCount = 0;
+	}
+
+	private void push(int block) {
+		pending[block] = true;
+		worklist[worklistSize++] = block;
+	}
+
+	private Map<State, State> buildNewStates() {
+		Map<State, State> newStates = new IdentityHashMap<State, State>();
+		State[] blockStates = new State[blockCount];
+		for (int b = 0; b < blockCount; b++) {
+			blockStates[b] = new State(states[elements[blockStart[b]]].getType());
+		}
+		for (int i = 0; i < states.length; i++) {
+			newStates.put(states[i], blockStates[blockOf[i]]);
+		}
+		boolean[] covered = new boolean[relevant.length];
+		for (int b = 0; b < blockCount; b++) {
+			State newState = blockStates[b];
+			for (int i = blockStart[b]; i < blockEnd[b]; i++) {
+				for (EventTransition transition : states[elements[i]].getEventTransitions()) {
+					int first = firstClass(transition);
+					if (first >= relevant.length || covered[first]) {
+						continue;
+					}
+					int last = lastClass(transition);
+					for (int c = first; c <= last; c++) {
+						covered[c] = true;
+					}
+					Transition cloned = transition.clone(newStates.get(transition.getTarget()));
+					newState.addTransition(cloned);
+				}
+			}
+			for (Transition transition : newState.getTransitions()) {
+				int last = lastClass((EventTransition) transition);
+				for (int c = firstClass((EventTransition) transition); c <= last; c++) {
+					covered[c] = false;
+				}
+			}
+		}
+		return newStates;
+	}
+
+}
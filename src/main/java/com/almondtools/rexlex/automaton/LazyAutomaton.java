@@ -0,0 +1,378 @@
+package com.almondtools.rexlex.automaton;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.almondtools.rexlex.Token;
+import com.almondtools.rexlex.TokenFactory;
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToLazyAutomaton;
+import com.almondtools.rexlex.automaton.GenericAutomaton.EventTransition;
+import com.almondtools.rexlex.automaton.GenericAutomaton.State;
+import com.almondtools.rexlex.pattern.DefaultTokenType;
+import com.almondtools.rexlex.pattern.TokenIterator;
+
+import net.amygdalum.util.builders.Sets;
+import net.amygdalum.util.io.CharProvider;
+
+/**
+ * a deterministic automaton that is constructed on the fly. It keeps the epsilon-free nondeterministic automaton and creates
+ * each deterministic state (a set of nondeterministic states) and each transition only when the input reaches it. The
+ * deterministic states are cached, the cache is flushed if it exceeds the maximum number of states.
+ *
+ * Compiling this automaton is linear in the size of the pattern and the memory is bounded, matching an input that only reaches
+ * few states is as fast as with a {@link TabledAutomaton}. The automaton may be shared between threads, only the construction
+ * of missing states is synchronized.
+ *
+ * In contrast to {@link TabledAutomaton} this automaton does not memoize dead ends for backtracking listeners (states are not
+ * stable when the cache is flushed), lexing with maximal munch may take quadratic time in the worst case.
+ */
+public class LazyAutomaton implements Automaton {
+
+	public static final int DEFAULT_MAX_STATES = 1 << 12;
+
+	static final int ERROR = 0;
+
+	private static final int MIN_STATES = 4;
+	private static final int INITIAL_STATES = 16;
+
+	private GenericAutomaton nfa;
+	private Set<State> live;
+	private TokenType errorType;
+	private CharClassMapper charClassMapper;
+	private int charClassCount;
+	private int maxStates;
+	private int startState;
+
+	private volatile Cache cache;
+	private long flushes;
+
+	/**
+	 * @param nfa an epsilon-free automaton
+	 * @param errorType the type of the error state
+	 * @param maxStates the maximum number of cached states (at least 4)
+	 */
+	LazyAutomaton(GenericAutomaton nfa, TokenType errorType, int maxStates) {
+		this.nfa = nfa;
+		this.live = nfa.findLiveStates();
+		this.errorType = errorType == null ? DefaultTokenType.ERROR : errorType;
+		this.charClassMapper = CharClassMappers.bestFor(nfa.computeRelevantCharacters());
+		this.charClassCount = charClassMapper.indexCount();
+		this.maxStates = Math.max(maxStates, MIN_STATES);
+		this.cache = new Cache(Math.min(INITIAL_STATES, this.maxStates));
+		this.startState = cache.intern(live(Sets.of(nfa.getStart())));
+	}
+
+	private Set<State> live(Set<State> states) {
+		Set<State> liveStates = new HashSet<State>();
+		for (State state : states) {
+			if (live.contains(state)) {
+				liveStates.add(state);
+			}
+		}
+		return liveStates;
+	}
+
+	public int getStartState() {
+		return startState;
+	}
+
+	public int getErrorState() {
+		return ERROR;
+	}
+
+	public CharClassMapper getCharClassMapper() {
+		return charClassMapper;
+	}
+
+	public int getMaxStates() {
+		return maxStates;
+	}
+
+	/**
+	 * @return the number of currently cached states
+	 */
+	public synchronized int getStateCount() {
+		return cache.size();
+	}
+
+	/**
+	 * @return the number of times the cache was flushed because it exceeded the maximum number of states
+	 */
+	public synchronized long getFlushCount() {
+		return flushes;
+	}
+
+	@Override
+	public String getId() {
+		return nfa.getId();
+	}
+
+	@Override
+	public TokenType getErrorType() {
+		return errorType;
+	}
+
+	/**
+	 * computes the property of the nondeterministic automaton, which needs a full subset construction.
+	 */
+	@Override
+	public AutomatonProperty getProperty() {
+		synchronized (this) {
+			return nfa.getProperty();
+		}
+	}
+
+	@Override
+	public Iterable<String> getSamples(int limit) {
+		synchronized (this) {
+			return nfa.getSamples(limit);
+		}
+	}
+
+	@Override
+	public <T extends Token> Iterator<T> tokenize(CharProvider chars, TokenFactory<T> factory) {
+		return new TokenIterator<T>(this, chars, factory);
+	}
+
+	@Override
+	public AutomatonMatcher matcher() {
+		return new Matcher();
+	}
+
+	@Override
+	public LazyAutomaton revert() {
+		synchronized (this) {
+			return nfa.revert().toAutomaton(new ToLazyAutomaton(errorType, maxStates));
+		}
+	}
+
+	@Override
+	public GenericAutomatonExport store(String name) {
+		return nfa.store(name);
+	}
+
+	private synchronized int computeNext(Matcher matcher, int state, int charClass) {
+		Set<State> from = matcher.cache.get(state);
+		Set<State> to = new HashSet<State>();
+		char representative = charClassMapper.representative(charClass);
+		for (State current : from) {
+			for (EventTransition transition : current.nexts(representative)) {
+				State target = transition.getTarget();
+				if (live.contains(target)) {
+					to.add(target);
+				}
+			}
+		}
+		Cache current = cache;
+		if (current.size() + 2 > current.capacity()) {
+			if (current.capacity() < maxStates) {
+				current = new Cache(current, Math.min(current.capacity() * 2, maxStates));
+			} else {
+				current = new Cache(maxStates);
+				current.intern(live(Sets.of(nfa.getStart())));
+				flushes++;
+			}
+			cache = current;
+		}
+		int fromState = current.intern(from);
+		int toState = current.intern(to);
+		current.link(fromState, charClass, toState);
+		matcher.cache = current;
+		return toState;
+	}
+
+	/**
+	 * the states and transitions constructed so far. States and accept types are only added under the lock of the automaton,
+	 * the transitions are published (after the target state) through an atomic array, so matchers may read them without lock.
+	 * A flushed or grown cache is replaced, matchers switch to the new cache on their next miss.
+	 */
+	private class Cache {
+
+		private Map<Set<State>, Integer> ids;
+		private List<Set<State>> states;
+		private TokenType[] accept;
+		private AtomicIntegerArray transitions; // #states x #character classes (target + 1, 0 = not yet computed)
+
+		public Cache(int capacity) {
+			this.ids = new HashMap<Set<State>, Integer>();
+			this.states = new ArrayList<Set<State>>(capacity);
+			this.accept = new TokenType[capacity];
+			this.transitions = new AtomicIntegerArray(capacity * charClassCount);
+			intern(new HashSet<State>());
+		}
+
+		public Cache(Cache cache, int capacity) {
+			this.ids = new HashMap<Set<State>, Integer>(cache.ids);
+			this.states = new ArrayList<Set<State>>(capacity);
+			this.states.addAll(cache.states);
+			this.accept = new TokenType[capacity];
+			System.arraycopy(cache.accept, 0, accept, 0, cache.accept.length);
+			this.transitions = new AtomicIntegerArray(capacity * charClassCount);
+			for (int i = 0; i < cache.transitions.length(); i++) {
+				transitions.set(i, cache.transitions.get(i));
+			}
+		}
+
+		public int size() {
+			return states.size();
+		}
+
+		public int capacity() {
+			return accept.length;
+		}
+
+		public Set<State> get(int state) {
+			return states.get(state);
+		}
+
+		public int intern(Set<State> set) {
+			Integer state = ids.get(set);
+			if (state != null) {
+				return state;
+			}
+			int newState = states.size();
+			ids.put(set, newState);
+			states.add(set);
+			if (set.isEmpty()) {
+				accept[newState] = errorType;
+				for (int i = 0; i < charClassCount; i++) {
+					link(newState, i, ERROR);
+				}
+			} else {
+				accept[newState] = nfa.jointTypeOf(set);
+			}
+			return newState;
+		}
+
+		public void link(int state, int charClass, int target) {
+			transitions.set(state * charClassCount + charClass, target + 1);
+		}
+
+		public int next(int state, int charClass) {
+			return transitions.get(state * charClassCount + charClass) - 1;
+		}
+
+		public TokenType getType(int state) {
+			return accept[state];
+		}
+
+	}
+
+	class Matcher implements AutomatonMatcher {
+
+		private AutomatonMatcherListener listener;
+
+		private CharProvider chars;
+		private long matchStart;
+
+		private Cache cache;
+		private int start;
+		private int state;
+
+		public Matcher() {
+			this.listener = new BaseListener();
+			this.cache = LazyAutomaton.this.cache;
+			this.start = startState;
+			this.state = -1;
+		}
+
+		@Override
+		public Matcher withListener(AutomatonMatcherListener listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		@Override
+		public AutomatonMatcherListener applyTo(CharProvider chars) {
+			this.chars = chars;
+			resume(chars, start, chars.current());
+			return listener;
+		}
+
+		@Override
+		public boolean isSuspended() {
+			return state != -1 && chars != null;
+		}
+
+		@Override
+		public AutomatonMatcherListener resume() {
+			resume(chars, state, matchStart);
+			return listener;
+		}
+
+		private int next(int state, char ch) {
+			int charClass = charClassMapper.getIndex(ch);
+			int next = cache.next(state, charClass);
+			if (next < 0) {
+				return computeNext(this, state, charClass);
+			}
+			return next;
+		}
+
+		private void resume(CharProvider chars, int state, long matchStart) {
+			if (state == -1) {
+				return;
+			}
+			while (true) {
+				if (state == ERROR) {
+					boolean suspend = listener.recoverMismatch(chars, matchStart);
+					state = startState;
+					matchStart = chars.current();
+					if (suspend) {
+						this.matchStart = matchStart;
+						this.state = state;
+						return;
+					}
+					if (chars.finished()) {
+						this.state = -1;
+						return;
+					}
+				} else {
+					TokenType accept = cache.getType(state);
+					if (accept != null && accept.accept()) {
+						chars.mark();
+						boolean suspend = listener.reportMatch(chars, matchStart, accept);
+						if (chars.changed()) {
+							state = start;
+						}
+						if (chars.finished()) {
+							this.state = -1;
+							return;
+						}
+						state = next(state, chars.next());
+						if (suspend) {
+							this.matchStart = matchStart;
+							this.state = state;
+							return;
+						}
+					} else if (chars.finished()) {
+						boolean suspend = listener.recoverMismatch(chars, matchStart);
+						state = startState;
+						matchStart = chars.current();
+						if (suspend) {
+							this.matchStart = matchStart;
+							this.state = state;
+							return;
+						}
+						if (chars.finished()) {
+							this.state = -1;
+							return;
+						}
+					} else {
+						state = next(state, chars.next());
+					}
+
+				}
+			}
+		}
+
+	}
+
+}
@@ -8,10 +8,17 @@ import java.util.List;
 public final class LowByteCharClassMapper implements CharClassMapper {
 
 	private char[] chars;
+	private int highbyte;
+	private int last;
 	private int[] lowbyte;
 
+	/**
+	 * @param chars the relevant chars, all sharing the same high byte
+	 */
 	public LowByteCharClassMapper(char[] chars) {
 		this.chars = chars;
+		this.highbyte = chars.length > 0 ? chars[0] & 0xff00 : 0;
+		this.last = chars.length > 0 ? chars.length - 1 : 0;
 		this.lowbyte = computeLowByte(chars);
 	}
 
@@ -35,9 +42,19 @@ public final class LowByteCharClassMapper implements CharClassMapper {
 		return lowbytes;
 	}
 
+	/**
+	 * maps chars with the high byte of the relevant chars by one lookup (for relevant chars below 0x100 this is the ascii fast
+	 * path), all other chars are below or above all relevant chars.
+	 */
 	public int getIndex(char ch) {
-		int l = ch & 0xff;
-		return lowbyte[l];
+		int h = ch & 0xff00;
+		if (h == highbyte) {
+			return lowbyte[ch & 0xff];
+		} else if (h < highbyte) {
+			return 0;
+		} else {
+			return last;
+		}
 	}
 
 	public char[] getRelevantChars() {
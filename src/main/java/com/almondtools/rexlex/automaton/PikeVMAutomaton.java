@@ -0,0 +1,357 @@
+package com.almondtools.rexlex.automaton;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.almondtools.rexlex.Token;
+import com.almondtools.rexlex.TokenFactory;
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToCompactGenericAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToPikeVMAutomaton;
+import com.almondtools.rexlex.automaton.GenericAutomaton.EventTransition;
+import com.almondtools.rexlex.automaton.GenericAutomaton.EventlessTransition;
+import com.almondtools.rexlex.automaton.GenericAutomaton.State;
+import com.almondtools.rexlex.automaton.GenericAutomaton.Transition;
+import com.almondtools.rexlex.pattern.DefaultTokenType;
+import com.almondtools.rexlex.pattern.TokenIterator;
+
+import net.amygdalum.util.io.CharProvider;
+
+/**
+ * simulates a nondeterministic automaton (e.g. a thompson automaton, with epsilon transitions) without backtracking (Pike VM).
+ * The active states (threads) are kept in sparse sets, each char is applied to all threads at once, such that matching takes
+ * O(n*m) time and O(m) memory (m = number of states) - independent of the pattern. The automaton is not determinized, so compiling
+ * is linear in the size of the nondeterministic automaton.
+ *
+ * The matches (leftmost-longest) are the same as with a {@link TabledAutomaton}.
+ */
+public class PikeVMAutomaton implements Automaton {
+
+	private GenericAutomaton nfa;
+	private GenericAutomaton compact;
+	private TokenType errorType;
+	private int startState;
+	private TokenType[] types; // #states
+	private long[] typeBits; // #states (one bit per distinct type, 0 if the state has no type)
+	private int[][] epsilons; // #states x #epsilon transitions (target)
+	private char[][] froms; // #states x #event transitions (lower bound)
+	private char[][] tos; // #states x #event transitions (upper bound)
+	private int[][] targets; // #states x #event transitions (target)
+
+	/**
+	 * @param nfa a nondeterministic automaton (may contain epsilon transitions)
+	 * @param errorType the type of the error state
+	 */
+	PikeVMAutomaton(GenericAutomaton nfa, TokenType errorType) {
+		this.nfa = nfa;
+		this.errorType = errorType == null ? DefaultTokenType.ERROR : errorType;
+		initTables();
+	}
+
+	private void initTables() {
+		Set<State> live = nfa.findLiveStates();
+		Map<State, Integer> index = new IdentityHashMap<State, Integer>();
+		List<State> states = new ArrayList<State>(live);
+		for (State state : states) {
+			index.put(state, index.size());
+		}
+		int stateCount = states.size();
+		types = new TokenType[stateCount];
+		typeBits = new long[stateCount];
+		Map<TokenType, Long> distinctTypes = new IdentityHashMap<TokenType, Long>();
+		epsilons = new int[stateCount][];
+		froms = new char[stateCount][];
+		tos = new char[stateCount][];
+		targets = new int[stateCount][];
+		for (State state : states) {
+			int i = index.get(state);
+			types[i] = state.getType();
+			typeBits[i] = typeBitOf(distinctTypes, types[i]);
+			List<Integer> epsilonTargets = new ArrayList<Integer>();
+			List<EventTransition> events = new ArrayList<EventTransition>();
+			for (Transition transition : state.getTransitions()) {
+				Integer target = index.get(transition.getTarget());
+				if (target == null) {
+					continue;
+				} else if (transition instanceof EventlessTransition) {
+					epsilonTargets.add(target);
+				} else if (transition instanceof EventTransition) {
+					events.add((EventTransition) transition);
+				}
+			}
+			epsilons[i] = new int[epsilonTargets.size()];
+			for (int j = 0; j < epsilons[i].length; j++) {
+				epsilons[i][j] = epsilonTargets.get(j);
+			}
+			froms[i] = new char[events.size()];
+			tos[i] = new char[events.size()];
+			targets[i] = new int[events.size()];
+			for (int j = 0; j < events.size(); j++) {
+				EventTransition event = events.get(j);
+				froms[i][j] = event.getFrom();
+				tos[i][j] = event.getTo();
+				targets[i][j] = index.get(event.getTarget());
+			}
+		}
+		Integer start = index.get(nfa.getStart());
+		startState = start == null ? -1 : start;
+	}
+
+	/**
+	 * each distinct type is merged only once into the joint type of the threads (as in the subset construction, where the types of
+	 * states reached by epsilon transitions are merged before). Types beyond the 63rd share the highest bit and are merged each time.
+	 */
+	private static long typeBitOf(Map<TokenType, Long> distinctTypes, TokenType type) {
+		if (type == null) {
+			return 0l;
+		}
+		Long bit = distinctTypes.get(type);
+		if (bit == null) {
+			bit = distinctTypes.size() < 63 ? 1l << distinctTypes.size() : 1l << 63;
+			distinctTypes.put(type, bit);
+		}
+		return bit;
+	}
+
+	public int getStateCount() {
+		return types.length;
+	}
+
+	@Override
+	public String getId() {
+		return nfa.getId();
+	}
+
+	@Override
+	public TokenType getErrorType() {
+		return errorType;
+	}
+
+	@Override
+	public AutomatonProperty getProperty() {
+		return compact().getProperty();
+	}
+
+	@Override
+	public Iterable<String> getSamples(int limit) {
+		return compact().getSamples(limit);
+	}
+
+	private synchronized GenericAutomaton compact() {
+		if (compact == null) {
+			compact = nfa.toAutomaton(new ToCompactGenericAutomaton());
+		}
+		return compact;
+	}
+
+	@Override
+	public <T extends Token> Iterator<T> tokenize(CharProvider chars, TokenFactory<T> factory) {
+		return new TokenIterator<T>(this, chars, factory);
+	}
+
+	@Override
+	public AutomatonMatcher matcher() {
+		return new Matcher();
+	}
+
+	@Override
+	public PikeVMAutomaton revert() {
+		return nfa.revert().toAutomaton(new ToPikeVMAutomaton(errorType));
+	}
+
+	@Override
+	public GenericAutomatonExport store(String name) {
+		return nfa.store(name);
+	}
+
+	/**
+	 * a sparse set of states (threads), clearing and adding states is O(1), the joint type of the states is computed on adding.
+	 */
+	private class Threads {
+
+		private int[] dense;
+		private int[] sparse;
+		private int size;
+		private TokenType type;
+		private long typeMask;
+
+		public Threads(int stateCount) {
+			this.dense = new int[stateCount];
+			this.sparse = new int[stateCount];
+		}
+
+		public boolean contains(int state) {
+			int i = sparse[state];
+			return i < size && dense[i] == state;
+		}
+
+		public boolean add(int state) {
+			if (contains(state)) {
+				return false;
+			}
+			sparse[state] = size;
+			dense[size] = state;
+			size++;
+			long typeBit = typeBits[state];
+			if ((typeMask & typeBit) != typeBit || typeBit == 1l << 63) {
+				typeMask |= typeBit;
+				type = nfa.jointTypeOf(type, types[state]);
+			}
+			return true;
+		}
+
+		public void clear() {
+			size = 0;
+			type = null;
+			typeMask = 0l;
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+	}
+
+	class Matcher implements AutomatonMatcher {
+
+		private AutomatonMatcherListener listener;
+
+		private CharProvider chars;
+		private long matchStart;
+
+		private Threads current;
+		private Threads next;
+		private int[] stack;
+		private boolean active;
+
+		public Matcher() {
+			this.listener = new BaseListener();
+			this.current = new Threads(types.length);
+			this.next = new Threads(types.length);
+			this.stack = new int[types.length];
+		}
+
+		@Override
+		public Matcher withListener(AutomatonMatcherListener listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		@Override
+		public AutomatonMatcherListener applyTo(CharProvider chars) {
+			this.chars = chars;
+			this.active = true;
+			restart();
+			resume(chars, chars.current());
+			return listener;
+		}
+
+		@Override
+		public boolean isSuspended() {
+			return active && chars != null;
+		}
+
+		@Override
+		public AutomatonMatcherListener resume() {
+			if (active) {
+				resume(chars, matchStart);
+			}
+			return listener;
+		}
+
+		private void restart() {
+			current.clear();
+			if (startState >= 0) {
+				addClosure(current, startState);
+			}
+		}
+
+		private void step(char ch) {
+			next.clear();
+			for (int i = 0; i < current.size; i++) {
+				int state = current.dense[i];
+				char[] from = froms[state];
+				char[] to = tos[state];
+				for (int j = 0; j < from.length; j++) {
+					if (ch >= from[j] && ch <= to[j]) {
+						addClosure(next, targets[state][j]);
+					}
+				}
+			}
+			Threads swap = current;
+			current = next;
+			next = swap;
+		}
+
+		private void addClosure(Threads threads, int state) {
+			int top = 0;
+			if (threads.add(state)) {
+				stack[top++] = state;
+			}
+			while (top > 0) {
+				int[] epsilonTargets = epsilons[stack[--top]];
+				for (int target : epsilonTargets) {
+					if (threads.add(target)) {
+						stack[top++] = target;
+					}
+				}
+			}
+		}
+
+		private void resume(CharProvider chars, long matchStart) {
+			while (true) {
+				if (current.isEmpty()) {
+					boolean suspend = listener.recoverMismatch(chars, matchStart);
+					restart();
+					matchStart = chars.current();
+					if (suspend) {
+						this.matchStart = matchStart;
+						return;
+					}
+					if (chars.finished()) {
+						this.active = false;
+						return;
+					}
+				} else {
+					TokenType accept = current.type;
+					if (accept != null && accept.accept()) {
+						chars.mark();
+						boolean suspend = listener.reportMatch(chars, matchStart, accept);
+						if (chars.changed()) {
+							restart();
+						}
+						if (chars.finished()) {
+							this.active = false;
+							return;
+						}
+						step(chars.next());
+						if (suspend) {
+							this.matchStart = matchStart;
+							return;
+						}
+					} else if (chars.finished()) {
+						boolean suspend = listener.recoverMismatch(chars, matchStart);
+						restart();
+						matchStart = chars.current();
+						if (suspend) {
+							this.matchStart = matchStart;
+							return;
+						}
+						if (chars.finished()) {
+							this.active = false;
+							return;
+						}
+					} else {
+						step(chars.next());
+					}
+				}
+			}
+		}
+
+	}
+
+}
@@ -7,7 +7,10 @@ import java.util.List;
 
 public final class SmallRangeCharClassMapper implements CharClassMapper {
 	
+	private static final int ASCII = 0x80;
+
 	private char[] chars;
+	private int[] ascii;
 	private char lowerBound;
 	private int min;
 	private char upperBound;
@@ -21,6 +24,15 @@ public final class SmallRangeCharClassMapper implements CharClassMapper {
 		this.min = 0;
 		this.max = chars.length <= 1 ? 0 : chars.length - 1;  
 		this.charToClass = computeCharClasses(chars);
+		this.ascii = computeAscii();
+	}
+
+	private int[] computeAscii() {
+		int[] ascii = new int[ASCII];
+		for (char c = 0; c < ASCII; c++) {
+			ascii[c] = map(c);
+		}
+		return ascii;
 	}
 
 
@@ -42,7 +54,14 @@ public final class SmallRangeCharClassMapper implements CharClassMapper {
 
 	@Override
 	public int getIndex(char ch) {
-		if (ch < lowerBound) {
+		if (ch < ASCII) {
+			return ascii[ch];
+		}
+		return map(ch);
+	}
+
+	private int map(char ch) {
+		if (ch < lowerBound || max == min) {
 			return min;
 		} else if (ch > upperBound) {
 			return max;
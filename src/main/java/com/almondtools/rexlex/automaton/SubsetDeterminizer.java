@@ -0,0 +1,273 @@
+package com.almondtools.rexlex.automaton;
+
+import static net.amygdalum.util.text.CharUtils.before;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.GenericAutomaton.EventTransition;
+import com.almondtools.rexlex.automaton.GenericAutomaton.ExactTransition;
+import com.almondtools.rexlex.automaton.GenericAutomaton.RangeTransition;
+import com.almondtools.rexlex.automaton.GenericAutomaton.State;
+
+/**
+ * determinizes an epsilon-free automaton with the subset construction on integer-indexed states. Each subset is a sorted array of
+ * state numbers, interned in an open addressing table (looked up without copying). The transitions of each state are precomputed
+ * as ranges of character classes, such that the successors of a subset are collected for all character classes in one pass.
+ */
+class SubsetDeterminizer {
+
+	private static final int ABORT = -1;
+
+	private GenericAutomaton nfa;
+	private CompileStatistics statistics;
+	private State[] states;
+	private char[] relevant;
+
+	private int[][] firstClasses; // #states x #transitions (first character class)
+	private int[][] lastClasses; // #states x #transitions (last character class)
+	private int[][] targets; // #states x #transitions (target state)
+
+	private List<int[]> subsets; // #subsets (sorted states)
+	private int[] hashes; // #subsets
+	private int[] table; // open addressing (subset + 1, 0 = empty)
+	private int maxSubsets;
+
+	/**
+	 * @param nfa an epsilon-free automaton
+	 * @param statistics the statistics of a compilation with budget, or null
+	 */
+	SubsetDeterminizer(GenericAutomaton nfa, CompileStatistics statistics) {
+		this.nfa = nfa;
+		this.statistics = statistics;
+		this.states = nfa.findAllStates().toArray(new State[0]);
+		this.relevant = nfa.computeRelevantCharacters();
+		initTransitions();
+	}
+
+	private void initTransitions() {
+		Map<State, Integer> index = new IdentityHashMap<State, Integer>();
+		for (int i = 0; i < states.length; i++) {
+			index.put(states[i], i);
+		}
+		firstClasses = new int[states.length][];
+		lastClasses = new int[states.length][];
+		targets = new int[states.length][];
+		for (int i = 0; i < states.length; i++) {
+			List<EventTransition> transitions = states[i].getNextClosure();
+			firstClasses[i] = new int[transitions.size()];
+			lastClasses[i] = new int[transitions.size()];
+			targets[i] = new int[transitions.size()];
+			for (int j = 0; j < transitions.size(); j++) {
+				EventTransition transition = transitions.get(j);
+				firstClasses[i][j] = firstClass(transition.getFrom());
+				lastClasses[i][j] = lastClass(transition.getTo());
+				targets[i][j] = index.get(transition.getTarget());
+			}
+		}
+	}
+
+	private int firstClass(char from) {
+		int pos = Arrays.binarySearch(relevant, from);
+		return pos >= 0 ? pos : -pos - 1;
+	}
+
+	private int lastClass(char to) {
+		int pos = Arrays.binarySearch(relevant, to);
+		return pos >= 0 ? pos : -pos - 2;
+	}
+
+	/**
+	 * @param maxStates the maximum number of deterministic states
+	 * @return the start state of the deterministic automaton or null if it would have more than the given number of states
+	 */
+	State determinize(int maxStates) {
+		int classCount = relevant.length;
+		this.subsets = new ArrayList<int[]>();
+		this.hashes = new int[16];
+		this.table = new int[32];
+		this.maxSubsets = maxStates;
+
+		int start = intern(new int[] { indexOf(nfa.getStart()) }, 0, 1);
+		if (start == ABORT) {
+			return null;
+		}
+		List<int[]> transitions = new ArrayList<int[]>();
+		int[] classSize = new int[classCount];
+		int[] classEnd = new int[classCount];
+		int[] buffer = new int[16];
+		for (int current = 0; current < subsets.size(); current++) {
+			int[] subset = subsets.get(current);
+			int size = 0;
+			for (int state : subset) {
+				int[] first = firstClasses[state];
+				int[] last = lastClasses[state];
+				for (int j = 0; j < first.length; j++) {
+					for (int c = first[j]; c <= last[j]; c++) {
+						classSize[c]++;
+					}
+					size += last[j] - first[j] + 1;
+				}
+			}
+			if (buffer.length < size) {
+				buffer = new int[Math.max(size, buffer.length * 2)];
+			}
+			int offset = 0;
+			for (int c = 0; c < classCount; c++) {
+				offset += classSize[c];
+				classEnd[c] = offset - classSize[c];
+			}
+			for (int state : subset) {
+				int[] first = firstClasses[state];
+				int[] last = lastClasses[state];
+				int[] target = targets[state];
+				for (int j = 0; j < first.length; j++) {
+					for (int c = first[j]; c <= last[j]; c++) {
+						buffer[classEnd[c]++] = target[j];
+					}
+				}
+			}
+
+			int[] next = new int[classCount];
+			int prevStart = 0;
+			int prevEnd = 0;
+			for (int c = 0; c < classCount; c++) {
+				int end = classEnd[c];
+				int begin = end - classSize[c];
+				end = sortDistinct(buffer, begin, end);
+				if (c > 0 && equal(buffer, prevStart, prevEnd, buffer, begin, end)) {
+					next[c] = next[c - 1];
+				} else {
+					next[c] = intern(buffer, begin, end);
+					if (next[c] == ABORT) {
+						return null;
+					}
+				}
+				prevStart = begin;
+				prevEnd = end;
+				classSize[c] = 0;
+			}
+			transitions.add(next);
+		}
+		return buildStates(transitions)[start];
+	}
+
+	private int indexOf(State state) {
+		for (int i = 0; i < states.length; i++) {
+			if (states[i] == state) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("start state not found");
+	}
+
+	private static int sortDistinct(int[] buffer, int begin, int end) {
+		if (end - begin < 2) {
+			return end;
+		}
+		Arrays.sort(buffer, begin, end);
+		int distinct = begin + 1;
+		for (int i = begin + 1; i < end; i++) {
+			if (buffer[i] != buffer[distinct - 1]) {
+				buffer[distinct++] = buffer[i];
+			}
+		}
+		return distinct;
+	}
+
+	private static int hash(int[] buffer, int begin, int end) {
+		int hash = 1;
+		for (int i = begin; i < end; i++) {
+			hash = 31 * hash + buffer[i];
+		}
+		hash *= 0x9e3779b9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * @return the number of the subset (creating it if it is not yet known) or ABORT if there are too many subsets
+	 */
+	private int intern(int[] buffer, int begin, int end) {
+		int hash = hash(buffer, begin, end);
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		while (table[slot] != 0) {
+			int subset = table[slot] - 1;
+			int[] key = subsets.get(subset);
+			if (hashes[subset] == hash && equal(key, 0, key.length, buffer, begin, end)) {
+				return subset;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int subset = subsets.size();
+		if (subset >= maxSubsets) {
+			return ABORT;
+		}
+		subsets.add(Arrays.copyOfRange(buffer, begin, end));
+		if (subset >= hashes.length) {
+			hashes = Arrays.copyOf(hashes, hashes.length * 2);
+		}
+		hashes[subset] = hash;
+		table[slot] = subset + 1;
+		if (statistics != null) {
+			statistics.countStates(subsets.size());
+		}
+		if (subsets.size() * 2 > table.length) {
+			rehash();
+		}
+		return subset;
+	}
+
+	private static boolean equal(int[] key, int begin1, int end1, int[] buffer, int begin2, int end2) {
+		if (end1 - begin1 != end2 - begin2) {
+			return false;
+		}
+		for (int i = begin1, j = begin2; i < end1; i++, j++) {
+			if (key[i] != buffer[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void rehash() {
+		table = new int[table.length * 2];
+		int mask = table.length - 1;
+		for (int subset = 0; subset < subsets.size(); subset++) {
+			int slot = hashes[subset] & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = subset + 1;
+		}
+	}
+
+	private State[] buildStates(List<int[]> transitions) {
+		State[] newStates = new State[subsets.size()];
+		for (int i = 0; i < newStates.length; i++) {
+			TokenType type = null;
+			for (int state : subsets.get(i)) {
+				type = nfa.jointTypeOf(type, states[state].getType());
+			}
+			newStates[i] = new State(type);
+		}
+		for (int i = 0; i < newStates.length; i++) {
+			int[] next = transitions.get(i);
+			for (int c = 0; c < next.length; c++) {
+				char from = relevant[c];
+				char to = c + 1 < relevant.length ? before(relevant[c + 1]) : Character.MAX_VALUE;
+				if (from == to) {
+					newStates[i].addTransition(new ExactTransition(from, newStates[next[c]]));
+				} else {
+					newStates[i].addTransition(new RangeTransition(from, to, newStates[next[c]]));
+				}
+			}
+		}
+		return newStates;
+	}
+
+}
@@ -37,10 +37,23 @@ public class TabledAutomaton implements Automaton {
 	static final int START = 0;
 	static final int ERROR = 1;
 
+	private static final int ASCII = 0x80;
+	private static final int LATIN1 = 0x100;
+	private static final int MAX_FUSED_CELLS = 1 << 16;
+	private static final int MIN_DEAD_END_LENGTH = 128;
+
+	private static final byte ACCEPTING = 1;
+	private static final byte FAILING = 2;
+
 	private int startState;
 	private CharClassMapper charClassMapper;
+	private int[] asciiClasses; // 0x80 (char class of each ascii char, bypassing the char class mapper)
+	private char[] fused; // #states x 0x80 or 0x100 (target of each char below fusedWidth, bypassing the char classes), or null
+	private int fusedShift;
+	private int fusedWidth;
 	private TokenType[] accept; // #states
-	private int[] transitions; // #states x #character classes (0 = start, 1 = error)
+	private byte[] flags; // #states (ACCEPTING, FAILING or 0 if the matcher may proceed without notifying the listener)
+	private TransitionTable transitions; // #states x #character classes (0 = start, 1 = error)
 
 	private AutomatonProperty property;
 	private int charClassCount;
@@ -50,11 +63,30 @@ public class TabledAutomaton implements Automaton {
 	}
 	
 	public TabledAutomaton(char[] relevantChars, State start, State error, AutomatonProperty property) {
+		this(relevantChars, start, error, property, null);
+	}
+
+	/**
+	 * @param statistics the statistics of a compilation with budget (checked before the tables are allocated), or null
+	 */
+	TabledAutomaton(char[] relevantChars, State start, State error, AutomatonProperty property, CompileStatistics statistics) {
 		this.startState = computeStartState(start, error);
 		this.charClassMapper = CharClassMappers.bestFor(relevantChars);
 		this.property = property;
 		this.charClassCount = relevantChars.length;
-		initTables(start, error);
+		initTables(start, error, statistics);
+	}
+
+	/**
+	 * creates an automaton from its tables (as stored by {@link TabledAutomatonBinaryExport}), without checking them.
+	 */
+	TabledAutomaton(int startState, char[] relevantChars, TokenType[] accept, int[] transitions, AutomatonProperty property) {
+		this.startState = startState;
+		this.charClassMapper = CharClassMappers.bestFor(relevantChars);
+		this.accept = accept;
+		this.property = property;
+		this.charClassCount = relevantChars.length;
+		initTransitions(relevantChars, transitions);
 	}
 
 	private int computeStartState(State start, State error) {
@@ -65,7 +97,7 @@ public class TabledAutomaton implements Automaton {
 		}
 	}
 
-	int getStartState() {
+	public int getStartState() {
 		return startState;
 	}
 
@@ -74,11 +106,36 @@ public class TabledAutomaton implements Automaton {
 	}
 
 	int[] getTransitions() {
+		return transitions.toArray(accept.length);
+	}
+
+	TransitionTable getTransitionTable() {
 		return transitions;
 	}
 
 	int getTarget(int state, int i) {
-		return transitions[state * charClassCount + i];
+		return transitions.target(state, i);
+	}
+
+	/**
+	 * @return the layout of the transition table (the smallest of dense, deduplicated rows and comb-vector, optionally with a fused
+	 * table of the chars below 0x80/0x100)
+	 */
+	public String getTableLayout() {
+		if (fused != null) {
+			return "fused " + fusedWidth + " chars, " + transitions.layout();
+		}
+		return transitions.layout();
+	}
+
+	/**
+	 * @return the (approximate) size of the transition table in bytes
+	 */
+	public long getTableSize() {
+		if (fused != null) {
+			return 2l * fused.length + transitions.size();
+		}
+		return transitions.size();
 	}
 
 	public TokenType[] getAccept() {
@@ -97,34 +154,133 @@ public class TabledAutomaton implements Automaton {
 		return charClassCount;
 	}
 
-	private void initTables(State start, State error) {
+	private void initTables(State start, State error, CompileStatistics statistics) {
 		Set<State> states = start.findReachableStates();
 		states.add(error); // does only change if error is not reachable
 		Map<State, Integer> statesToIndex = new IdentityHashMap<State, Integer>();
 		int statesCount = states.size();
+		if (statistics != null) {
+			statistics.enter("tables");
+			statistics.countStates(statesCount);
+			statistics.countCells((long) statesCount * charClassCount);
+		}
 		accept = new TokenType[statesCount];
-		transitions = new int[statesCount * charClassCount];
+		int[] transitions = new int[statesCount * charClassCount];
 
 		states.remove(start);
 		states.remove(error);
 
 		if (start == error) {
 			createRowIndex(statesToIndex, error, START);
-			initRow(statesToIndex, error);
+			initRow(statesToIndex, error, transitions);
 		} else {
 			createRowIndex(statesToIndex, start, START);
 			createRowIndex(statesToIndex, error, ERROR);
 
-			initRow(statesToIndex, start);
-			initRow(statesToIndex, error);
+			initRow(statesToIndex, start, transitions);
+			initRow(statesToIndex, error, transitions);
 		}
 
 		for (State state : states) {
-			initRow(statesToIndex, state);
+			initRow(statesToIndex, state, transitions);
 		}
+		initTransitions(charClassMapper.getRelevantChars(), transitions);
+	}
+
+	/**
+	 * merges adjacent char classes that are not distinguished by any state (i.e. have identical columns), then compresses the
+	 * transitions.
+	 */
+	private void initTransitions(char[] relevantChars, int[] transitions) {
+		int stateCount = accept.length;
+		int[] columns = new int[charClassCount]; // merged column of each column
+		int mergedCount = 0;
+		for (int i = 0; i < charClassCount; i++) {
+			if (i > 0 && sameColumns(transitions, stateCount, i - 1, i)) {
+				columns[i] = mergedCount - 1;
+			} else {
+				columns[i] = mergedCount++;
+			}
+		}
+		if (mergedCount < charClassCount) {
+			char[] mergedChars = new char[mergedCount];
+			int[] mergedTransitions = new int[stateCount * mergedCount];
+			for (int i = 0; i < charClassCount; i++) {
+				if (i == 0 || columns[i] != columns[i - 1]) {
+					int column = columns[i];
+					mergedChars[column] = relevantChars[i];
+					for (int state = 0; state < stateCount; state++) {
+						mergedTransitions[state * mergedCount + column] = transitions[state * charClassCount + i];
+					}
+				}
+			}
+			this.charClassMapper = CharClassMappers.bestFor(mergedChars);
+			this.charClassCount = mergedCount;
+			transitions = mergedTransitions;
+		}
+		this.transitions = TransitionTable.compress(transitions, charClassCount);
+		this.asciiClasses = computeAsciiClasses();
+		this.flags = computeFlags();
+		initFused();
 	}
 
-	private void initRow(Map<State, Integer> statesToIndex, State state) {
+	private byte[] computeFlags() {
+		byte[] flags = new byte[Math.max(accept.length, ERROR + 1)]; // the error state may be the start state without a row of its own
+		for (int state = 0; state < accept.length; state++) {
+			if (accept[state] != null && accept[state].accept()) {
+				flags[state] |= ACCEPTING;
+			}
+		}
+		flags[ERROR] |= FAILING;
+		return flags;
+	}
+
+	/**
+	 * builds a table indexed directly by state and char if all relevant chars are below 0x80 (or 0x100) and the automaton is small,
+	 * such that these chars do not need to be mapped to char classes.
+	 */
+	private void initFused() {
+		char[] relevantChars = charClassMapper.getRelevantChars();
+		int stateCount = accept.length;
+		if (relevantChars.length == 0) {
+			return;
+		}
+		char last = relevantChars[relevantChars.length - 1];
+		int shift = last < ASCII ? 7 : last < LATIN1 ? 8 : -1;
+		if (shift < 0 || (long) stateCount << shift > MAX_FUSED_CELLS) {
+			return;
+		}
+		int width = 1 << shift;
+		char[] fused = new char[stateCount << shift];
+		for (int state = 0; state < stateCount; state++) {
+			for (char c = 0; c < width; c++) {
+				fused[state << shift | c] = (char) transitions.target(state, charClassMapper.getIndex(c));
+			}
+		}
+		this.fused = fused;
+		this.fusedShift = shift;
+		this.fusedWidth = width;
+	}
+
+	private int[] computeAsciiClasses() {
+		int[] asciiClasses = new int[ASCII];
+		for (char c = 0; c < ASCII; c++) {
+			asciiClasses[c] = charClassMapper.getIndex(c);
+		}
+		return asciiClasses;
+	}
+
+	private boolean sameColumns(int[] transitions, int stateCount, int column1, int column2) {
+		for (int state = 0; state < stateCount; state++) {
+			int row = state * charClassCount;
+			if (transitions[row + column1] != transitions[row + column2]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void initRow(Map<State, Integer> statesToIndex, State state, int[] transitions) {
 		Integer rowIndex = fetchRowIndex(statesToIndex, state);
 		int from = rowIndex * charClassCount;
 		int to = from + charClassCount;
@@ -184,11 +340,9 @@ public class TabledAutomaton implements Automaton {
 		loop: while (!nexts.isEmpty()) {
 			int next = nexts.remove(0);
 			visited.add(next);
-			int from = next * charClassCount;
-			int to = from + charClassCount;
 			int validTargets = 0;
-			for (int i = from; i < to; i++) {
-				int target = transitions[i];
+			for (int i = 0; i < charClassCount; i++) {
+				int target = transitions.target(next, i);
 				if (target != ERROR) {
 					validTargets++;
 					if (validTargets > 1) {
@@ -223,15 +377,13 @@ public class TabledAutomaton implements Automaton {
 			if (next == to) {
 				return paths.get(next);
 			}
-			int ifrom = next * charClassCount;
-			int ito = ifrom + charClassCount;
-			for (int i = ifrom; i < ito; i++) {
-				int target = transitions[i];
+			for (int i = 0; i < charClassCount; i++) {
+				int target = transitions.target(next, i);
 				if (!paths.containsKey(target)) {
 					List<Integer> base = paths.get(next);
 					List<Integer> path = new ArrayList<Integer>(base.size() + 1);
 					path.addAll(base);
-					path.add(i - ifrom);
+					path.add(i);
 					paths.put(target, path);
 					nexts.add(target);
 				}
@@ -271,18 +423,28 @@ public class TabledAutomaton implements Automaton {
 	}
 
 	private int next(int current, int charClass) {
-		return transitions[current * charClassCount + charClass];
+		return transitions.target(current, charClass);
 	}
 
 	public int next(int current, char ch) {
-		int charClass = charClassMapper.getIndex(ch);
-		return transitions[current * charClassCount + charClass];
+		if (ch < fusedWidth) {
+			return fused[current << fusedShift | ch];
+		}
+		int charClass = ch < ASCII ? asciiClasses[ch] : charClassMapper.getIndex(ch);
+		return transitions.target(current, charClass);
 	}
 
 	public TokenType getType(int state) {
 		return accept[state];
 	}
 
+	/**
+	 * @return a scanner determining the longest matches of this (anchored) automaton at given starts of the text
+	 */
+	public LongestMatches longestMatches(String text) {
+		return new LongestMatches(text);
+	}
+
 	@Override
 	public <T extends Token> Iterator<T> tokenize(CharProvider chars, TokenFactory<T> factory) {
 		return new TokenIterator<T>(this, chars, factory);
@@ -302,6 +464,19 @@ public class TabledAutomaton implements Automaton {
 		return new TabledAutomatonExport(this, name);
 	}
 
+	/**
+	 * @param types the names of the token types of this automaton
+	 * @return an export writing this automaton in a binary format (to be loaded with {@link TabledAutomatonBinaryImport})
+	 */
+	public TabledAutomatonBinaryExport storeBinary(TokenTypeRegistry types) {
+		return new TabledAutomatonBinaryExport(this, types);
+	}
+
+	/**
+	 * a matcher that memoizes dead ends: once a scan failed, the (state, position) pairs passed since the last accepting state are
+	 * recorded, a later scan reaching one of these pairs skips to the failing position. A listener backtracking after a mismatch (as
+	 * the longest match lexers do) so scans each (state, position) pair at most once, i.e. in linear time in the length of the input.
+	 */
 	class Matcher implements AutomatonMatcher {
 
 		private AutomatonMatcherListener listener;
@@ -312,16 +487,21 @@ public class TabledAutomaton implements Automaton {
 		private int start;
 		private int state;
 
+		private DeadEnds deadEnds;
+		private int anchorState;
+		private long anchorPos;
+		private long deadEndPos;
+
 		public Matcher() {
-			this.listener = new BaseListener();
-			this.start = startState;
-			this.state = -1;
+			this(startState);
 		}
 
 		public Matcher(int state) {
 			this.listener = new BaseListener();
 			this.start = state;
 			this.state = -1;
+			this.deadEnds = new DeadEnds(flags.length);
+			this.deadEndPos = -1;
 		}
 
 		@Override
@@ -333,6 +513,7 @@ public class TabledAutomaton implements Automaton {
 		@Override
 		public AutomatonMatcherListener applyTo(CharProvider chars) {
 			this.chars = chars;
+			deadEnds.clear();
 			resume(chars, start, chars.current());
 			return listener;
 		}
@@ -352,11 +533,16 @@ public class TabledAutomaton implements Automaton {
 			if (state == -1) {
 				return;
 			}
+			anchor(state, chars.current());
 			while (true) {
-				if (state == ERROR) {
+				int flag = flags[state];
+				if ((flag & FAILING) != 0) {
+					long end = chars.current();
 					boolean suspend = listener.recoverMismatch(chars, matchStart);
+					memoizeDeadEnds(chars, end);
 					state = startState;
 					matchStart = chars.current();
+					anchor(state, matchStart);
 					if (suspend) {
 						this.matchStart = matchStart;
 						this.state = state;
@@ -367,13 +553,14 @@ public class TabledAutomaton implements Automaton {
 						return;
 					}
 				} else {
-					TokenType accept = getType(state);
-					if (accept != null && accept.accept()) {
+					if ((flag & ACCEPTING) != 0) {
+						TokenType accept = getType(state);
 						chars.mark();
 						boolean suspend = listener.reportMatch(chars, matchStart, accept);
 						if (chars.changed()) {
 							state = start;
 						}
+						anchor(state, chars.current());
 						if (chars.finished()) {
 							this.state = -1;
 							return;
@@ -385,9 +572,12 @@ public class TabledAutomaton implements Automaton {
 							return;
 						}
 					} else if (chars.finished()) {
+						long end = chars.current();
 						boolean suspend = listener.recoverMismatch(chars, matchStart);
+						memoizeDeadEnds(chars, end);
 						state = startState;
 						matchStart = chars.current();
+						anchor(state, matchStart);
 						if (suspend) {
 							this.matchStart = matchStart;
 							this.state = state;
@@ -397,14 +587,186 @@ public class TabledAutomaton implements Automaton {
 							this.state = -1;
 							return;
 						}
+					} else if (chars.current() < deadEnds.limit()) {
+						state = skipMemoized(chars, state);
 					} else {
-						state = next(state, chars.next());
+						state = fused != null ? skipFused(chars, state) : skip(chars, state);
 					}
 
 				}
 			}
 		}
 
+		private void anchor(int state, long pos) {
+			anchorState = state;
+			anchorPos = pos;
+			if (pos >= deadEnds.limit()) {
+				deadEnds.clear();
+			}
+		}
+
+		/**
+		 * records the (state, position) pairs from the anchor (the last accepting state or the start of the scan) to the failing
+		 * position as dead ends. If the scan failed because it reached a dead end, only the pairs up to this dead end are recorded.
+		 * 
+		 * Nothing is recorded if the listener did not backtrack (i.e. it resumes at or after the failing position) or if the next scan
+		 * would pass less than MIN_DEAD_END_LENGTH recorded chars (scanning these chars again is cheaper than recording and
+		 * looking them up, and it keeps the lexing linear as each of them is scanned again by a bounded number of scans).
+		 * 
+		 * @param end the failing position
+		 */
+		private void memoizeDeadEnds(CharProvider chars, long end) {
+			long resume = chars.current();
+			long stop = deadEndPos >= 0 ? deadEndPos : end;
+			deadEndPos = -1;
+			if (resume >= end || stop - Math.max(anchorPos, resume) < MIN_DEAD_END_LENGTH) {
+				return;
+			}
+			chars.move(anchorPos);
+			int state = anchorState;
+			while (chars.current() < stop) {
+				state = next(state, chars.next());
+				if ((flags[state] & FAILING) != 0) {
+					break;
+				}
+				deadEnds.add(state, chars.current(), end);
+			}
+			chars.move(resume);
+		}
+
+		/**
+		 * proceeds as {@link #skip(CharProvider, int)}, but fails (skipping to the failing position) on reaching a dead end and returns
+		 * to the caller after passing the memoized positions.
+		 */
+		private int skipMemoized(CharProvider chars, int state) {
+			byte[] flags = TabledAutomaton.this.flags;
+			long limit = deadEnds.limit();
+			while (true) {
+				state = next(state, chars.next());
+				long pos = chars.current();
+				if (flags[state] != 0 || chars.finished() || pos >= limit) {
+					return state;
+				}
+				long end = deadEnds.end(state, pos);
+				if (end >= 0) {
+					deadEndPos = pos;
+					chars.move(end);
+					return ERROR;
+				}
+			}
+		}
+
+		/**
+		 * proceeds (at least one char) until reaching a state that is accepting or failing or the end of chars.
+		 */
+		private int skip(CharProvider chars, int state) {
+			byte[] flags = TabledAutomaton.this.flags;
+			while (true) {
+				state = next(state, chars.next());
+				if (flags[state] != 0 || chars.finished()) {
+					return state;
+				}
+			}
+		}
+
+		/**
+		 * proceeds as {@link #skip(CharProvider, int)}, chars below fusedWidth are looked up in the fused table (one load per char).
+		 */
+		private int skipFused(CharProvider chars, int state) {
+			byte[] flags = TabledAutomaton.this.flags;
+			char[] fused = TabledAutomaton.this.fused;
+			int shift = fusedShift;
+			int width = fusedWidth;
+			while (true) {
+				char ch = chars.next();
+				if (ch < width) {
+					state = fused[state << shift | ch];
+				} else {
+					state = next(state, ch);
+				}
+				if (flags[state] != 0 || chars.finished()) {
+					return state;
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * determines the longest match at a given start. A scan proceeds until the automaton fails, so it passes the chars after the
+	 * match, too. The (state, position) pairs after the last accepting state of a scan are memoized as dead ends, later scans
+	 * (starting at or after the end of the previous match) stop as soon as they reach such a pair. Each pair is so passed a constant
+	 * number of times, i.e. searching all (non-overlapping) longest matches is linear.
+	 */
+	public class LongestMatches {
+
+		private String text;
+		private DeadEnds deadEnds;
+
+		private int end;
+		private TokenType type;
+
+		LongestMatches(String text) {
+			this.text = text;
+			this.deadEnds = new DeadEnds(flags.length);
+		}
+
+		/**
+		 * @return the end of the last match
+		 */
+		public int end() {
+			return end;
+		}
+
+		/**
+		 * @return the type of the last match (the type of the start state if the match is empty)
+		 */
+		public TokenType type() {
+			return type;
+		}
+
+		/**
+		 * determines the longest match at the given start. The starts of subsequent calls must not precede the end of the previous
+		 * match.
+		 */
+		public void matchAt(int start) {
+			if (start >= deadEnds.limit()) {
+				deadEnds.clear();
+			}
+			long limit = deadEnds.limit();
+			int state = startState;
+			int endState = state;
+			end = start;
+			type = getType(state);
+			int i = start;
+			while (i < text.length()) {
+				state = next(state, text.charAt(i));
+				i++;
+				if (state == ERROR || i < limit && deadEnds.end(state, i) >= 0) {
+					break;
+				}
+				if ((flags[state] & ACCEPTING) != 0) {
+					end = i;
+					type = getType(state);
+					endState = state;
+				}
+			}
+			if (i - end > 1) {
+				memoizeDeadEnds(endState, i);
+			}
+		}
+
+		private void memoizeDeadEnds(int state, int stop) {
+			for (int i = end; i < stop;) {
+				state = next(state, text.charAt(i));
+				i++;
+				if (state == ERROR) {
+					break;
+				}
+				deadEnds.add(state, i, stop);
+			}
+		}
+
 	}
 
 	private class SampleIterator implements Iterator<String> {
@@ -516,7 +878,7 @@ public class TabledAutomaton implements Automaton {
 		}
 
 		public int getTarget() {
-			return transitions[state * charClassCount + decision];
+			return transitions.target(state, decision);
 		}
 
 		public boolean accept() {
@@ -528,14 +890,13 @@ public class TabledAutomaton implements Automaton {
 		}
 
 		public int nextDecision() {
-			int base = state * charClassCount;
 			while (true) {
 				decision++;
 				if (decision == charClassCount) {
 					decision = -1;
 					return decision;
 				}
-				TokenType token = accept[transitions[base + decision]];
+				TokenType token = accept[transitions.target(state, decision)];
 				if (token == null || !token.error()) {
 					return decision;
 				}
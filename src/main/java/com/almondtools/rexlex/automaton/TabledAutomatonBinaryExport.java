@@ -0,0 +1,83 @@
+package com.almondtools.rexlex.automaton;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.almondtools.rexlex.TokenType;
+
+/**
+ * writes a tabled automaton in a binary format, which can be loaded with {@link TabledAutomatonBinaryImport} without compiling
+ * the automaton again. The token types are written by their names in the given registry.
+ *
+ * The format (all numbers big endian):
+ * <pre>
+ * int magic, short version
+ * int start state, byte property (ordinal)
+ * int #relevant chars, char[] relevant chars
+ * int #token types, utf[] token type names
+ * int #states, int[] accept (index of the token type, -1 for none)
+ * int[] transitions (#states x #relevant chars)
+ * </pre>
+ */
+public class TabledAutomatonBinaryExport implements AutomatonExport {
+
+	static final int MAGIC = 0x52584c58;
+	static final short VERSION = 1;
+
+	private TabledAutomaton automaton;
+	private TokenTypeRegistry types;
+
+	public TabledAutomatonBinaryExport(TabledAutomaton automaton, TokenTypeRegistry types) {
+		this.automaton = automaton;
+		this.types = types;
+	}
+
+	@Override
+	public void to(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeShort(VERSION);
+		data.writeInt(automaton.getStartState());
+		data.writeByte(automaton.getProperty().ordinal());
+		writeRelevantChars(data);
+		writeAccept(data);
+		writeTransitions(data);
+		data.flush();
+	}
+
+	private void writeRelevantChars(DataOutputStream data) throws IOException {
+		char[] relevantChars = automaton.getCharClassMapper().getRelevantChars();
+		data.writeInt(relevantChars.length);
+		for (char c : relevantChars) {
+			data.writeChar(c);
+		}
+	}
+
+	private void writeAccept(DataOutputStream data) throws IOException {
+		TokenType[] accept = automaton.getAccept();
+		Map<TokenType, Integer> indexes = new LinkedHashMap<TokenType, Integer>();
+		for (TokenType type : accept) {
+			if (type != null && !indexes.containsKey(type)) {
+				indexes.put(type, indexes.size());
+			}
+		}
+		data.writeInt(indexes.size());
+		for (TokenType type : indexes.keySet()) {
+			data.writeUTF(types.nameOf(type));
+		}
+		data.writeInt(accept.length);
+		for (TokenType type : accept) {
+			data.writeInt(type == null ? -1 : indexes.get(type));
+		}
+	}
+
+	private void writeTransitions(DataOutputStream data) throws IOException {
+		for (int target : automaton.getTransitions()) {
+			data.writeInt(target);
+		}
+	}
+
+}
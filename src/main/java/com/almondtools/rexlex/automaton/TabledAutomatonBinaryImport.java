@@ -0,0 +1,145 @@
+package com.almondtools.rexlex.automaton;
+
+import static com.almondtools.rexlex.automaton.TabledAutomatonBinaryExport.MAGIC;
+import static com.almondtools.rexlex.automaton.TabledAutomatonBinaryExport.VERSION;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.almondtools.rexlex.TokenType;
+
+/**
+ * loads a tabled automaton written by {@link TabledAutomatonBinaryExport}. The tables are read as they are, no automaton is compiled.
+ * The counts of the input are checked before anything is allocated, the tables are allocated while reading (a corrupt or
+ * truncated input fails with an {@link IOException} without allocating the memory it claims).
+ */
+public class TabledAutomatonBinaryImport {
+
+	private static final int MAX_RELEVANT_CHARS = Character.MAX_VALUE + 1;
+	private static final int MAX_STATES = 1 << 24;
+	private static final int MAX_TRANSITIONS = Integer.MAX_VALUE - 8;
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	private TokenTypeRegistry types;
+
+	public TabledAutomatonBinaryImport(TokenTypeRegistry types) {
+		this.types = types;
+	}
+
+	public TabledAutomaton from(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC) {
+			throw new IOException("input is not a binary tabled automaton");
+		}
+		short version = data.readShort();
+		if (version != VERSION) {
+			throw new IOException("unsupported version " + version + " of binary tabled automaton");
+		}
+		int startState = data.readInt();
+		AutomatonProperty property = readProperty(data);
+		char[] relevantChars = readRelevantChars(data);
+		TokenType[] accept = readAccept(data, relevantChars.length);
+		int[] transitions = readTransitions(data, accept.length, relevantChars.length);
+		if (startState < 0 || startState >= accept.length) {
+			throw new IOException("start state " + startState + " out of range");
+		}
+		return new TabledAutomaton(startState, relevantChars, accept, transitions, property);
+	}
+
+	private AutomatonProperty readProperty(DataInputStream data) throws IOException {
+		int ordinal = data.readByte();
+		AutomatonProperty[] properties = AutomatonProperty.values();
+		if (ordinal < 0 || ordinal >= properties.length) {
+			throw new IOException("unknown automaton property " + ordinal);
+		}
+		return properties[ordinal];
+	}
+
+	private char[] readRelevantChars(DataInputStream data) throws IOException {
+		int count = readCount(data, MAX_RELEVANT_CHARS, "relevant chars");
+		char[] relevantChars = new char[count];
+		for (int i = 0; i < relevantChars.length; i++) {
+			relevantChars[i] = data.readChar();
+			if (i > 0 && relevantChars[i] <= relevantChars[i - 1]) {
+				throw new IOException("relevant chars are not strictly ascending at index " + i);
+			}
+		}
+		return relevantChars;
+	}
+
+	private TokenType[] readAccept(DataInputStream data, int charClassCount) throws IOException {
+		int typeCount = readCount(data, MAX_STATES, "token types");
+		TokenType[] typeTable = new TokenType[Math.min(typeCount, CHUNK_SIZE)];
+		for (int i = 0; i < typeCount; i++) {
+			if (i == typeTable.length) {
+				typeTable = grow(typeTable, typeCount);
+			}
+			String name = data.readUTF();
+			try {
+				typeTable[i] = types.typeOf(name);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+		int stateCount = readCount(data, MAX_STATES, "states");
+		if (typeCount > stateCount) {
+			throw new IOException("more token types (" + typeCount + ") than states (" + stateCount + ")");
+		}
+		transitionCount(stateCount, charClassCount);
+		TokenType[] accept = new TokenType[Math.min(stateCount, CHUNK_SIZE)];
+		for (int i = 0; i < stateCount; i++) {
+			if (i == accept.length) {
+				accept = grow(accept, stateCount);
+			}
+			int index = data.readInt();
+			if (index < -1 || index >= typeCount) {
+				throw new IOException("token type index " + index + " out of range");
+			}
+			accept[i] = index == -1 ? null : typeTable[index];
+		}
+		return accept;
+	}
+
+	private int[] readTransitions(DataInputStream data, int stateCount, int charClassCount) throws IOException {
+		int count = transitionCount(stateCount, charClassCount);
+		int[] transitions = new int[Math.min(count, CHUNK_SIZE)];
+		for (int i = 0; i < count; i++) {
+			if (i == transitions.length) {
+				transitions = Arrays.copyOf(transitions, (int) Math.min((long) transitions.length * 2, count));
+			}
+			int target = data.readInt();
+			if (target < 0 || target >= stateCount) {
+				throw new IOException("target state " + target + " out of range");
+			}
+			transitions[i] = target;
+		}
+		return transitions;
+	}
+
+	private static int readCount(DataInputStream data, int max, String name) throws IOException {
+		int count = data.readInt();
+		if (count < 0 || count > max) {
+			throw new IOException("number of " + name + " " + count + " out of range");
+		}
+		return count;
+	}
+
+	private static int transitionCount(int stateCount, int charClassCount) throws IOException {
+		try {
+			int count = Math.multiplyExact(stateCount, charClassCount);
+			if (count > MAX_TRANSITIONS) {
+				throw new IOException("too many transitions (" + stateCount + " x " + charClassCount + ")");
+			}
+			return count;
+		} catch (ArithmeticException e) {
+			throw new IOException("too many transitions (" + stateCount + " x " + charClassCount + ")", e);
+		}
+	}
+
+	private static TokenType[] grow(TokenType[] array, int count) {
+		return Arrays.copyOf(array, (int) Math.min((long) array.length * 2, count));
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.almondtools.rexlex.automaton;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.pattern.DefaultTokenType;
+
+/**
+ * maps token types to names and back, such that automata may be stored and loaded (token types are objects which cannot be stored
+ * themselves). The {@link DefaultTokenType}s are registered by default.
+ */
+public class TokenTypeRegistry {
+
+	private Map<String, TokenType> types;
+	private Map<TokenType, String> names;
+
+	public TokenTypeRegistry() {
+		this.types = new HashMap<String, TokenType>();
+		this.names = new HashMap<TokenType, String>();
+		register(DefaultTokenType.class);
+	}
+
+	/**
+	 * registers all constants of the given enum, each with the name of the enum class and the name of the constant.
+	 */
+	public <E extends Enum<E> & TokenType> TokenTypeRegistry register(Class<E> types) {
+		for (E type : types.getEnumConstants()) {
+			register(types.getName() + '.' + type.name(), type);
+		}
+		return this;
+	}
+
+	public TokenTypeRegistry register(String name, TokenType type) {
+		TokenType registeredType = types.get(name);
+		if (registeredType != null && !registeredType.equals(type)) {
+			throw new IllegalArgumentException("name " + name + " is already registered for " + registeredType);
+		}
+		types.put(name, type);
+		names.put(type, name);
+		return this;
+	}
+
+	public String nameOf(TokenType type) {
+		String name = names.get(type);
+		if (name == null) {
+			throw new IllegalArgumentException("token type " + type + " is not registered");
+		}
+		return name;
+	}
+
+	public TokenType typeOf(String name) {
+		TokenType type = types.get(name);
+		if (type == null) {
+			throw new IllegalArgumentException("no token type registered for " + name);
+		}
+		return type;
+	}
+
+}
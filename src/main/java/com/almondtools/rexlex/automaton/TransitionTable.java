@@ -0,0 +1,411 @@
+package com.almondtools.rexlex.automaton;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * the transitions of a {@link TabledAutomaton} (#states x #character classes). Each layout provides the target in O(1), the
+ * smallest layout is selected by {@link #compress(int[], int)}:
+ * <ul>
+ * <li>a dense table with int, char or byte targets (as narrow as the targets allow)</li>
+ * <li>a table of deduplicated rows (each state refers to its row)</li>
+ * <li>a comb-vector (row displacement as in flex): the rows are reduced to the targets differing from a default target of the
+ * row and overlaid in one vector, a check vector tells which state owns a cell</li>
+ * </ul>
+ */
+abstract class TransitionTable {
+
+	protected int charClassCount;
+
+	TransitionTable(int charClassCount) {
+		this.charClassCount = charClassCount;
+	}
+
+	abstract int target(int state, int charClass);
+
+	/**
+	 * @return the (approximate) size of the table in bytes
+	 */
+	abstract long size();
+
+	abstract String layout();
+
+	/**
+	 * @return the dense table of transitions (#states x #character classes)
+	 */
+	int[] toArray(int stateCount) {
+		int[] transitions = new int[stateCount * charClassCount];
+		for (int state = 0; state < stateCount; state++) {
+			for (int charClass = 0; charClass < charClassCount; charClass++) {
+				transitions[state * charClassCount + charClass] = target(state, charClass);
+			}
+		}
+		return transitions;
+	}
+
+	/**
+	 * @param transitions the dense table of transitions (#states x #character classes)
+	 * @param charClassCount the number of character classes
+	 * @return the smallest table providing the given transitions
+	 */
+	static TransitionTable compress(int[] transitions, int charClassCount) {
+		TransitionTable best = dense(transitions, charClassCount);
+		if (charClassCount == 0) {
+			return best;
+		}
+		TransitionTable deduplicated = DeduplicatedTable.of(transitions, charClassCount);
+		if (deduplicated.size() < best.size()) {
+			best = deduplicated;
+		}
+		TransitionTable comb = CombTable.of(transitions, charClassCount, best.size());
+		if (comb != null && comb.size() < best.size()) {
+			best = comb;
+		}
+		return best;
+	}
+
+	static TransitionTable dense(int[] transitions, int charClassCount) {
+		int maxTarget = 0;
+		for (int target : transitions) {
+			maxTarget = Math.max(maxTarget, target);
+		}
+		if (maxTarget < 1 << 8) {
+			return new ByteTable(transitions, charClassCount);
+		} else if (maxTarget < 1 << 16) {
+			return new CharTable(transitions, charClassCount);
+		} else {
+			return new IntTable(transitions, charClassCount);
+		}
+	}
+
+	static class IntTable extends TransitionTable {
+
+		private int[] targets;
+
+		IntTable(int[] transitions, int charClassCount) {
+			super(charClassCount);
+			this.targets = transitions;
+		}
+
+		@Override
+		int target(int state, int charClass) {
+			return targets[state * charClassCount + charClass];
+		}
+
+		@Override
+		long size() {
+			return 4l * targets.length;
+		}
+
+		@Override
+		String layout() {
+			return "dense int";
+		}
+
+		@Override
+		int[] toArray(int stateCount) {
+			return targets.clone();
+		}
+
+	}
+
+	static class CharTable extends TransitionTable {
+
+		private char[] targets;
+
+		CharTable(int[] transitions, int charClassCount) {
+			super(charClassCount);
+			this.targets = new char[transitions.length];
+			for (int i = 0; i < transitions.length; i++) {
+				targets[i] = (char) transitions[i];
+			}
+		}
+
+		@Override
+		int target(int state, int charClass) {
+			return targets[state * charClassCount + charClass];
+		}
+
+		@Override
+		long size() {
+			return 2l * targets.length;
+		}
+
+		@Override
+		String layout() {
+			return "dense char";
+		}
+
+	}
+
+	static class ByteTable extends TransitionTable {
+
+		private byte[] targets;
+
+		ByteTable(int[] transitions, int charClassCount) {
+			super(charClassCount);
+			this.targets = new byte[transitions.length];
+			for (int i = 0; i < transitions.length; i++) {
+				targets[i] = (byte) transitions[i];
+			}
+		}
+
+		@Override
+		int target(int state, int charClass) {
+			return targets[state * charClassCount + charClass] & 0xff;
+		}
+
+		@Override
+		long size() {
+			return targets.length;
+		}
+
+		@Override
+		String layout() {
+			return "dense byte";
+		}
+
+	}
+
+	static class DeduplicatedTable extends TransitionTable {
+
+		private int[] rows; // #states (row of the state)
+		private TransitionTable distinctRows;
+
+		DeduplicatedTable(int[] rows, TransitionTable distinctRows, int charClassCount) {
+			super(charClassCount);
+			this.rows = rows;
+			this.distinctRows = distinctRows;
+		}
+
+		static DeduplicatedTable of(int[] transitions, int charClassCount) {
+			int stateCount = transitions.length / charClassCount;
+			int[] rows = new int[stateCount];
+			Map<Row, Integer> distinct = new HashMap<Row, Integer>();
+			int[] distinctTransitions = new int[transitions.length];
+			for (int state = 0; state < stateCount; state++) {
+				Row row = new Row(transitions, state * charClassCount, charClassCount);
+				Integer index = distinct.get(row);
+				if (index == null) {
+					index = distinct.size();
+					distinct.put(row, index);
+					System.arraycopy(transitions, state * charClassCount, distinctTransitions, index * charClassCount, charClassCount);
+				}
+				rows[state] = index;
+			}
+			distinctTransitions = Arrays.copyOf(distinctTransitions, distinct.size() * charClassCount);
+			return new DeduplicatedTable(rows, dense(distinctTransitions, charClassCount), charClassCount);
+		}
+
+		@Override
+		int target(int state, int charClass) {
+			return distinctRows.target(rows[state], charClass);
+		}
+
+		@Override
+		long size() {
+			return 4l * rows.length + distinctRows.size();
+		}
+
+		@Override
+		String layout() {
+			return "deduplicated rows (" + distinctRows.layout() + ")";
+		}
+
+	}
+
+	static class CombTable extends TransitionTable {
+
+		private int[] base; // #states (offset of the row in next/check)
+		private int[] defaults; // #states (target of all cells not in next/check)
+		private int[] next; // overlaid rows (target)
+		private int[] check; // overlaid rows (owning state, -1 = free)
+
+		CombTable(int[] base, int[] defaults, int[] next, int[] check, int charClassCount) {
+			super(charClassCount);
+			this.base = base;
+			this.defaults = defaults;
+			this.next = next;
+			this.check = check;
+		}
+
+		/**
+		 * places the rows with the most cells first, each at the lowest offset where its cells do not collide (first fit).
+		 *
+		 * @param limit the size of the best known table
+		 * @return the comb-vector or null if it cannot be smaller than the given limit
+		 */
+		static CombTable of(int[] transitions, int charClassCount, long limit) {
+			int stateCount = transitions.length / charClassCount;
+			int[] defaults = new int[stateCount];
+			int[] cellCounts = new int[stateCount];
+			long cells = 0;
+			for (int state = 0; state < stateCount; state++) {
+				int offset = state * charClassCount;
+				defaults[state] = mostFrequent(transitions, offset, charClassCount);
+				for (int charClass = 0; charClass < charClassCount; charClass++) {
+					if (transitions[offset + charClass] != defaults[state]) {
+						cellCounts[state]++;
+					}
+				}
+				cells += cellCounts[state];
+			}
+			if (8l * stateCount + 8l * cells >= limit) {
+				return null;
+			}
+			Integer[] order = new Integer[stateCount];
+			for (int state = 0; state < stateCount; state++) {
+				order[state] = state;
+			}
+			final int[] counts = cellCounts;
+			Arrays.sort(order, new Comparator<Integer>() {
+
+				@Override
+				public int compare(Integer s1, Integer s2) {
+					return counts[s2] - counts[s1];
+				}
+			});
+
+			int[] base = new int[stateCount];
+			int[] next = new int[Math.max(charClassCount, (int) Math.min(cells * 2, Integer.MAX_VALUE / 2))];
+			int[] check = new int[next.length];
+			Arrays.fill(check, -1);
+			int[] columns = new int[charClassCount];
+			int firstFree = 0;
+			int length = 0;
+			for (int state : order) {
+				if (cellCounts[state] == 0) {
+					continue;
+				}
+				int offset = state * charClassCount;
+				int columnCount = 0;
+				for (int charClass = 0; charClass < charClassCount; charClass++) {
+					if (transitions[offset + charClass] != defaults[state]) {
+						columns[columnCount++] = charClass;
+					}
+				}
+				int candidate = Math.max(0, firstFree - columns[0]);
+				while (true) {
+					if (candidate + charClassCount > next.length) {
+						next = Arrays.copyOf(next, (candidate + charClassCount) * 2);
+						int free = check.length;
+						check = Arrays.copyOf(check, next.length);
+						Arrays.fill(check, free, check.length, -1);
+					}
+					if (fits(check, candidate, columns, columnCount)) {
+						break;
+					}
+					candidate++;
+				}
+				base[state] = candidate;
+				for (int i = 0; i < columnCount; i++) {
+					int cell = candidate + columns[i];
+					next[cell] = transitions[offset + columns[i]];
+					check[cell] = state;
+				}
+				while (firstFree < check.length && check[firstFree] != -1) {
+					firstFree++;
+				}
+				length = Math.max(length, candidate + charClassCount);
+			}
+			return new CombTable(base, defaults, Arrays.copyOf(next, length), Arrays.copyOf(check, length), charClassCount);
+		}
+
+		private static boolean fits(int[] check, int candidate, int[] columns, int columnCount) {
+			for (int i = 0; i < columnCount; i++) {
+				if (check[candidate + columns[i]] != -1) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static int mostFrequent(int[] transitions, int offset, int length) {
+			int[] row = Arrays.copyOfRange(transitions, offset, offset + length);
+			Arrays.sort(row);
+			int best = row[0];
+			int bestCount = 0;
+			int count = 0;
+			for (int i = 0; i < row.length; i++) {
+				count = i > 0 && row[i] == row[i - 1] ? count + 1 : 1;
+				if (count > bestCount) {
+					best = row[i];
+					bestCount = count;
+				}
+			}
+			return best;
+		}
+
+		@Override
+		int target(int state, int charClass) {
+			int cell = base[state] + charClass;
+			if (cell < check.length && check[cell] == state) {
+				return next[cell];
+			}
+			return defaults[state];
+		}
+
+		@Override
+		long size() {
+			return 4l * base.length + 4l * defaults.length + 4l * next.length + 4l * check.length;
+		}
+
+		@Override
+		String layout() {
+			return "comb-vector";
+		}
+
+	}
+
+	/**
+	 * a row of a dense table (compared by its targets)
+	 */
+	private static class Row {
+
+		private int[] transitions;
+		private int offset;
+		private int length;
+
+		public Row(int[] transitions, int offset, int length) {
+			this.transitions = transitions;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = 1;
+			for (int i = offset; i < offset + length; i++) {
+				hash = 31 * hash + transitions[i];
+			}
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			Row that = (Row) obj;
+			if (this.length != that.length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (this.transitions[this.offset + i] != that.transitions[that.offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,148 @@
+package com.almondtools.rexlex.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import net.amygdalum.util.io.CharProvider;
+
+/**
+ * provides the bytes of a byte buffer (e.g. a {@link java.nio.MappedByteBuffer}) as chars. Each byte is widened to a char, nothing
+ * is decoded or copied. Positions are byte offsets relative to the start of the buffer.
+ * 
+ * Without charset this provides the chars of ISO-8859-1 (or US-ASCII) encoded input. With another charset (e.g. UTF-8) the
+ * provided chars are the raw bytes (to be matched by byte automata), only slices are decoded with the charset.
+ */
+public class ByteBufferCharProvider implements CharProvider {
+
+	private static final int NO_MARK = -1;
+
+	private ByteBuffer input;
+	private Charset charset;
+	private int base;
+	private int limit;
+	private int pos;
+	private int mark;
+
+	public ByteBufferCharProvider(ByteBuffer input) {
+		this(input, null);
+	}
+
+	public ByteBufferCharProvider(ByteBuffer input, Charset charset) {
+		this.input = input;
+		this.charset = charset;
+		this.base = input.position();
+		this.limit = input.limit() - base;
+		this.mark = NO_MARK;
+	}
+
+	private char charAt(int i) {
+		return (char) (input.get(base + i) & 0xff);
+	}
+
+	@Override
+	public char next() {
+		char c = charAt(pos);
+		pos++;
+		return c;
+	}
+
+	@Override
+	public char lookahead() {
+		return charAt(pos);
+	}
+
+	@Override
+	public char lookahead(int i) {
+		return charAt(pos + i);
+	}
+
+	@Override
+	public char prev() {
+		pos--;
+		return charAt(pos);
+	}
+
+	@Override
+	public char lookbehind() {
+		return charAt(pos - 1);
+	}
+
+	@Override
+	public char lookbehind(int i) {
+		return charAt(pos - 1 - i);
+	}
+
+	@Override
+	public long current() {
+		return pos;
+	}
+
+	@Override
+	public void move(long i) {
+		pos = (int) i;
+	}
+
+	@Override
+	public void forward(int i) {
+		pos += i;
+	}
+
+	@Override
+	public void finish() {
+		pos = limit;
+	}
+
+	@Override
+	public boolean finished() {
+		return pos >= limit;
+	}
+
+	@Override
+	public boolean finished(int i) {
+		return pos + i >= limit;
+	}
+
+	@Override
+	public char at(long i) {
+		return charAt((int) i);
+	}
+
+	@Override
+	public char[] between(long start, long end) {
+		char[] chars = new char[(int) (end - start)];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = charAt((int) start + i);
+		}
+		return chars;
+	}
+
+	@Override
+	public String slice(long start, long end) {
+		if (charset == null) {
+			return new String(between(start, end));
+		}
+		byte[] bytes = new byte[(int) (end - start)];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = input.get(base + (int) start + i);
+		}
+		return new String(bytes, charset);
+	}
+
+	@Override
+	public void mark() {
+		mark = pos;
+	}
+
+	@Override
+	public boolean changed() {
+		boolean changed = mark != NO_MARK && mark != pos;
+		mark = NO_MARK;
+		return changed;
+	}
+
+	@Override
+	public String toString() {
+		return slice(0, pos) + '|' + slice(pos, limit);
+	}
+
+}
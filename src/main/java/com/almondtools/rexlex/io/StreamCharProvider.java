@@ -0,0 +1,217 @@
+package com.almondtools.rexlex.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import net.amygdalum.util.io.IORuntimeException;
+import net.amygdalum.util.io.OutOfBufferException;
+
+/**
+ * provides the chars of a reader in a sliding window. The window starts at the last released position, so the memory
+ * consumption is bounded by the distance between the released position and the current position (and not by the input size).
+ * Accessing a released position throws an {@link OutOfBufferException}.
+ */
+public class StreamCharProvider implements WindowedCharProvider {
+
+	private static final int DEFAULT_CHUNK = 8192;
+	private static final long NO_MARK = -1;
+
+	private Reader reader;
+	private boolean eof;
+	private char[] buffer;
+	private long offset;
+	private int fill;
+	private long released;
+
+	private long pos;
+	private long mark;
+
+	public StreamCharProvider(Reader reader) {
+		this(reader, DEFAULT_CHUNK);
+	}
+
+	public StreamCharProvider(Reader reader, int chunk) {
+		this.reader = reader;
+		this.buffer = new char[chunk];
+		this.mark = NO_MARK;
+	}
+
+	/**
+	 * @return the number of chars currently held in memory
+	 */
+	public int getWindowSize() {
+		return fill;
+	}
+
+	@Override
+	public void release(long pos) {
+		if (pos > released) {
+			released = pos;
+		}
+	}
+
+	@Override
+	public char next() {
+		char c = at(pos);
+		pos++;
+		return c;
+	}
+
+	@Override
+	public char lookahead() {
+		return at(pos);
+	}
+
+	@Override
+	public char lookahead(int i) {
+		return at(pos + i);
+	}
+
+	@Override
+	public char prev() {
+		pos--;
+		return at(pos);
+	}
+
+	@Override
+	public char lookbehind() {
+		return at(pos - 1);
+	}
+
+	@Override
+	public char lookbehind(int i) {
+		return at(pos - 1 - i);
+	}
+
+	@Override
+	public long current() {
+		return pos;
+	}
+
+	@Override
+	public void move(long i) {
+		pos = i;
+	}
+
+	@Override
+	public void forward(int i) {
+		pos += i;
+	}
+
+	/**
+	 * skips the rest of the input, the skipped chars are discarded (and cannot be accessed afterwards).
+	 */
+	@Override
+	public void finish() {
+		while (!eof) {
+			offset += fill;
+			fill = 0;
+			read();
+		}
+		pos = offset + fill;
+	}
+
+	@Override
+	public boolean finished() {
+		return !available(pos);
+	}
+
+	@Override
+	public boolean finished(int i) {
+		return !available(pos + i);
+	}
+
+	@Override
+	public char at(long i) {
+		int index = index(i);
+		return buffer[index];
+	}
+
+	@Override
+	public char[] between(long start, long end) {
+		if (start >= end) {
+			return new char[0];
+		}
+		index(end - 1);
+		int from = index(start);
+		return Arrays.copyOfRange(buffer, from, from + (int) (end - start));
+	}
+
+	@Override
+	public String slice(long start, long end) {
+		if (start >= end) {
+			return "";
+		}
+		index(end - 1);
+		int from = index(start);
+		return new String(buffer, from, (int) (end - start));
+	}
+
+	@Override
+	public void mark() {
+		mark = pos;
+	}
+
+	@Override
+	public boolean changed() {
+		boolean changed = mark != NO_MARK && mark != pos;
+		mark = NO_MARK;
+		return changed;
+	}
+
+	private int index(long i) {
+		if (i < offset) {
+			throw new OutOfBufferException();
+		} else if (!available(i)) {
+			throw new IndexOutOfBoundsException(String.valueOf(i));
+		}
+		return (int) (i - offset);
+	}
+
+	private boolean available(long i) {
+		while (i >= offset + fill && !eof) {
+			read();
+		}
+		return i >= offset && i < offset + fill;
+	}
+
+	private void read() {
+		if (fill == buffer.length) {
+			compact();
+		}
+		try {
+			int n = reader.read(buffer, fill, buffer.length - fill);
+			if (n < 0) {
+				eof = true;
+			} else {
+				fill += n;
+			}
+		} catch (IOException e) {
+			throw new IORuntimeException(e);
+		}
+	}
+
+	/**
+	 * drops the released chars. If this frees less than half of the buffer, the buffer is grown, so each char is copied
+	 * only a constant number of times (amortized).
+	 */
+	private void compact() {
+		int drop = (int) Math.min(Math.max(released - offset, 0), fill);
+		if (drop > 0) {
+			System.arraycopy(buffer, drop, buffer, 0, fill - drop);
+			fill -= drop;
+			offset += drop;
+		}
+		if (fill > buffer.length / 2) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+	}
+
+	@Override
+	public String toString() {
+		int split = (int) Math.min(Math.max(pos - offset, 0), fill);
+		return new String(buffer, 0, split) + '|' + new String(buffer, split, fill - split);
+	}
+
+}
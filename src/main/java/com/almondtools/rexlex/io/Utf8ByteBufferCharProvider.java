@@ -0,0 +1,261 @@
+package com.almondtools.rexlex.io;
+
+import java.nio.ByteBuffer;
+
+import net.amygdalum.util.io.CharProvider;
+
+/**
+ * provides the chars of an UTF-8 encoded byte buffer (e.g. a {@link java.nio.MappedByteBuffer}). Chars are decoded on the fly,
+ * nothing is copied. Positions are byte offsets relative to the start of the buffer, a supplementary code point (encoded with 4
+ * bytes) provides its high surrogate at the offset of the sequence and its low surrogate at this offset + 2. Malformed bytes are
+ * provided as replacement chars (U+FFFD).
+ */
+public class Utf8ByteBufferCharProvider implements CharProvider {
+
+	private static final int NO_MARK = -1;
+	private static final char REPLACEMENT = '\uFFFD';
+
+	private ByteBuffer input;
+	private int base;
+	private int limit;
+	private int pos;
+	private int mark;
+
+	public Utf8ByteBufferCharProvider(ByteBuffer input) {
+		this.input = input;
+		this.base = input.position();
+		this.limit = input.limit() - base;
+		this.mark = NO_MARK;
+	}
+
+	private int byteAt(int i) {
+		return input.get(base + i) & 0xff;
+	}
+
+	private static boolean isContinuation(int b) {
+		return (b & 0xc0) == 0x80;
+	}
+
+	private static int sequenceLength(int b) {
+		if (b < 0x80) {
+			return 1;
+		} else if (b < 0xc2) {
+			return 0;
+		} else if (b < 0xe0) {
+			return 2;
+		} else if (b < 0xf0) {
+			return 3;
+		} else if (b < 0xf5) {
+			return 4;
+		} else {
+			return 0;
+		}
+	}
+
+	/**
+	 * @return the code point of the well formed sequence starting at i or -1 if this sequence is malformed
+	 */
+	private int codePointAt(int i) {
+		int b = byteAt(i);
+		int length = sequenceLength(b);
+		if (length == 1) {
+			return b;
+		} else if (length == 0 || i + length > limit) {
+			return -1;
+		}
+		int codePoint = b & (0x7f >> length);
+		for (int j = 1; j < length; j++) {
+			int c = byteAt(i + j);
+			if (!isContinuation(c)) {
+				return -1;
+			}
+			codePoint = (codePoint << 6) | (c & 0x3f);
+		}
+		if (length == 3 && (codePoint < 0x800 || Character.isSurrogate((char) codePoint))) {
+			return -1;
+		} else if (length == 4 && (codePoint < 0x10000 || codePoint > Character.MAX_CODE_POINT)) {
+			return -1;
+		}
+		return codePoint;
+	}
+
+	private boolean isLowSurrogatePosition(int i) {
+		return i >= 2 && i < limit
+			&& isContinuation(byteAt(i))
+			&& sequenceLength(byteAt(i - 2)) == 4
+			&& codePointAt(i - 2) >= 0;
+	}
+
+	/**
+	 * @return the position after the char at i
+	 */
+	private int following(int i) {
+		if (isLowSurrogatePosition(i)) {
+			return i + 2;
+		}
+		int codePoint = codePointAt(i);
+		if (codePoint < 0) {
+			return i + 1;
+		} else if (codePoint < 0x80) {
+			return i + 1;
+		} else if (codePoint < 0x800) {
+			return i + 2;
+		} else if (codePoint < 0x10000) {
+			return i + 3;
+		} else {
+			return i + 2;
+		}
+	}
+
+	/**
+	 * @return the position of the char before i
+	 */
+	private int preceding(int i) {
+		int lead = i - 1;
+		while (lead > 0 && lead > i - 4 && isContinuation(byteAt(lead))) {
+			lead--;
+		}
+		int codePoint = codePointAt(lead);
+		if (codePoint < 0) {
+			return i - 1;
+		}
+		int length = sequenceLength(byteAt(lead));
+		if (lead + length == i) {
+			return length == 4 ? lead + 2 : lead;
+		} else if (length == 4 && lead + 2 == i) {
+			return lead;
+		} else {
+			return i - 1;
+		}
+	}
+
+	private char charAt(int i) {
+		if (isLowSurrogatePosition(i)) {
+			return Character.lowSurrogate(codePointAt(i - 2));
+		}
+		int codePoint = codePointAt(i);
+		if (codePoint < 0) {
+			return REPLACEMENT;
+		} else if (codePoint < 0x10000) {
+			return (char) codePoint;
+		} else {
+			return Character.highSurrogate(codePoint);
+		}
+	}
+
+	@Override
+	public char next() {
+		char c = charAt(pos);
+		pos = following(pos);
+		return c;
+	}
+
+	@Override
+	public char lookahead() {
+		return charAt(pos);
+	}
+
+	@Override
+	public char lookahead(int i) {
+		int p = pos;
+		for (int j = 0; j < i; j++) {
+			p = following(p);
+		}
+		return charAt(p);
+	}
+
+	@Override
+	public char prev() {
+		pos = preceding(pos);
+		return charAt(pos);
+	}
+
+	@Override
+	public char lookbehind() {
+		return charAt(preceding(pos));
+	}
+
+	@Override
+	public char lookbehind(int i) {
+		int p = preceding(pos);
+		for (int j = 0; j < i; j++) {
+			p = preceding(p);
+		}
+		return charAt(p);
+	}
+
+	@Override
+	public long current() {
+		return pos;
+	}
+
+	@Override
+	public void move(long i) {
+		pos = (int) i;
+	}
+
+	@Override
+	public void forward(int i) {
+		for (int j = 0; j < i; j++) {
+			pos = following(pos);
+		}
+	}
+
+	@Override
+	public void finish() {
+		pos = limit;
+	}
+
+	@Override
+	public boolean finished() {
+		return pos >= limit;
+	}
+
+	@Override
+	public boolean finished(int i) {
+		int p = pos;
+		for (int j = 0; j < i && p < limit; j++) {
+			p = following(p);
+		}
+		return p >= limit;
+	}
+
+	@Override
+	public char at(long i) {
+		return charAt((int) i);
+	}
+
+	@Override
+	public char[] between(long start, long end) {
+		return slice(start, end).toCharArray();
+	}
+
+	@Override
+	public String slice(long start, long end) {
+		StringBuilder buffer = new StringBuilder((int) (end - start));
+		int p = (int) start;
+		while (p < end) {
+			buffer.append(charAt(p));
+			p = following(p);
+		}
+		return buffer.toString();
+	}
+
+	@Override
+	public void mark() {
+		mark = pos;
+	}
+
+	@Override
+	public boolean changed() {
+		boolean changed = mark != NO_MARK && mark != pos;
+		mark = NO_MARK;
+		return changed;
+	}
+
+	@Override
+	public String toString() {
+		return slice(0, pos) + '|' + slice(pos, limit);
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.almondtools.rexlex.io;
+
+import net.amygdalum.util.io.CharProvider;
+
+/**
+ * a char provider that keeps only a window of the input. Consumers should release positions they will not access again, such
+ * that the provider can discard the chars before them.
+ */
+public interface WindowedCharProvider extends CharProvider {
+
+	/**
+	 * declares that no char before the given position will be accessed again.
+	 */
+	void release(long pos);
+
+}
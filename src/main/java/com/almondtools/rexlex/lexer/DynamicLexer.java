@@ -1,39 +1,102 @@
 package com.almondtools.rexlex.lexer;
 
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import com.almondtools.rexlex.Lexer;
+import com.almondtools.rexlex.RangeTokenFactory;
 import com.almondtools.rexlex.Token;
 import com.almondtools.rexlex.TokenFactory;
 import com.almondtools.rexlex.TokenType;
 import com.almondtools.rexlex.automaton.Automaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToAhoCorasickAutomaton;
 import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToUtf8TabledAutomaton;
 import com.almondtools.rexlex.automaton.GenericAutomaton;
 import com.almondtools.rexlex.automaton.GenericAutomatonBuilder;
+import com.almondtools.rexlex.automaton.TabledAutomaton;
+import com.almondtools.rexlex.automaton.TabledAutomatonBinaryImport;
+import com.almondtools.rexlex.automaton.ToAutomaton;
+import com.almondtools.rexlex.automaton.TokenTypeRegistry;
+import com.almondtools.rexlex.io.ByteBufferCharProvider;
+import com.almondtools.rexlex.io.StreamCharProvider;
+import com.almondtools.rexlex.io.Utf8ByteBufferCharProvider;
 import com.almondtools.rexlex.pattern.DefaultTokenType;
 import com.almondtools.rexlex.pattern.Pattern;
 import com.almondtools.rexlex.pattern.RemainderTokenType;
+import com.almondtools.rexlex.pattern.TokenCursor;
+import com.almondtools.rexlex.pattern.TokenIterator;
 
+import net.amygdalum.util.io.CharProvider;
 import net.amygdalum.util.io.StringCharProvider;
 
 public class DynamicLexer<T extends Token> implements Lexer<T> {
 
+	private static final int MIN_CHUNK_SIZE = 1 << 16;
+	private static final Set<TokenType> IGNORED = new HashSet<TokenType>(Arrays.<TokenType> asList(DefaultTokenType.IGNORE, DefaultTokenType.ERROR, null)); // null is the error type of automatons without remainder
+
+	private GenericAutomaton nfa;
+	private TokenType remainder;
 	private Automaton automaton;
+	private Automaton utf8Automaton;
 	private TokenFactory<T> factory;
-	
+
 	public DynamicLexer(Map<String, TokenType> patternToTypes, TokenFactory<T> factory) {
 		this(patternToTypes, null, factory);
 	}
 
 	public DynamicLexer(Map<String, TokenType> patternToTypes, TokenType remainder, TokenFactory<T> factory) {
-		this.automaton = createAutomaton(patternToTypes, remainder);
+		this(patternToTypes, remainder, new ToTabledAutomaton(remainder), factory);
+	}
+
+	/**
+	 * creates a lexer with the given transformation of the patterns, e.g. {@link ToAhoCorasickAutomaton} for lexers of keywords.
+	 * 
+	 * @param remainder the type of tokens not matching any pattern (should be the same as the remainder of the transformation)
+	 */
+	public DynamicLexer(Map<String, TokenType> patternToTypes, TokenType remainder, ToAutomaton<GenericAutomaton, ?> builder, TokenFactory<T> factory) {
+		this.nfa = createGenericAutomaton(patternToTypes);
+		this.remainder = remainder;
+		this.automaton = nfa.toAutomaton(builder);
 		this.factory = factory;
 	}
 
-	private static Automaton createAutomaton(Map<String, TokenType> patternToTypes, TokenType remainder) {
+	/**
+	 * creates a lexer from a precompiled automaton (e.g. loaded with {@link TabledAutomatonBinaryImport}).
+	 */
+	public DynamicLexer(Automaton automaton, TokenFactory<T> factory) {
+		this.automaton = automaton;
+		this.factory = factory;
+	}
+
+	/**
+	 * compiles the automaton of a lexer, e.g. to store it at build time (with {@link TabledAutomaton#storeBinary(TokenTypeRegistry)})
+	 * and to create the lexer with {@link #DynamicLexer(Automaton, TokenFactory)} at runtime.
+	 */
+	public static TabledAutomaton compile(Map<String, TokenType> patternToTypes, TokenType remainder) {
+		return createGenericAutomaton(patternToTypes).toAutomaton(new ToTabledAutomaton(remainder));
+	}
+
+	public Automaton getAutomaton() {
+		return automaton;
+	}
+
+	private static GenericAutomaton createGenericAutomaton(Map<String, TokenType> patternToTypes) {
 		List<GenericAutomaton> as = new ArrayList<GenericAutomaton>(patternToTypes.size());
 		for (Map.Entry<String, TokenType> entry : patternToTypes.entrySet()) {
 			String pattern = entry.getKey();
@@ -43,23 +106,233 @@ public class DynamicLexer<T extends Token> implements Lexer<T> {
 			}
 			as.add(Pattern.compileGenericAutomaton(pattern, new RemainderTokenType(type)));
 		}
-		return GenericAutomatonBuilder.matchAlternatives(as).toAutomaton(new ToTabledAutomaton(remainder));
+		return GenericAutomatonBuilder.matchAlternatives(as);
+	}
+
+	private synchronized Automaton utf8Automaton() {
+		if (utf8Automaton == null) {
+			utf8Automaton = nfa.toAutomaton(new ToUtf8TabledAutomaton(remainder));
+		}
+		return utf8Automaton;
 	}
 
 	@Override
 	public Iterator<T> lex(String input) {
-		return new TokenFilter<T>(automaton.tokenize(new StringCharProvider(input, 0), factory)) {
-
-			@Override
-			public boolean isValid(T token) {
-				if (token.getType() == null || token.getType() == DefaultTokenType.IGNORE || token.getType() == DefaultTokenType.ERROR) {
-					return false;
-				} else {
-					return true;
+		return new TokenIterator<T>(cursor(input), factory);
+	}
+
+	@Override
+	public Iterator<T> lex(Reader input) {
+		return new TokenIterator<T>(cursor(input), factory);
+	}
+
+	@Override
+	public Iterator<T> lex(ReadableByteChannel input, Charset charset) {
+		return lex(Channels.newReader(input, charset.newDecoder(), -1));
+	}
+
+	@Override
+	public Iterator<T> lex(ByteBuffer input, Charset charset) {
+		return new TokenIterator<T>(cursor(input, charset), factory);
+	}
+
+	/**
+	 * lexes the input without creating token objects. Ignored tokens are skipped.
+	 */
+	public TokenCursor cursor(String input) {
+		return cursor(automaton, new StringCharProvider(input, 0));
+	}
+
+	/**
+	 * lexes the input in a streaming way without creating token objects. Ignored tokens are skipped.
+	 */
+	public TokenCursor cursor(Reader input) {
+		return cursor(automaton, new StreamCharProvider(input));
+	}
+
+	/**
+	 * lexes the input without copying it and without creating token objects. Ignored tokens are skipped. The positions of the cursor
+	 * are byte positions (relative to the position of the buffer). UTF-8 input is decoded on the fly if this lexer was created from a
+	 * precompiled automaton (there is no automaton on UTF-8 bytes then), other charsets are decoded up front.
+	 */
+	public TokenCursor cursor(ByteBuffer input, Charset charset) {
+		if (charset.equals(StandardCharsets.ISO_8859_1) || charset.equals(StandardCharsets.US_ASCII)) {
+			return cursor(automaton, new ByteBufferCharProvider(input));
+		} else if (charset.equals(StandardCharsets.UTF_8) && nfa != null) {
+			return cursor(utf8Automaton(), new ByteBufferCharProvider(input, charset));
+		} else if (charset.equals(StandardCharsets.UTF_8)) {
+			return cursor(automaton, new Utf8ByteBufferCharProvider(input));
+		} else {
+			return cursor(charset.decode(input.duplicate()).toString());
+		}
+	}
+
+	private static TokenCursor cursor(Automaton automaton, CharProvider chars) {
+		return new TokenCursor(automaton, chars, IGNORED);
+	}
+
+	/**
+	 * lexes the input in parallel chunks, the tokens are returned in the same order as with {@link #lex(String)}.
+	 * 
+	 * Each chunk is lexed speculatively, guessing that a token starts at the start of the chunk. The chunks are then verified in order:
+	 * the speculative tokens of a chunk are accepted from the first token that starts where the tokens of the preceding chunks
+	 * end (lexing from a token boundary does not depend on the chars before). Only the tokens before such a synchronization point
+	 * are lexed again, which are typically few (a token that was split by the chunk start).
+	 * 
+	 * @param input the input to lex
+	 * @param executor the executor running the speculative lexing of the chunks
+	 * @return the tokens of the input
+	 */
+	public Iterator<T> lex(String input, Executor executor) {
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, input.length() / (4 * Runtime.getRuntime().availableProcessors()) + 1);
+		return lex(input, executor, chunkSize);
+	}
+
+	Iterator<T> lex(String input, Executor executor, int chunkSize) {
+		return new ParallelLexing<T>(input, automaton, factory, executor, chunkSize).lex().iterator();
+	}
+
+	private static class ParallelLexing<T extends Token> {
+
+		private String input;
+		private CharProvider chars;
+		private Automaton automaton;
+		private TokenFactory<T> factory;
+		private RangeTokenFactory<T> rangeFactory;
+		private Executor executor;
+		private int chunkSize;
+		private int chunks;
+
+		public ParallelLexing(String input, Automaton automaton, TokenFactory<T> factory, Executor executor, int chunkSize) {
+			this.input = input;
+			this.chars = new StringCharProvider(input, 0);
+			this.automaton = automaton;
+			this.factory = factory;
+			this.rangeFactory = factory instanceof RangeTokenFactory ? (RangeTokenFactory<T>) factory : null;
+			this.executor = executor;
+			this.chunkSize = chunkSize;
+			this.chunks = (input.length() + chunkSize - 1) / chunkSize;
+		}
+
+		public List<T> lex() {
+			List<FutureTask<Tokens>> tasks = new ArrayList<FutureTask<Tokens>>(chunks);
+			for (int i = 0; i < chunks; i++) {
+				final int chunk = i;
+				tasks.add(submit(new Callable<Tokens>() {
+					@Override
+					public Tokens call() throws Exception {
+						return speculate(chunk);
+					}
+				}));
+			}
+			List<T> tokens = new ArrayList<T>();
+			long pos = 0;
+			for (int i = 0; i < chunks; i++) {
+				Tokens speculated = join(tasks.get(i));
+				long chunkEnd = chunkEnd(i);
+				while (pos < chunkEnd) {
+					int index = speculated.indexOf(pos);
+					if (index >= 0) {
+						for (int j = index; j < speculated.size; j++) {
+							add(tokens, speculated.starts[j], speculated.ends[j], speculated.types[j]);
+						}
+						pos = speculated.ends[speculated.size - 1];
+					} else {
+						TokenCursor cursor = new TokenCursor(automaton, new StringCharProvider(input, (int) pos));
+						cursor.next();
+						add(tokens, cursor.start(), cursor.end(), cursor.type());
+						pos = cursor.end();
+					}
 				}
 			}
-			
-		};
+			return tokens;
+		}
+
+		private long chunkEnd(int chunk) {
+			return Math.min((long) (chunk + 1) * chunkSize, input.length());
+		}
+
+		/**
+		 * lexes the tokens starting in the given chunk, guessing that a token starts at the start of the chunk.
+		 */
+		private Tokens speculate(int chunk) {
+			long chunkEnd = chunkEnd(chunk);
+			Tokens tokens = new Tokens();
+			TokenCursor cursor = new TokenCursor(automaton, new StringCharProvider(input, chunk * chunkSize));
+			while (cursor.next() && cursor.start() < chunkEnd) {
+				tokens.add(cursor.start(), cursor.end(), cursor.type());
+			}
+			return tokens;
+		}
+
+		private void add(List<T> tokens, long start, long end, TokenType type) {
+			if (IGNORED.contains(type)) {
+				return;
+			} else if (rangeFactory != null) {
+				tokens.add(rangeFactory.createToken(chars, start, end, type));
+			} else {
+				tokens.add(factory.createToken(input.substring((int) start, (int) end), type));
+			}
+		}
+
+		private <S> FutureTask<S> submit(Callable<S> callable) {
+			FutureTask<S> task = new FutureTask<S>(callable);
+			executor.execute(task);
+			return task;
+		}
+
+		private static <S> S join(FutureTask<S> task) {
+			try {
+				return task.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+		}
+
+	}
+
+	/**
+	 * the positions and types of speculated tokens, ordered by start.
+	 */
+	private static class Tokens {
+
+		private long[] starts;
+		private long[] ends;
+		private TokenType[] types;
+		private int size;
+
+		public Tokens() {
+			this.starts = new long[16];
+			this.ends = new long[16];
+			this.types = new TokenType[16];
+		}
+
+		public void add(long start, long end, TokenType type) {
+			if (size == starts.length) {
+				starts = Arrays.copyOf(starts, size * 2);
+				ends = Arrays.copyOf(ends, size * 2);
+				types = Arrays.copyOf(types, size * 2);
+			}
+			starts[size] = start;
+			ends[size] = end;
+			types[size] = type;
+			size++;
+		}
+
+		public int indexOf(long start) {
+			int index = Arrays.binarySearch(starts, 0, size, start);
+			return index >= 0 ? index : -1;
+		}
+
 	}
 
 }
@@ -0,0 +1,158 @@
+package com.almondtools.rexlex.lexer;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import com.almondtools.rexlex.Lexer;
+import com.almondtools.rexlex.Token;
+import com.almondtools.rexlex.TokenFactory;
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.Automaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToLazyAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToMinimalDeterministicGenericAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.automaton.GenericAutomaton;
+import com.almondtools.rexlex.automaton.GenericAutomatonBuilder;
+import com.almondtools.rexlex.automaton.LazyAutomaton;
+import com.almondtools.rexlex.pattern.DefaultTokenType;
+import com.almondtools.rexlex.pattern.Pattern;
+import com.almondtools.rexlex.pattern.RemainderTokenType;
+
+/**
+ * a lexer whose patterns may be added, replaced and removed after construction. Each pattern is compiled once to a minimal
+ * deterministic automaton. A change only compiles the changed pattern and combines the automata of all patterns to a
+ * {@link LazyAutomaton}, i.e. the (potentially large) product of the patterns is determinized lazily while lexing.
+ *
+ * If an executor is given, the completely compiled automaton (as in {@link DynamicLexer}) is built in the background and swapped in
+ * atomically if no further change happened meanwhile. Each lexing uses the automaton that was current when it started.
+ */
+public class IncrementalLexer<T extends Token> implements Lexer<T> {
+
+	private TokenType remainder;
+	private TokenFactory<T> factory;
+	private Executor executor;
+	private Map<String, TokenType> types;
+	private Map<String, GenericAutomaton> automata;
+	private long version;
+
+	private volatile DynamicLexer<T> lexer;
+	private volatile boolean compiled;
+
+	public IncrementalLexer(Map<String, TokenType> patternToTypes, TokenType remainder, TokenFactory<T> factory) {
+		this(patternToTypes, remainder, factory, null);
+	}
+
+	/**
+	 * @param executor the executor building the completely compiled automaton after each change (or null to lex only with the lazy automaton)
+	 */
+	public IncrementalLexer(Map<String, TokenType> patternToTypes, TokenType remainder, TokenFactory<T> factory, Executor executor) {
+		this.remainder = remainder;
+		this.factory = factory;
+		this.executor = executor;
+		this.types = new LinkedHashMap<String, TokenType>();
+		this.automata = new LinkedHashMap<String, GenericAutomaton>();
+		for (Map.Entry<String, TokenType> entry : patternToTypes.entrySet()) {
+			compile(entry.getKey(), entry.getValue());
+		}
+		update();
+	}
+
+	/**
+	 * adds the pattern or replaces the type of the pattern.
+	 */
+	public synchronized void matchPattern(String pattern, TokenType type) {
+		if (types.containsKey(pattern) && types.get(pattern) == type) {
+			return;
+		}
+		compile(pattern, type);
+		update();
+	}
+
+	public synchronized void removePattern(String pattern) {
+		if (types.remove(pattern) == null) {
+			return;
+		}
+		automata.remove(pattern);
+		update();
+	}
+
+	public synchronized Map<String, TokenType> getPatterns() {
+		return new LinkedHashMap<String, TokenType>(types);
+	}
+
+	public Automaton getAutomaton() {
+		return lexer.getAutomaton();
+	}
+
+	/**
+	 * @return true if the completely compiled automaton of the current patterns is used, false if the lazy automaton is used
+	 */
+	public boolean isCompiled() {
+		return compiled;
+	}
+
+	private void compile(String pattern, TokenType type) {
+		TokenType tokenType = type == null ? DefaultTokenType.IGNORE : type;
+		GenericAutomaton automaton = Pattern.compileGenericAutomaton(pattern, new RemainderTokenType(tokenType));
+		types.put(pattern, type);
+		automata.put(pattern, automaton.toAutomaton(new ToMinimalDeterministicGenericAutomaton()));
+	}
+
+	private synchronized void update() {
+		final long current = ++version;
+		List<GenericAutomaton> as = new ArrayList<GenericAutomaton>(automata.values());
+		GenericAutomaton nfa = GenericAutomatonBuilder.matchAlternatives(as);
+		lexer = new DynamicLexer<T>(nfa.toAutomaton(new ToLazyAutomaton(remainder)), factory);
+		compiled = false;
+		if (executor != null) {
+			final GenericAutomaton snapshot = nfa.clone();
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					swap(current, snapshot.toAutomaton(new ToTabledAutomaton(remainder)));
+				}
+			});
+		}
+	}
+
+	private synchronized void swap(long version, Automaton automaton) {
+		if (version == this.version) {
+			lexer = new DynamicLexer<T>(automaton, factory);
+			compiled = true;
+		}
+	}
+
+	@Override
+	public Iterator<T> lex(String input) {
+		return lexer.lex(input);
+	}
+
+	@Override
+	public Iterator<T> lex(Reader input) {
+		return lexer.lex(input);
+	}
+
+	@Override
+	public Iterator<T> lex(ReadableByteChannel input, Charset charset) {
+		return lexer.lex(input, charset);
+	}
+
+	/**
+	 * lexes the input without copying it. UTF-8 input is decoded on the fly (there is no automaton on UTF-8 bytes), the positions of
+	 * the tokens are byte positions.
+	 */
+	@Override
+	public Iterator<T> lex(ByteBuffer input, Charset charset) {
+		return lexer.lex(input, charset);
+	}
+
+}
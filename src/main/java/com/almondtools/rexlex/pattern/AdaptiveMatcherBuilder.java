@@ -0,0 +1,49 @@
+package com.almondtools.rexlex.pattern;
+
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToAdaptiveAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToAdaptiveAutomaton.Engine;
+import com.almondtools.rexlex.automaton.GenericAutomaton;
+
+/**
+ * matches and finds like the {@link DefaultMatcherBuilder}, but selects the engine (aho-corasick, bit-parallel, tabled or lazy
+ * automaton) by the compiled pattern, see {@link ToAdaptiveAutomaton}.
+ */
+public class AdaptiveMatcherBuilder extends DefaultMatcherBuilder {
+
+	private ToAdaptiveAutomaton selector;
+
+	public AdaptiveMatcherBuilder() {
+		this(new ToAdaptiveAutomaton());
+	}
+
+	/**
+	 * @param maxCells the maximum number of cells (states x relevant chars) of a tabled automaton
+	 */
+	public AdaptiveMatcherBuilder(int maxCells) {
+		this(new ToAdaptiveAutomaton(null, maxCells));
+	}
+
+	private AdaptiveMatcherBuilder(ToAdaptiveAutomaton selector) {
+		super(selector);
+		this.selector = selector;
+	}
+
+	@Override
+	AdaptiveMatcherBuilder copy() {
+		return new AdaptiveMatcherBuilder(selector);
+	}
+
+	public static AdaptiveMatcherBuilder from(GenericAutomaton nfa) {
+		AdaptiveMatcherBuilder builder = new AdaptiveMatcherBuilder();
+		builder.initWith(nfa);
+		return builder;
+	}
+
+	/**
+	 * @return the engine selected for the pattern (null if not yet initialized)
+	 */
+	public Engine getEngine() {
+		return Engine.of(getAutomaton());
+	}
+
+}
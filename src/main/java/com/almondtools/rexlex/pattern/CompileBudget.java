@@ -0,0 +1,75 @@
+package com.almondtools.rexlex.pattern;
+
+/**
+ * limits the resources spent on compiling a pattern: the number of states of the deterministic automaton, the number of table
+ * cells (states x character classes) of a tabled automaton and the compile time. A compilation exceeding the budget fails with a
+ * {@link PatternCompileException} carrying the statistics collected so far.
+ */
+public class CompileBudget implements PatternOption {
+
+	public static final int UNLIMITED_STATES = Integer.MAX_VALUE;
+	public static final long UNLIMITED_CELLS = Long.MAX_VALUE;
+	public static final long UNLIMITED_MILLIS = Long.MAX_VALUE;
+
+	private int maxStates;
+	private long maxCells;
+	private long maxMillis;
+
+	/**
+	 * @param maxStates the maximum number of deterministic states
+	 * @param maxCells the maximum number of table cells
+	 * @param maxMillis the maximum compile time in milliseconds
+	 */
+	public CompileBudget(int maxStates, long maxCells, long maxMillis) {
+		this.maxStates = maxStates;
+		this.maxCells = maxCells;
+		this.maxMillis = maxMillis;
+	}
+
+	public static CompileBudget maxStates(int maxStates) {
+		return new CompileBudget(maxStates, UNLIMITED_CELLS, UNLIMITED_MILLIS);
+	}
+
+	public static CompileBudget maxCells(long maxCells) {
+		return new CompileBudget(UNLIMITED_STATES, maxCells, UNLIMITED_MILLIS);
+	}
+
+	public static CompileBudget maxMillis(long maxMillis) {
+		return new CompileBudget(UNLIMITED_STATES, UNLIMITED_CELLS, maxMillis);
+	}
+
+	public int getMaxStates() {
+		return maxStates;
+	}
+
+	public long getMaxCells() {
+		return maxCells;
+	}
+
+	public long getMaxMillis() {
+		return maxMillis;
+	}
+
+	@Override
+	public int hashCode() {
+		return ((17 + maxStates) * 31 + Long.hashCode(maxCells)) * 31 + Long.hashCode(maxMillis);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		CompileBudget that = (CompileBudget) obj;
+		return this.maxStates == that.maxStates
+			&& this.maxCells == that.maxCells
+			&& this.maxMillis == that.maxMillis;
+	}
+
+}
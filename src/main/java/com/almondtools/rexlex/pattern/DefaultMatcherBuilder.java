@@ -14,6 +14,7 @@ public class DefaultMatcherBuilder implements MatcherBuilder {
 
 	private ToAutomaton<GenericAutomaton, ?> builder;
 	private Automaton automaton;
+	private String prefix;
 
 	public DefaultMatcherBuilder(ToAutomaton<GenericAutomaton, ?> builder) {
 		this.builder = builder;
@@ -23,6 +24,21 @@ public class DefaultMatcherBuilder implements MatcherBuilder {
 		this(new ToTabledAutomaton());
 	}
 
+	ToAutomaton<GenericAutomaton, ?> getBuilder() {
+		return builder;
+	}
+
+	Automaton getAutomaton() {
+		return automaton;
+	}
+
+	/**
+	 * @return an uninitialized builder with the same transformation
+	 */
+	DefaultMatcherBuilder copy() {
+		return new DefaultMatcherBuilder(builder);
+	}
+
 	public static DefaultMatcherBuilder from(GenericAutomaton nfa) {
 		DefaultMatcherBuilder builder = new DefaultMatcherBuilder();
 		builder.initWith(nfa);
@@ -32,12 +48,13 @@ public class DefaultMatcherBuilder implements MatcherBuilder {
 	@Override
 	public MatcherBuilder initWith(GenericAutomaton nfa) {
 		automaton = nfa.toAutomaton(builder);
+		prefix = nfa.computeLiteralPrefix();
 		return this;
 	}
 
 	@Override
 	public com.almondtools.rexlex.pattern.Finder buildFinder(String input) {
-		return new Finder(input, automaton.matcher());
+		return new Finder(input, prefix, automaton.matcher());
 	}
 
 	@Override
@@ -84,11 +101,15 @@ public class DefaultMatcherBuilder implements MatcherBuilder {
 
 	private static class Finder extends com.almondtools.rexlex.pattern.Finder implements AutomatonMatcherListener {
 
+		private String text;
+		private String prefix;
 		private AutomatonMatcher matcher;
 		private final Match nextMatch;
 
-		public Finder(String text, AutomatonMatcher matcher) {
+		public Finder(String text, String prefix, AutomatonMatcher matcher) {
 			super(text);
+			this.text = text;
+			this.prefix = prefix;
 			this.matcher = matcher;
 			this.matcher.withListener(this);
 			this.nextMatch = new Match();
@@ -122,14 +143,33 @@ public class DefaultMatcherBuilder implements MatcherBuilder {
 				chars.move(match.end);
 				return true;
 			} else {
-				chars.move(start + 1);
+				skipToCandidate(start + 1);
 				return false;
 			}
 		}
 
+		private void skipToCandidate(long pos) {
+			if (prefix.isEmpty()) {
+				chars.move(pos);
+				return;
+			}
+			int candidate = pos <= text.length() ? text.indexOf(prefix, (int) pos) : -1;
+			if (candidate < 0) {
+				chars.finish();
+			} else {
+				chars.move(candidate);
+			}
+		}
+
 		@Override
 		public boolean find() {
 			match.moveFrom(nextMatch);
+			if (!match.isMatch() && !prefix.isEmpty()) {
+				skipToCandidate(chars.current());
+				if (chars.finished()) {
+					return false;
+				}
+			}
 			matcher.applyTo(chars);
 			if (!match.isMatch()) {
 				chars.finish();
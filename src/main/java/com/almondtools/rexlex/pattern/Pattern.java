@@ -5,9 +5,11 @@ import static com.almondtools.rexlex.pattern.PatternOptionUtil.splitFirst;
 import static com.almondtools.rexlex.pattern.PatternOptionUtil.splitOf;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import com.almondtools.rexlex.automaton.Automaton;
 import com.almondtools.rexlex.automaton.AutomatonBuilder;
+import com.almondtools.rexlex.automaton.CompileStatistics;
 import com.almondtools.rexlex.automaton.GenericAutomaton;
 import com.almondtools.rexlex.automaton.GenericAutomatonBuilder;
 import com.almondtools.rexlex.automaton.ToAutomaton;
@@ -21,11 +23,16 @@ public class Pattern {
 	private static final GenericAutomatonBuilder DEFAULT_AUTOMATON_BUILDER = new GenericAutomatonBuilder();
 
 	private String pattern;
+	private GenericAutomaton nfa;
 	private MatcherBuilder builder;
+	private CompileBudget budget;
+	private SearchMatcherBuilder search;
 
-	private Pattern(String pattern, MatcherBuilder builder) {
+	private Pattern(String pattern, GenericAutomaton nfa, MatcherBuilder builder, CompileBudget budget) {
 		this.pattern = pattern;
+		this.nfa = nfa;
 		this.builder = builder;
+		this.budget = budget;
 	}
 
 	private static DefaultMatcherBuilder defaultMatcherBuilder() {
@@ -42,12 +49,13 @@ public class Pattern {
 		for (int i = 0; i < parserOptions.length; i++) {
 			parserOptions[i] = patternFlags.get(i).getOption();
 		}
+		CompileBudget budget = splitFirst(options, CompileBudget.class);
 		RegexNode node = new RegexParser(pattern, parserOptions).parse();
 		RemainderTokenType tokenType = splitFirst(options, RemainderTokenType.class);
 		if (tokenType == null) {
-			return automatonBuilder(options).buildFrom(node);
+			return automatonBuilder(options).buildFrom(node).withBudget(budget);
 		} else {
-			return automatonBuilder(options).buildFrom(node, tokenType.getRemainder());
+			return automatonBuilder(options).buildFrom(node, tokenType.getRemainder()).withBudget(budget);
 		}
 	}
 
@@ -57,7 +65,9 @@ public class Pattern {
 
 	public static <T extends Automaton> T compileAutomaton(String pattern, ToAutomaton<GenericAutomaton, T> transformer, List<PatternOption> list) {
 		GenericAutomaton genericAutomaton = compileGenericAutomaton(pattern, list);
-		return transformer.transform(genericAutomaton);
+		T automaton = transformer.transform(genericAutomaton);
+		finish(genericAutomaton);
+		return automaton;
 	}
 
 	public static <T extends Automaton> T compileAutomaton(String pattern, ToAutomaton<GenericAutomaton, T> transformer, PatternOption... options) {
@@ -66,7 +76,21 @@ public class Pattern {
 
 	public static Pattern compile(String pattern, List<PatternOption> options) {
 		GenericAutomaton genericAutomaton = compileGenericAutomaton(pattern, options);
-		return new Pattern(pattern, matcherBuilder(options).initWith(genericAutomaton));
+		MatcherBuilder builder = matcherBuilder(options).initWith(genericAutomaton);
+		CompileBudget budget = finish(genericAutomaton);
+		return new Pattern(pattern, genericAutomaton, builder, budget);
+	}
+
+	/**
+	 * @return the budget of the finished compilation (or null if the compilation has no budget)
+	 */
+	private static CompileBudget finish(GenericAutomaton genericAutomaton) {
+		CompileStatistics statistics = genericAutomaton.getStatistics();
+		if (statistics == null) {
+			return null;
+		}
+		statistics.finish();
+		return statistics.getBudget();
 	}
 
 	public static Pattern compile(String pattern, PatternOption... options) {
@@ -97,4 +121,26 @@ public class Pattern {
 		return builder.buildMatcher(input);
 	}
 
+	/**
+	 * finds all matches (the same as {@link #finder(String)} would find), large inputs are split into chunks that are searched in
+	 * parallel by the given executor. The automata for searching are compiled on first use (within the compile budget of this
+	 * pattern, i.e. this may fail with a {@link PatternCompileException}).
+	 */
+	public List<Match> findAll(String input, Executor executor) {
+		return search().findAll(input, executor);
+	}
+
+	private synchronized SearchMatcherBuilder search() {
+		if (search == null) {
+			if (builder instanceof SearchMatcherBuilder) {
+				search = (SearchMatcherBuilder) builder;
+			} else {
+				GenericAutomaton searchAutomaton = nfa.clone().withBudget(budget);
+				search = SearchMatcherBuilder.from(searchAutomaton);
+				finish(searchAutomaton);
+			}
+		}
+		return search;
+	}
+
 }
@@ -0,0 +1,270 @@
+package com.almondtools.rexlex.pattern;
+
+import static com.almondtools.rexlex.pattern.PatternOptionUtil.list;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.almondtools.rexlex.automaton.GenericAutomatonBuilder;
+import com.almondtools.rexlex.automaton.ThompsonAutomatonBuilder;
+
+/**
+ * caches compiled patterns by pattern and options, the least recently used patterns are evicted if the cache exceeds its maximum
+ * weight. Concurrent compilations of the same pattern and options are coalesced, i.e. the pattern is compiled once and all callers
+ * get the same pattern. Compiled patterns may be shared between threads (each finder or matcher has its own state).
+ *
+ * Options are compared by equality. The builders of this library that take no parameters are compared by their class, a
+ * {@link DefaultMatcherBuilder} (or {@link AdaptiveMatcherBuilder}) by its class and its transformation (transformations are compared by their parameters). Other
+ * builders are compared by their own equality (i.e. by identity if they do not override it). As matcher builders keep the automaton
+ * they were initialized with, the matcher builders of this library are copied before compiling, such that patterns do not share a
+ * builder with the caller or with each other. Other matcher builders are used as given, they should not be shared between patterns.
+ */
+public class PatternCache {
+
+	private long maximumWeight;
+	private Weigher weigher;
+
+	private LinkedHashMap<Key, Entry> patterns;
+	private Map<Key, FutureTask<Pattern>> compiling;
+	private long weight;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param maximumSize the maximum number of cached patterns
+	 */
+	public PatternCache(int maximumSize) {
+		this(maximumSize, new Weigher() {
+
+			@Override
+			public long weigh(String pattern, Pattern compiled) {
+				return 1;
+			}
+		});
+	}
+
+	/**
+	 * @param maximumWeight the maximum sum of weights of the cached patterns
+	 * @param weigher the weigher computing the weight of a compiled pattern
+	 */
+	public PatternCache(long maximumWeight, Weigher weigher) {
+		this.maximumWeight = maximumWeight;
+		this.weigher = weigher;
+		this.patterns = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+		this.compiling = new HashMap<Key, FutureTask<Pattern>>();
+	}
+
+	public Pattern compile(String pattern, PatternOption... options) {
+		return compile(pattern, list(options));
+	}
+
+	public Pattern compile(final String pattern, List<PatternOption> options) {
+		Key key = new Key(pattern, options);
+		final List<PatternOption> compileOptions = new ArrayList<PatternOption>(options.size());
+		for (PatternOption option : options) {
+			compileOptions.add(copyOf(option));
+		}
+		FutureTask<Pattern> task;
+		boolean compile = false;
+		synchronized (this) {
+			Entry entry = patterns.get(key);
+			if (entry != null) {
+				hits++;
+				return entry.pattern;
+			}
+			task = compiling.get(key);
+			if (task == null) {
+				misses++;
+				task = new FutureTask<Pattern>(new Callable<Pattern>() {
+
+					@Override
+					public Pattern call() throws Exception {
+						return Pattern.compile(pattern, compileOptions);
+					}
+				});
+				compiling.put(key, task);
+				compile = true;
+			} else {
+				hits++;
+			}
+		}
+		if (compile) {
+			task.run();
+			synchronized (this) {
+				compiling.remove(key);
+				Pattern compiled = compiled(task);
+				if (compiled != null) {
+					put(key, compiled);
+				}
+			}
+		}
+		return join(task);
+	}
+
+	private static PatternOption copyOf(PatternOption option) {
+		if (isDefaultMatcherBuilder(option)) {
+			return ((DefaultMatcherBuilder) option).copy();
+		} else if (option.getClass() == SearchMatcherBuilder.class) {
+			return new SearchMatcherBuilder();
+		} else {
+			return option;
+		}
+	}
+
+	private static boolean isDefaultMatcherBuilder(PatternOption option) {
+		Class<?> clazz = option.getClass();
+		return clazz == DefaultMatcherBuilder.class
+			|| clazz == AdaptiveMatcherBuilder.class;
+	}
+
+	private void put(Key key, Pattern pattern) {
+		long patternWeight = weigher.weigh(key.pattern, pattern);
+		patterns.put(key, new Entry(pattern, patternWeight));
+		weight += patternWeight;
+		Iterator<Entry> entries = patterns.values().iterator();
+		while (weight > maximumWeight && entries.hasNext()) {
+			Entry entry = entries.next();
+			entries.remove();
+			weight -= entry.weight;
+			evictions++;
+		}
+	}
+
+	/**
+	 * @return the compiled pattern of the completed task, or null if the compilation failed (failures are not cached)
+	 */
+	private static Pattern compiled(FutureTask<Pattern> task) {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			return null;
+		}
+	}
+
+	private static Pattern join(FutureTask<Pattern> task) {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	public synchronized void clear() {
+		patterns.clear();
+		weight = 0;
+	}
+
+	public synchronized int size() {
+		return patterns.size();
+	}
+
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	public interface Weigher {
+
+		long weigh(String pattern, Pattern compiled);
+
+	}
+
+	private static class Entry {
+
+		private Pattern pattern;
+		private long weight;
+
+		public Entry(Pattern pattern, long weight) {
+			this.pattern = pattern;
+			this.weight = weight;
+		}
+
+	}
+
+	private static class Key {
+
+		private String pattern;
+		private List<Object> options;
+
+		public Key(String pattern, List<PatternOption> options) {
+			this.pattern = pattern;
+			this.options = new ArrayList<Object>(options.size());
+			for (PatternOption option : options) {
+				this.options.add(keyOf(option));
+			}
+		}
+
+		private static Object keyOf(PatternOption option) {
+			if (isDefaultMatcherBuilder(option)) {
+				return Arrays.<Object> asList(option.getClass(), ((DefaultMatcherBuilder) option).getBuilder());
+			} else if (isParameterless(option)) {
+				return option.getClass();
+			} else {
+				return option;
+			}
+		}
+
+		private static boolean isParameterless(PatternOption option) {
+			Class<?> clazz = option.getClass();
+			return clazz == SearchMatcherBuilder.class
+				|| clazz == GenericAutomatonBuilder.class
+				|| clazz == ThompsonAutomatonBuilder.class;
+		}
+
+		@Override
+		public int hashCode() {
+			return pattern.hashCode() * 31 + options.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			Key that = (Key) obj;
+			return this.pattern.equals(that.pattern)
+				&& this.options.equals(that.options);
+		}
+
+	}
+
+}
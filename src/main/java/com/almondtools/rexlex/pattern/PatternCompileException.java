@@ -1,11 +1,27 @@
 package com.almondtools.rexlex.pattern;
 
+import com.almondtools.rexlex.automaton.CompileStatistics;
+
 public class PatternCompileException extends RuntimeException {
 
 	private static final long serialVersionUID = 1L;
 
+	private transient CompileStatistics statistics;
+
 	public PatternCompileException(String pattern, int pos, String expectedChars) {
 		super("error compiling pattern <" + pattern + "> at position " + pos + ", found: " + (pattern.length() <= pos ? "eof" : pattern.charAt(pos)) + ", expecting on of: " + expectedChars);
 	}
 
+	public PatternCompileException(String message, CompileStatistics statistics) {
+		super(message + " (" + statistics + ")");
+		this.statistics = statistics;
+	}
+
+	/**
+	 * @return the statistics of the compilation that exceeded its {@link CompileBudget} (null for other errors)
+	 */
+	public CompileStatistics getStatistics() {
+		return statistics;
+	}
+
 }
@@ -15,5 +15,25 @@ public class PatternFlag implements PatternOption {
 	public RegexParserOption getOption() {
 		return option;
 	}
-	
-}
\ No newline at end of file
+
+	@Override
+	public int hashCode() {
+		return option.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		PatternFlag that = (PatternFlag) obj;
+		return this.option == that.option;
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.almondtools.rexlex.pattern;
 
+import java.util.Objects;
+
 import com.almondtools.rexlex.TokenType;
 
 
@@ -14,4 +16,25 @@ public class RemainderTokenType implements PatternOption {
 	public TokenType getRemainder() {
 		return remainder;
 	}
-}
\ No newline at end of file
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(remainder);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		RemainderTokenType that = (RemainderTokenType) obj;
+		return Objects.equals(this.remainder, that.remainder);
+	}
+
+}
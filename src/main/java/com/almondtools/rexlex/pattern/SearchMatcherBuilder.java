@@ -0,0 +1,362 @@
+package com.almondtools.rexlex.pattern;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.automaton.GenericAutomaton;
+import com.almondtools.rexlex.automaton.TabledAutomaton;
+import com.almondtools.rexlex.automaton.TabledAutomaton.LongestMatches;
+
+/**
+ * searches in linear time: a backward pass of the reverted automaton (prefixed with .*) marks all positions where a match starts,
+ * a forward pass of the anchored automaton then determines the longest match at the leftmost marked position (memoizing dead ends
+ * such that the forward passes do not scan the same chars again and again).
+ */
+public class SearchMatcherBuilder implements MatcherBuilder {
+
+	private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+	private TabledAutomaton forward;
+	private TabledAutomaton backward;
+
+	public SearchMatcherBuilder() {
+	}
+
+	public static SearchMatcherBuilder from(GenericAutomaton nfa) {
+		SearchMatcherBuilder builder = new SearchMatcherBuilder();
+		builder.initWith(nfa);
+		return builder;
+	}
+
+	@Override
+	public MatcherBuilder initWith(GenericAutomaton nfa) {
+		forward = nfa.toAutomaton(new ToTabledAutomaton());
+		backward = nfa.revert().addInitialSelfLoop().toAutomaton(new ToTabledAutomaton());
+		return this;
+	}
+
+	@Override
+	public com.almondtools.rexlex.pattern.Finder buildFinder(String input) {
+		return new Finder(input, forward, backward);
+	}
+
+	@Override
+	public com.almondtools.rexlex.pattern.Matcher buildMatcher(String input) {
+		return new Matcher(input, forward);
+	}
+
+	/**
+	 * finds all matches (the same as a finder would find) by searching chunks of the input in parallel.
+	 */
+	public List<Match> findAll(String input, Executor executor) {
+		int processors = Runtime.getRuntime().availableProcessors();
+		return findAll(input, executor, Math.max(MIN_CHUNK_SIZE, input.length() / (processors * 4) + 1));
+	}
+
+	List<Match> findAll(String input, Executor executor, int chunkSize) {
+		return new ParallelSearch(input, forward, backward, executor, chunkSize).findAll();
+	}
+
+	private static boolean accepts(TokenType type) {
+		return type != null && type.accept();
+	}
+
+	private static class Matcher extends com.almondtools.rexlex.pattern.Matcher {
+
+		private String text;
+		private TabledAutomaton automaton;
+
+		public Matcher(String text, TabledAutomaton automaton) {
+			super(text);
+			this.text = text;
+			this.automaton = automaton;
+		}
+
+		@Override
+		public boolean matches() {
+			int error = automaton.getErrorState();
+			int state = automaton.getStartState();
+			for (int i = 0; i < text.length() && state != error; i++) {
+				state = automaton.next(state, text.charAt(i));
+			}
+			return accepts(automaton.getType(state));
+		}
+
+	}
+
+	private static class Finder extends com.almondtools.rexlex.pattern.Finder {
+
+		private String text;
+		private TabledAutomaton forward;
+		private TabledAutomaton backward;
+
+		private LongestMatches longestMatches;
+		private BitSet starts;
+		private boolean acceptsEmpty;
+		private int pos;
+
+		public Finder(String text, TabledAutomaton forward, TabledAutomaton backward) {
+			super(text);
+			this.text = text;
+			this.forward = forward;
+			this.backward = backward;
+			this.longestMatches = forward.longestMatches(text);
+		}
+
+		@Override
+		public boolean find() {
+			if (starts == null) {
+				markStarts();
+			}
+			int start = acceptsEmpty ? pos : starts.nextSetBit(pos);
+			if (start < 0 || start > text.length()) {
+				match.reset();
+				pos = text.length() + 1;
+				chars.finish();
+				return false;
+			}
+			matchAt(start);
+			pos = match.end > start ? (int) match.end : start + 1;
+			if (pos <= text.length()) {
+				chars.move(pos);
+			} else {
+				chars.finish();
+			}
+			return true;
+		}
+
+		private void markStarts() {
+			starts = new BitSet(text.length());
+			acceptsEmpty = accepts(forward.getType(forward.getStartState()));
+			int error = backward.getErrorState();
+			int state = backward.getStartState();
+			for (int i = text.length() - 1; i >= 0 && state != error; i--) {
+				state = backward.next(state, text.charAt(i));
+				if (accepts(backward.getType(state))) {
+					starts.set(i);
+				}
+			}
+		}
+
+		private void matchAt(int start) {
+			longestMatches.matchAt(start);
+			int end = longestMatches.end();
+			match.init(start, end, text.substring(start, end), longestMatches.type());
+		}
+
+	}
+
+	/**
+	 * the parallel variant of the finder. Both passes are split into chunks, each chunk is processed speculatively and the
+	 * speculative results are fixed sequentially:
+	 * <ul>
+	 * <li>the backward pass of each chunk starts in the start state. As the backward automaton starts with a self loop, its real
+	 * state subsumes the speculative one, the fix up reruns a chunk from its real state until both states are the same.</li>
+	 * <li>the forward pass of each chunk starts at the first match start in the chunk. The matches following a match start do not
+	 * depend on the position the search started at, so speculative matches are reused from the first start that the sequential
+	 * search reaches, too.</li>
+	 * </ul>
+	 */
+	private static class ParallelSearch {
+
+		private String text;
+		private TabledAutomaton forward;
+		private TabledAutomaton backward;
+		private Executor executor;
+		private int chunkSize;
+		private int chunks;
+
+		private BitSet[] starts;
+		private boolean acceptsEmpty;
+
+		public ParallelSearch(String text, TabledAutomaton forward, TabledAutomaton backward, Executor executor, int chunkSize) {
+			this.text = text;
+			this.forward = forward;
+			this.backward = backward;
+			this.executor = executor;
+			this.chunkSize = chunkSize;
+			this.chunks = text.length() / chunkSize + 1;
+			this.acceptsEmpty = accepts(forward.getType(forward.getStartState()));
+		}
+
+		public List<Match> findAll() {
+			markStarts();
+			return selectMatches();
+		}
+
+		private int chunkStart(int chunk) {
+			return Math.min(chunk * chunkSize, text.length());
+		}
+
+		private void markStarts() {
+			starts = new BitSet[chunks];
+			List<FutureTask<Integer>> tasks = new ArrayList<FutureTask<Integer>>(chunks);
+			for (int i = 0; i < chunks; i++) {
+				final int chunk = i;
+				starts[chunk] = new BitSet(chunkSize);
+				tasks.add(submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						return markStarts(chunk, backward.getStartState(), -1);
+					}
+				}));
+			}
+			int state = backward.getStartState();
+			for (int i = chunks - 1; i >= 0; i--) {
+				int speculated = join(tasks.get(i));
+				if (state != backward.getStartState()) {
+					state = markStarts(i, state, backward.getStartState());
+					if (state < 0) {
+						state = speculated;
+					}
+				} else {
+					state = speculated;
+				}
+			}
+		}
+
+		/**
+		 * runs the backward automaton from the given state over the given chunk. If a speculated state is given, the
+		 * speculative run is repeated in parallel and the run stops as soon as both states are the same.
+		 * 
+		 * @return the state at the start of the chunk, or -1 if the run was stopped
+		 */
+		private int markStarts(int chunk, int state, int speculated) {
+			BitSet chunkStarts = starts[chunk];
+			int start = chunkStart(chunk);
+			int error = backward.getErrorState();
+			for (int i = chunkStart(chunk + 1) - 1; i >= start && state != error; i--) {
+				char c = text.charAt(i);
+				state = backward.next(state, c);
+				if (accepts(backward.getType(state))) {
+					chunkStarts.set(i - start);
+				}
+				if (speculated >= 0) {
+					speculated = backward.next(speculated, c);
+					if (speculated == state) {
+						return -1;
+					}
+				}
+			}
+			return state;
+		}
+
+		private int nextStart(int pos) {
+			if (acceptsEmpty) {
+				return pos <= text.length() ? pos : -1;
+			}
+			for (int chunk = pos / chunkSize; chunk < chunks; chunk++) {
+				int start = chunkStart(chunk);
+				int next = starts[chunk].nextSetBit(Math.max(pos - start, 0));
+				if (next >= 0) {
+					return start + next;
+				}
+			}
+			return -1;
+		}
+
+		private List<Match> selectMatches() {
+			List<FutureTask<List<Match>>> tasks = new ArrayList<FutureTask<List<Match>>>(chunks);
+			for (int i = 0; i < chunks; i++) {
+				final int chunk = i;
+				tasks.add(submit(new Callable<List<Match>>() {
+					@Override
+					public List<Match> call() throws Exception {
+						return selectMatches(chunk);
+					}
+				}));
+			}
+			List<Match> matches = new ArrayList<Match>();
+			LongestMatches longestMatches = forward.longestMatches(text);
+			int pos = 0;
+			int start = nextStart(pos);
+			while (start >= 0) {
+				List<Match> speculated = join(tasks.get(start / chunkSize));
+				int index = indexOf(speculated, start);
+				if (index >= 0) {
+					Match last = speculated.get(speculated.size() - 1);
+					matches.addAll(speculated.subList(index, speculated.size()));
+					pos = next(last);
+				} else {
+					Match match = matchAt(longestMatches, start);
+					matches.add(match);
+					pos = next(match);
+				}
+				start = nextStart(pos);
+			}
+			return matches;
+		}
+
+		private List<Match> selectMatches(int chunk) {
+			List<Match> matches = new ArrayList<Match>();
+			LongestMatches longestMatches = forward.longestMatches(text);
+			int end = chunkStart(chunk + 1);
+			int start = nextStart(chunkStart(chunk));
+			while (start >= 0 && (start < end || chunk == chunks - 1)) {
+				Match match = matchAt(longestMatches, start);
+				matches.add(match);
+				start = nextStart(next(match));
+			}
+			return matches;
+		}
+
+		private static int indexOf(List<Match> matches, int start) {
+			int low = 0;
+			int high = matches.size() - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				long midStart = matches.get(mid).start;
+				if (midStart < start) {
+					low = mid + 1;
+				} else if (midStart > start) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -1;
+		}
+
+		private static int next(Match match) {
+			return match.end > match.start ? (int) match.end : (int) match.start + 1;
+		}
+
+		private Match matchAt(LongestMatches longestMatches, int start) {
+			longestMatches.matchAt(start);
+			int end = longestMatches.end();
+			return Match.create(start, end, text.substring(start, end), longestMatches.type());
+		}
+
+		private <T> FutureTask<T> submit(Callable<T> callable) {
+			FutureTask<T> task = new FutureTask<T>(callable);
+			executor.execute(task);
+			return task;
+		}
+
+		private static <T> T join(FutureTask<T> task) {
+			try {
+				return task.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+		}
+
+	}
+
+}
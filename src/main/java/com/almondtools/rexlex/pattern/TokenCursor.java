@@ -0,0 +1,246 @@
+package com.almondtools.rexlex.pattern;
+
+import java.util.Collections;
+import java.util.Set;
+
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.Automaton;
+import com.almondtools.rexlex.automaton.AutomatonMatcher;
+import com.almondtools.rexlex.automaton.AutomatonMatcherListener;
+import com.almondtools.rexlex.io.WindowedCharProvider;
+
+import net.amygdalum.util.io.CharProvider;
+
+/**
+ * a low level token stream. The cursor does not create any objects per token, it only provides the position and the type of the
+ * current token. The literal of a token is sliced only if it is requested. Tokens of ignored types are skipped.
+ *
+ * Note that windowed char providers (as used for streaming input) guarantee access to the chars of the current token only until the
+ * next call of {@link #next()}.
+ *
+ * Tokens are matched by maximal munch: after a mismatch the cursor backtracks to the end of the longest pending match (lexing from
+ * a token boundary so does not depend on the chars before it). A {@link com.almondtools.rexlex.automaton.TabledAutomaton} memoizes
+ * the positions that cannot lead to a longer match, such that lexing stays linear in the length of the input. With other automata
+ * the chars after a token may be scanned again for each token, the worst case is quadratic (e.g. tokens "a+b" and "a" on an input
+ * of many a's).
+ */
+public class TokenCursor implements AutomatonMatcherListener {
+
+	private static final TokenType STOP = new TokenType() {
+
+		@Override
+		public boolean error() {
+			return false;
+		}
+
+		@Override
+		public boolean accept() {
+			return false;
+		}
+	};
+
+	private static final int QUEUE_SIZE = 4;
+
+	private long begin;
+	private long matchStart;
+	private long matchEnd;
+	private TokenType matchType;
+
+	private AutomatonMatcher matcher;
+	private boolean suspended;
+	private TokenType error;
+	private CharProvider chars;
+	private Set<TokenType> ignored;
+
+	private long[] starts;
+	private long[] ends;
+	private TokenType[] types;
+	private int head;
+	private int size;
+
+	private long start;
+	private long end;
+	private TokenType type;
+
+	public TokenCursor(Automaton automaton, CharProvider chars) {
+		this(automaton, chars, Collections.<TokenType> emptySet());
+	}
+
+	public TokenCursor(Automaton automaton, CharProvider chars, Set<TokenType> ignored) {
+		this.matcher = automaton.matcher().withListener(this);
+		this.error = automaton.getErrorType();
+		this.chars = chars;
+		this.begin = chars.current();
+		this.ignored = ignored;
+		this.starts = new long[QUEUE_SIZE];
+		this.ends = new long[QUEUE_SIZE];
+		this.types = new TokenType[QUEUE_SIZE];
+	}
+
+	/**
+	 * moves the cursor to the next token
+	 *
+	 * @return true if there is a next token, false if all tokens were consumed
+	 */
+	public boolean next() {
+		while (size == 0) {
+			if (matchType == STOP) {
+				type = null;
+				return false;
+			}
+			release();
+			if (suspended) {
+				suspended = false;
+				matcher.resume();
+			} else {
+				matcher.applyTo(chars);
+			}
+			if (!suspended) {
+				complete();
+			}
+		}
+		start = starts[head];
+		end = ends[head];
+		type = types[head];
+		types[head] = null;
+		head = (head + 1) % QUEUE_SIZE;
+		size--;
+		return true;
+	}
+
+	/**
+	 * @return the start position of the current token
+	 */
+	public long start() {
+		return start;
+	}
+
+	/**
+	 * @return the end position (exclusive) of the current token
+	 */
+	public long end() {
+		return end;
+	}
+
+	/**
+	 * @return the type of the current token
+	 */
+	public TokenType type() {
+		return type;
+	}
+
+	/**
+	 * @return the literal of the current token, sliced from the chars
+	 */
+	public String literal() {
+		return chars.slice(start, end);
+	}
+
+	/**
+	 * @return the chars the tokens are positioned in
+	 */
+	public CharProvider chars() {
+		return chars;
+	}
+
+	@Override
+	public boolean reportMatch(CharProvider chars, long start, TokenType accepted) {
+		long end = chars.current();
+		if (start == end) {
+			return false;
+		} else if (!isMatch()) { // new match
+			if (start > begin) {
+				queue(begin, start, error);
+			}
+			initMatch(start, end, accepted);
+			return false;
+		} else {
+			long mstart = matchStart;
+			long mend = matchEnd;
+			TokenType mtype = matchType;
+			if (mend < start) {
+				queue(mstart, mend, mtype);
+				queue(mend, start, error);
+				initMatch(start, end, accepted);
+				suspended = true;
+				return true;
+			} else if (mstart == start) { // exending match
+				if (mend < end) {
+					initMatch(start, end, accepted);
+				}
+				return false;
+			} else if (mend > start) { // subsumed match
+				chars.move(mend);
+				return false;
+			} else { // next match
+				queue(mstart, mend, mtype);
+				initMatch(start, end, accepted);
+				suspended = true;
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public boolean recoverMismatch(CharProvider chars, long start) {
+		long last = isMatch() ? matchEnd : begin;
+		if (start >= last) {
+			chars.move(start);
+			if (!chars.finished()) {
+				chars.next();
+			}
+		} else {
+			chars.move(last);
+		}
+		return false;
+	}
+
+	private boolean isMatch() {
+		return matchType != null;
+	}
+
+	private void initMatch(long start, long end, TokenType type) {
+		matchStart = start;
+		matchEnd = end;
+		matchType = type;
+	}
+
+	private void complete() {
+		long current = chars.current();
+		if (!isMatch()) {
+			if (begin < current) {
+				queue(begin, current, error);
+			}
+		} else {
+			queue(matchStart, matchEnd, matchType);
+			if (matchEnd < current) {
+				queue(matchEnd, current, error);
+			}
+		}
+		matchType = STOP;
+		chars.finish();
+	}
+
+	/**
+	 * all chars before the start of the pending match (or before the begin of tokenization if there is no pending match) are
+	 * already part of consumed tokens and will not be accessed again.
+	 */
+	private void release() {
+		if (chars instanceof WindowedCharProvider) {
+			long oldest = isMatch() ? matchStart : begin;
+			((WindowedCharProvider) chars).release(oldest);
+		}
+	}
+
+	private void queue(long start, long end, TokenType type) {
+		if (ignored.contains(type)) {
+			return;
+		}
+		int index = (head + size) % QUEUE_SIZE;
+		starts[index] = start;
+		ends[index] = end;
+		types[index] = type;
+		size++;
+	}
+
+}
@@ -2,162 +2,65 @@ package com.almondtools.rexlex.pattern;
 
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import com.almondtools.rexlex.RangeTokenFactory;
 import com.almondtools.rexlex.Token;
 import com.almondtools.rexlex.TokenFactory;
 import com.almondtools.rexlex.TokenType;
 import com.almondtools.rexlex.automaton.Automaton;
-import com.almondtools.rexlex.automaton.AutomatonMatcher;
-import com.almondtools.rexlex.automaton.AutomatonMatcherListener;
 
 import net.amygdalum.util.io.CharProvider;
 
-public class TokenIterator<T extends Token> implements Iterator<T>, AutomatonMatcherListener {
+/**
+ * iterates the tokens of a {@link TokenCursor}, creating a token object for each of them.
+ */
+public class TokenIterator<T extends Token> implements Iterator<T> {
 
-	private static final TokenType STOP = new TokenType() {
-		
-		@Override
-		public boolean error() {
-			return false;
-		}
-		
-		@Override
-		public boolean accept() {
-			return false;
-		}
-	};
-
-	private final Match match;
-
-	private AutomatonMatcher matcher;
-	private TokenType error;
-	private CharProvider chars;
+	private TokenCursor cursor;
 	private TokenFactory<T> factory;
-	private List<T> buffer;
+	private RangeTokenFactory<T> rangeFactory;
+	private T next;
 
 	public TokenIterator(Automaton automaton, CharProvider chars, TokenFactory<T> factory) {
 		this(automaton, chars, factory, Collections.<TokenType> emptySet());
 	}
 
 	public TokenIterator(Automaton automaton, CharProvider chars, TokenFactory<T> factory, Set<TokenType> ignored) {
-		this.match = new Match();
-		this.matcher = automaton.matcher().withListener(this);
-		this.error = automaton.getErrorType();
-		this.chars = chars;
-		this.factory = factory;
-		this.buffer = new LinkedList<T>();
+		this(new TokenCursor(automaton, chars, ignored), factory);
 	}
 
-	@Override
-	public boolean reportMatch(CharProvider chars, long start, TokenType accepted) {
-		long end = chars.current();
-		if (start == end) {
-			return false;
-		} else if (!match.isMatch()) { // new match
-			if (start > 0) {
-				bufferToken(factory.createToken(chars.slice(0, start), error));
-			}
-			match.init(start, chars.slice(start, end), accepted);
-			return false;
-		} else {
-			long mstart = match.start;
-			long mend = match.end;
-			TokenType mtype = match.type;
-			if (mend < start) {
-				bufferToken(factory.createToken(chars.slice(mstart, mend), mtype));
-				bufferToken(factory.createToken(chars.slice(mend, start), error));
-				match.init(start, chars.slice(start, end), accepted);
-				return true;
-			} else if (mstart == start) { // exending match
-				if (mend < end) {
-					match.init(start, chars.slice(start, end), accepted);
-				}
-				return false;
-			} else if (mend > start) { // subsumed match
-				chars.move(mend);
-				return false;
-			} else { // next match
-				bufferToken(factory.createToken(chars.slice(mstart, mend), mtype));
-				match.init(start, chars.slice(start, end), accepted);
-				return true;
-			}
-		}
+	public TokenIterator(TokenCursor cursor, TokenFactory<T> factory) {
+		this.cursor = cursor;
+		this.factory = factory;
+		this.rangeFactory = factory instanceof RangeTokenFactory ? (RangeTokenFactory<T>) factory : null;
 	}
 
 	@Override
-	public boolean recoverMismatch(CharProvider chars, long start) {
-		long current = chars.current();
-		long last = match.isMatch() ? match.end : 0;
-		if (start >= last) {
-			chars.move(start);
-			if (!chars.finished()) {
-				chars.next();
-			}
-		} else if (current < last) {
-			chars.move(last);
-		} else {
-			chars.move(current - 1);
-		}
-		return false;
-	}
-
-	private void completeBuffer() {
-		long current = chars.current();
-		if (match.type == STOP) {
-			return;
-		} else if (!match.isMatch()) {
-			long start = 0;
-			long end = current;
-			if (start < end) {
-				bufferToken(factory.createToken(chars.slice(start, end), error));
-			}
-			match.type = STOP;
-		} else {
-			long mstart = match.start;
-			long mend = match.end;
-			TokenType mtype = match.type;
-			bufferToken(factory.createToken(chars.slice(mstart, mend), mtype));
-			if (mend < current) {
-				bufferToken(factory.createToken(chars.slice(mend, current), error));
-			}
-			match.type = STOP;
+	public boolean hasNext() {
+		if (next == null && cursor.next()) {
+			next = createToken();
 		}
-		chars.finish();
+		return next != null;
 	}
 
-	@Override
-	public boolean hasNext() {
-		if (!buffer.isEmpty()) {
-			return true;
-		}
-		if (matcher.isSuspended()) {
-			matcher.resume();
+	private T createToken() {
+		if (rangeFactory != null) {
+			return rangeFactory.createToken(cursor.chars(), cursor.start(), cursor.end(), cursor.type());
 		} else {
-			matcher.applyTo(chars);
-		}
-		if (buffer.isEmpty()) {
-			completeBuffer();
+			return factory.createToken(cursor.literal(), cursor.type());
 		}
-		return !buffer.isEmpty();
-	}
-
-	private void bufferToken(T token) {
-		buffer.add(token);
 	}
 
 	@Override
 	public T next() {
-		if (buffer.isEmpty()) {
-			hasNext();
-			if (buffer.isEmpty()) {
-				throw new NoSuchElementException();
-			}
+		if (!hasNext()) {
+			throw new NoSuchElementException();
 		}
-		return buffer.remove(0);
+		T token = next;
+		next = null;
+		return token;
 	}
 
 	@Override
@@ -0,0 +1,61 @@
+package com.almondtools.rexlex;
+
+import static com.almondtools.rexlex.tokens.Accept.A;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.tokens.TestToken;
+
+public class LexerTest {
+
+	private Lexer<TestToken> lexer = new Lexer<TestToken>() {
+
+		@Override
+		public Iterator<TestToken> lex(String input) {
+			List<TestToken> tokens = new ArrayList<TestToken>();
+			for (String word : input.split(" ")) {
+				tokens.add(new TestToken(word, A));
+			}
+			return tokens.iterator();
+		}
+	};
+
+	@Test
+	public void testDefaultLexReader() throws Exception {
+		assertThat(tokens(lexer.lex(new StringReader("a b\u00e4"))), contains(new TestToken("a", A), new TestToken("b\u00e4", A)));
+	}
+
+	@Test
+	public void testDefaultLexChannel() throws Exception {
+		byte[] bytes = "a b\u00e4".getBytes(StandardCharsets.UTF_8);
+		assertThat(tokens(lexer.lex(Channels.newChannel(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8)), contains(new TestToken("a", A), new TestToken("b\u00e4", A)));
+	}
+
+	@Test
+	public void testDefaultLexByteBuffer() throws Exception {
+		ByteBuffer buffer = ByteBuffer.wrap("a b\u00e4".getBytes(StandardCharsets.UTF_8));
+		assertThat(tokens(lexer.lex(buffer, StandardCharsets.UTF_8)), contains(new TestToken("a", A), new TestToken("b\u00e4", A)));
+		assertThat(buffer.position(), equalTo(0));
+	}
+
+	private static List<TestToken> tokens(Iterator<TestToken> iterator) {
+		List<TestToken> tokens = new ArrayList<TestToken>();
+		while (iterator.hasNext()) {
+			tokens.add(iterator.next());
+		}
+		return tokens;
+	}
+
+}
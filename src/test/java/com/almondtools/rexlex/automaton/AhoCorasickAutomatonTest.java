@@ -0,0 +1,169 @@
+package com.almondtools.rexlex.automaton;
+
+import static com.almondtools.rexlex.automaton.GenericAutomatonBuilder.matchAlternatives;
+import static com.almondtools.rexlex.pattern.DefaultTokenType.ACCEPT;
+import static com.almondtools.rexlex.pattern.DefaultTokenType.ERROR;
+import static com.almondtools.rexlex.pattern.DotGraphMatcher.startsWith;
+import static com.almondtools.rexlex.tokens.Accept.A;
+import static com.almondtools.rexlex.tokens.Accept.B;
+import static com.almondtools.rexlex.tokens.Accept.REMAINDER;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToAhoCorasickAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.pattern.Pattern;
+import com.almondtools.rexlex.pattern.RemainderTokenType;
+import com.almondtools.rexlex.tokens.Accept;
+import com.almondtools.rexlex.tokens.TestToken;
+import com.almondtools.rexlex.tokens.TestTokenFactory;
+
+import net.amygdalum.util.io.StringCharProvider;
+
+public class AhoCorasickAutomatonTest {
+
+	@Test
+	public void testTransformLiterals() throws Exception {
+		Automaton automaton = Pattern.compileGenericAutomaton("foo|bar|baz").toAutomaton(new ToAhoCorasickAutomaton());
+		assertThat(automaton, instanceOf(AhoCorasickAutomaton.class));
+	}
+
+	@Test
+	public void testTransformNonLiterals() throws Exception {
+		assertThat(Pattern.compileGenericAutomaton("fo+|bar").toAutomaton(new ToAhoCorasickAutomaton()), instanceOf(TabledAutomaton.class));
+		assertThat(Pattern.compileGenericAutomaton("f[a-z]o|bar").toAutomaton(new ToAhoCorasickAutomaton()), instanceOf(TabledAutomaton.class));
+	}
+
+	@Test
+	public void testNext() throws Exception {
+		AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(words("ab", A, "b", B), ERROR);
+		int a = automaton.next(automaton.getStartState(), 'a');
+		int ab = automaton.next(a, 'b');
+		int b = automaton.next(automaton.getStartState(), 'b');
+		assertThat(automaton.getType(a), nullValue());
+		assertThat(automaton.getType(ab), equalTo((TokenType) A));
+		assertThat(automaton.getType(b), equalTo((TokenType) B));
+		assertThat(automaton.next(a, 'a'), equalTo(automaton.getErrorState()));
+		assertThat(automaton.next(ab, 'b'), equalTo(automaton.getErrorState()));
+	}
+
+	@Test
+	public void testNextAgreesWithChildren() throws Exception {
+		AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(words("if", A, "int", A, "\u00e4\uffff", B, "\u0000z", B, "\u20ac", B), ERROR);
+		char[] probes = { '\u0000', 'a', 'f', 'i', 'n', 't', 'z', '\u00e4', '\u20ac', '\u20ad', '\ufffe', '\uffff' };
+		for (int state = 0; state < automaton.getStateCount(); state++) {
+			for (char c : probes) {
+				int expected = automaton.getErrorState();
+				char[] chars = automaton.getChars(state);
+				for (int i = 0; i < chars.length; i++) {
+					if (chars[i] == c) {
+						expected = automaton.getTargets(state)[i];
+					}
+				}
+				assertThat(automaton.next(state, c), equalTo(expected));
+			}
+		}
+	}
+
+	@Test
+	public void testProperty() throws Exception {
+		assertThat(new AhoCorasickAutomaton(words("abc", A), ERROR).getProperty(), equalTo(AutomatonProperty.LINEAR));
+		assertThat(new AhoCorasickAutomaton(words("abc", A, "abd", B), ERROR).getProperty(), equalTo(AutomatonProperty.ACYCLIC));
+	}
+
+	@Test
+	public void testRevert() throws Exception {
+		AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(words("abc", A, "de", B), ERROR).revert();
+		assertThat(automaton.getWords().keySet(), contains("cba", "ed"));
+	}
+
+	@Test
+	public void testSamples() throws Exception {
+		Automaton automaton = Pattern.compileGenericAutomaton("abc|ab|b").toAutomaton(new ToAhoCorasickAutomaton());
+		assertThat(automaton.getSamples(2), contains("ab", "abc"));
+	}
+
+	@Test
+	public void testStore() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new AhoCorasickAutomaton(words("ab", A), ERROR).store("matchAB").to(out);
+		String output = out.toString();
+		assertThat(output, startsWith("digraph \"matchAB\"")
+			.withNodes(2, "circle")
+			.withNodes(1, "doublecircle")
+			.withArcs(1, "a")
+			.withArcs(1, "b"));
+	}
+
+	@Test
+	public void testPrefixCollector() throws Exception {
+		AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(words("a", ACCEPT, "ab", ACCEPT, "abc", ACCEPT), ERROR);
+		PrefixCollector collector = (PrefixCollector) automaton.matcher().withListener(new PrefixCollector()).applyTo(new StringCharProvider("abcd", 0));
+		assertThat(collector.getMatchedTexts(), contains("a", "ab", "abc"));
+	}
+
+	@Test
+	public void testTokenizeAgreesWithTabledAutomaton() throws Exception {
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			Set<String> words = new HashSet<String>();
+			int count = 1 + random.nextInt(5);
+			while (words.size() < count) {
+				words.add(randomString(random, 1 + random.nextInt(4)));
+			}
+			List<GenericAutomaton> literals = new ArrayList<GenericAutomaton>();
+			for (String word : words) {
+				TokenType type = Accept.values()[random.nextInt(3)];
+				literals.add(Pattern.compileGenericAutomaton(word, new RemainderTokenType(type)));
+			}
+			GenericAutomaton nfa = matchAlternatives(literals);
+			Automaton expected = nfa.toAutomaton(new ToTabledAutomaton(REMAINDER));
+			Automaton actual = nfa.toAutomaton(new ToAhoCorasickAutomaton(REMAINDER));
+			assertThat(actual, instanceOf(AhoCorasickAutomaton.class));
+			String input = randomString(random, 30);
+			assertThat(input, tokenize(actual, input), equalTo(tokenize(expected, input)));
+		}
+	}
+
+	private static List<TestToken> tokenize(Automaton automaton, String input) {
+		List<TestToken> tokens = new ArrayList<TestToken>();
+		Iterator<TestToken> tokenIterator = automaton.tokenize(new StringCharProvider(input, 0), new TestTokenFactory());
+		while (tokenIterator.hasNext()) {
+			tokens.add(tokenIterator.next());
+		}
+		return tokens;
+	}
+
+	private static String randomString(Random random, int length) {
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			buffer.append((char) ('a' + random.nextInt(3)));
+		}
+		return buffer.toString();
+	}
+
+	private static Map<String, TokenType> words(Object... wordsAndTypes) {
+		Map<String, TokenType> words = new LinkedHashMap<String, TokenType>();
+		for (int i = 0; i < wordsAndTypes.length; i += 2) {
+			words.put((String) wordsAndTypes[i], (TokenType) wordsAndTypes[i + 1]);
+		}
+		return words;
+	}
+
+}
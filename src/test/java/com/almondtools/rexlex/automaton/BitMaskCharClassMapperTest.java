@@ -42,6 +42,19 @@ public class BitMaskCharClassMapperTest {
 		assertThat(mapper.getIndex((char) 0xffff),equalTo(4));
 	}
 
+	@Test
+	public void testGetIndexOfAllChars() throws Exception {
+		char[] chars = new char[]{MIN_VALUE, 'c', 'h', 'o', '\u00e4', '\u0101', '\u2020'};
+		BitMaskCharClassMapper mapper = new BitMaskCharClassMapper(chars);
+		for (int ch = MIN_VALUE; ch <= MAX_VALUE; ch++) {
+			int expected = 0;
+			while (expected + 1 < chars.length && chars[expected + 1] <= ch) {
+				expected++;
+			}
+			assertThat(mapper.getIndex((char) ch), equalTo(expected));
+		}
+	}
+
 	@Test
 	public void testGetRelevantChars() throws Exception {
 		BitMaskCharClassMapper mapper = new BitMaskCharClassMapper(new char[]{MIN_VALUE, 'c','h','o'});
@@ -0,0 +1,153 @@
+package com.almondtools.rexlex.automaton;
+
+import static com.almondtools.rexlex.tokens.Accept.A;
+import static com.almondtools.rexlex.tokens.Accept.B;
+import static com.almondtools.rexlex.tokens.Accept.REMAINDER;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToBitParallelAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.pattern.DefaultMatcherBuilder;
+import com.almondtools.rexlex.pattern.DefaultTokenType;
+import com.almondtools.rexlex.pattern.Finder;
+import com.almondtools.rexlex.pattern.Pattern;
+import com.almondtools.rexlex.pattern.RemainderTokenType;
+import com.almondtools.rexlex.tokens.Accept;
+import com.almondtools.rexlex.tokens.TestToken;
+import com.almondtools.rexlex.tokens.TestTokenFactory;
+
+import net.amygdalum.util.io.StringCharProvider;
+
+public class BitParallelAutomatonTest {
+
+	@Test
+	public void testTokenizeAgreesWithTabledAutomaton() throws Exception {
+		GenericAutomaton nfa = GenericAutomatonBuilder.matchAlternatives(
+			Pattern.compileGenericAutomaton("[a-c]+", new RemainderTokenType(A)),
+			Pattern.compileGenericAutomaton("(ab|ba)*c", new RemainderTokenType(B)),
+			Pattern.compileGenericAutomaton("d+", new RemainderTokenType(DefaultTokenType.IGNORE)));
+		TabledAutomaton tabled = nfa.toAutomaton(new ToTabledAutomaton(REMAINDER));
+		Automaton bitParallel = nfa.toAutomaton(new ToBitParallelAutomaton(REMAINDER));
+		assertThat(bitParallel, instanceOf(BitParallelAutomaton.class));
+		Random random = new Random(23);
+		for (int i = 0; i < 200; i++) {
+			StringBuilder buffer = new StringBuilder();
+			int length = 1 + random.nextInt(30);
+			for (int j = 0; j < length; j++) {
+				buffer.append("abcde".charAt(random.nextInt(5)));
+			}
+			String input = buffer.toString();
+			assertThat(input, tokenize(bitParallel, input), equalTo(tokenize(tabled, input)));
+		}
+	}
+
+	@Test
+	public void testTokenizeWithManyTypesAgreesWithTabledAutomaton() throws Exception {
+		String[] literals = { "a", "b", "c", "ab", "bc", "ca", "abc", "ba", "cb", "ac", "aa", "bb" };
+		TokenType[] types = Accept.values();
+		for (int count : new int[] { BitParallelAutomaton.MAX_JOINT_TYPES, literals.length }) {
+			List<GenericAutomaton> alternatives = new ArrayList<GenericAutomaton>();
+			alternatives.add(Pattern.compileGenericAutomaton("[a-c]+", new RemainderTokenType(DefaultTokenType.IGNORE)));
+			for (int i = 0; i < count; i++) {
+				alternatives.add(Pattern.compileGenericAutomaton(literals[i], new RemainderTokenType(types[i])));
+			}
+			GenericAutomaton nfa = GenericAutomatonBuilder.matchAlternatives(alternatives);
+			TabledAutomaton tabled = nfa.toAutomaton(new ToTabledAutomaton(REMAINDER));
+			Automaton bitParallel = nfa.toAutomaton(new ToBitParallelAutomaton(REMAINDER));
+			assertThat(bitParallel, instanceOf(BitParallelAutomaton.class));
+			Random random = new Random(31);
+			for (int i = 0; i < 200; i++) {
+				StringBuilder buffer = new StringBuilder();
+				int length = 1 + random.nextInt(6);
+				for (int j = 0; j < length; j++) {
+					buffer.append("abcd".charAt(random.nextInt(4)));
+				}
+				String input = buffer.toString();
+				assertThat(count + ":" + input, tokenize(bitParallel, input), equalTo(tokenize(tabled, input)));
+			}
+		}
+	}
+
+	@Test
+	public void testJointTypes() throws Exception {
+		GenericAutomaton nfa = GenericAutomatonBuilder.matchAlternatives(
+			Pattern.compileGenericAutomaton("ab", new RemainderTokenType(A)),
+			Pattern.compileGenericAutomaton("[a-c]b", new RemainderTokenType(DefaultTokenType.IGNORE)),
+			Pattern.compileGenericAutomaton("a", new RemainderTokenType(B)));
+		BitParallelAutomaton automaton = (BitParallelAutomaton) nfa.toAutomaton(new ToBitParallelAutomaton(REMAINDER));
+		long a = automaton.next(automaton.getStartState(), 'a');
+		long c = automaton.next(automaton.getStartState(), 'c');
+
+		assertThat(automaton.getType(a), equalTo((TokenType) B));
+		assertThat(automaton.getType(c), nullValue());
+		assertThat(automaton.getType(automaton.next(a, 'b')), equalTo((TokenType) DefaultTokenType.IGNORE));
+		assertThat(automaton.getType(automaton.next(c, 'b')), equalTo((TokenType) DefaultTokenType.IGNORE));
+		assertThat(automaton.getType(automaton.next(a, 'a')), equalTo((TokenType) REMAINDER));
+	}
+
+	@Test
+	public void testExponentialPattern() throws Exception {
+		String regex = "(a|b)*a(a|b){20}";
+		assertThat(Pattern.compileAutomaton(regex, new ToBitParallelAutomaton()), instanceOf(BitParallelAutomaton.class));
+		Pattern pattern = Pattern.compile(regex, new DefaultMatcherBuilder(new ToBitParallelAutomaton()));
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(regex);
+		Random random = new Random(29);
+		for (int i = 0; i < 100; i++) {
+			StringBuilder buffer = new StringBuilder();
+			for (int j = 0; j < 30; j++) {
+				buffer.append(random.nextBoolean() ? 'a' : 'b');
+			}
+			String input = buffer.toString();
+			assertThat(input, pattern.matcher(input).matches(), equalTo(expected.matcher(input).matches()));
+		}
+	}
+
+	@Test
+	public void testFind() throws Exception {
+		Pattern pattern = Pattern.compile("[0-9]{2}-[0-9]{2}", new DefaultMatcherBuilder(new ToBitParallelAutomaton()));
+		Finder finder = pattern.finder("on 12-04 and 3-4 or 24-12-1");
+
+		List<String> matches = new ArrayList<String>();
+		while (finder.find()) {
+			matches.add(finder.group());
+		}
+		assertThat(matches, contains("12-04", "24-12"));
+	}
+
+	@Test
+	public void testLargeAutomatonIsTabled() throws Exception {
+		Automaton automaton = Pattern.compileAutomaton("[a-z]{65}", new ToBitParallelAutomaton());
+
+		assertThat(automaton, instanceOf(TabledAutomaton.class));
+	}
+
+	@Test
+	public void testAutomatonWithoutMatches() throws Exception {
+		Automaton automaton = GenericAutomatonBuilder.matchNothing().toAutomaton(new ToBitParallelAutomaton(REMAINDER));
+
+		assertThat(((BitParallelAutomaton) automaton).getStartState(), equalTo(BitParallelAutomaton.ERROR));
+		assertThat(tokenize(automaton, "ab"), contains(new TestToken("ab", REMAINDER)));
+	}
+
+	private static List<TestToken> tokenize(Automaton automaton, String input) {
+		List<TestToken> tokens = new ArrayList<TestToken>();
+		Iterator<TestToken> tokenIterator = automaton.tokenize(new StringCharProvider(input, 0), new TestTokenFactory());
+		while (tokenIterator.hasNext()) {
+			tokens.add(tokenIterator.next());
+		}
+		return tokens;
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.almondtools.rexlex.automaton;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class DeadEndsTest {
+
+	@Test
+	public void testEnd() throws Exception {
+		DeadEnds deadEnds = new DeadEnds(3);
+		deadEnds.add(2, 4, 7);
+		deadEnds.add(1, 5, 7);
+
+		assertThat(deadEnds.end(2, 4), equalTo(7l));
+		assertThat(deadEnds.end(1, 5), equalTo(7l));
+		assertThat(deadEnds.end(1, 4), equalTo(-1l));
+		assertThat(deadEnds.end(2, 5), equalTo(-1l));
+		assertThat(deadEnds.limit(), equalTo(6l));
+	}
+
+	@Test
+	public void testAddKeepsFirstEnd() throws Exception {
+		DeadEnds deadEnds = new DeadEnds(3);
+		deadEnds.add(2, 4, 7);
+		deadEnds.add(2, 4, 9);
+
+		assertThat(deadEnds.end(2, 4), equalTo(7l));
+	}
+
+	@Test
+	public void testGrow() throws Exception {
+		DeadEnds deadEnds = new DeadEnds(5);
+		for (int pos = 0; pos < 1000; pos++) {
+			deadEnds.add(pos % 5, pos, pos + 10);
+		}
+
+		for (int pos = 0; pos < 1000; pos++) {
+			assertThat(deadEnds.end(pos % 5, pos), equalTo(pos + 10l));
+			assertThat(deadEnds.end((pos + 1) % 5, pos), equalTo(-1l));
+		}
+		assertThat(deadEnds.limit(), equalTo(1000l));
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		DeadEnds deadEnds = new DeadEnds(5);
+		for (int pos = 0; pos < 100; pos++) {
+			deadEnds.add(1, pos, 200);
+		}
+
+		deadEnds.clear();
+
+		assertThat(deadEnds.end(1, 50), equalTo(-1l));
+		assertThat(deadEnds.limit(), equalTo(0l));
+		deadEnds.add(1, 50, 60);
+		assertThat(deadEnds.end(1, 50), equalTo(60l));
+	}
+
+}
@@ -38,6 +38,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
@@ -51,6 +52,7 @@ import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -697,4 +699,42 @@ public class GenericAutomatonTest {
 			));
 	}
 
+	@Test
+	public void testComputeLiteralPrefix() throws Exception {
+		assertThat(Pattern.compileGenericAutomaton("ERROR [a-z]+").computeLiteralPrefix(), equalTo("ERROR "));
+		assertThat(Pattern.compileGenericAutomaton("abc|abd").computeLiteralPrefix(), equalTo("ab"));
+		assertThat(Pattern.compileGenericAutomaton("a(bc)*d").computeLiteralPrefix(), equalTo("a"));
+	}
+
+	@Test
+	public void testComputeLiteralPrefixStopsAtAccept() throws Exception {
+		assertThat(Pattern.compileGenericAutomaton("ab|abc").computeLiteralPrefix(), equalTo("ab"));
+		assertThat(Pattern.compileGenericAutomaton("a*").computeLiteralPrefix(), equalTo(""));
+	}
+
+	@Test
+	public void testComputeLiteralPrefixEmptyOnRanges() throws Exception {
+		assertThat(Pattern.compileGenericAutomaton("[ab]c").computeLiteralPrefix(), equalTo(""));
+		assertThat(Pattern.compileGenericAutomaton("ab|cd").computeLiteralPrefix(), equalTo(""));
+	}
+
+	@Test
+	public void testComputeLiterals() throws Exception {
+		Map<String, TokenType> literals = Pattern.compileGenericAutomaton("if|else|elif").computeLiterals(100);
+		assertThat(literals.keySet(), contains("elif", "else", "if"));
+		assertThat(literals.get("if"), equalTo((TokenType) ACCEPT));
+	}
+
+	@Test
+	public void testComputeLiteralsOnNonLiterals() throws Exception {
+		assertThat(Pattern.compileGenericAutomaton("if|el[a-z]").computeLiterals(100), nullValue());
+		assertThat(Pattern.compileGenericAutomaton("if|(el)*").computeLiterals(100), nullValue());
+	}
+
+	@Test
+	public void testComputeLiteralsExceedingLimit() throws Exception {
+		assertThat(Pattern.compileGenericAutomaton("abcdef").computeLiterals(5), nullValue());
+		assertThat(Pattern.compileGenericAutomaton("abcdef").computeLiterals(7).keySet(), contains("abcdef"));
+	}
+
 }
@@ -0,0 +1,96 @@
+package com.almondtools.rexlex.automaton;
+
+import static com.almondtools.rexlex.tokens.Accept.A;
+import static com.almondtools.rexlex.tokens.Accept.B;
+import static com.almondtools.rexlex.tokens.Accept.REMAINDER;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.automaton.GenericAutomaton.ExactTransition;
+import com.almondtools.rexlex.automaton.GenericAutomaton.RangeTransition;
+import com.almondtools.rexlex.automaton.GenericAutomaton.State;
+import com.almondtools.rexlex.pattern.Pattern;
+import com.almondtools.rexlex.pattern.RemainderTokenType;
+
+public class HopcroftMinimizerTest {
+
+	@Test
+	public void testMergesEquivalentStates() throws Exception {
+		State s0 = new State();
+		State s1 = new State();
+		State s2 = new State();
+		State s3 = new State(A);
+		State s4 = new State(A);
+		s0.addTransition(new ExactTransition('a', s1));
+		s0.addTransition(new ExactTransition('b', s2));
+		s1.addTransition(new ExactTransition('c', s3));
+		s2.addTransition(new ExactTransition('c', s4));
+		GenericAutomaton automaton = new GenericAutomaton(s0);
+
+		Map<State, State> newStates = minimizer(automaton).minimize();
+
+		assertThat(newStates.get(s1), sameInstance(newStates.get(s2)));
+		assertThat(newStates.get(s3), sameInstance(newStates.get(s4)));
+		assertThat(newStates.get(s0), not(sameInstance(newStates.get(s1))));
+		assertThat(new HashSet<State>(newStates.values()).size(), equalTo(3));
+		assertThat(newStates.get(s3).getType(), equalTo((Object) A));
+	}
+
+	@Test
+	public void testSplitsByTokenType() throws Exception {
+		State s0 = new State();
+		State s1 = new State(A);
+		State s2 = new State(B);
+		s0.addTransition(new ExactTransition('a', s1));
+		s0.addTransition(new ExactTransition('b', s2));
+		GenericAutomaton automaton = new GenericAutomaton(s0);
+
+		Map<State, State> newStates = minimizer(automaton).minimize();
+
+		assertThat(newStates.get(s1), not(sameInstance(newStates.get(s2))));
+	}
+
+	@Test
+	public void testSplitsBySuccessors() throws Exception {
+		State s0 = new State();
+		State s1 = new State();
+		State s2 = new State();
+		State s3 = new State(A);
+		s0.addTransition(new ExactTransition('a', s1));
+		s0.addTransition(new ExactTransition('b', s2));
+		s1.addTransition(new RangeTransition('a', 'c', s3));
+		s2.addTransition(new RangeTransition('b', 'c', s3));
+		GenericAutomaton automaton = new GenericAutomaton(s0);
+
+		Map<State, State> newStates = minimizer(automaton).minimize();
+
+		assertThat(newStates.get(s1), not(sameInstance(newStates.get(s2))));
+		assertThat(newStates.get(s1).nexts('a').size(), equalTo(1));
+		assertThat(newStates.get(s2).nexts('a').size(), equalTo(0));
+	}
+
+	@Test
+	public void testMinimalStateCount() throws Exception {
+		GenericAutomaton nfa = Pattern.compileGenericAutomaton("(a|b)*a(a|b){6}", new RemainderTokenType(REMAINDER));
+
+		TabledAutomaton automaton = nfa.toAutomaton(new ToTabledAutomaton(REMAINDER));
+
+		assertThat(automaton.getStateCount(), equalTo((1 << 7) + 1));
+	}
+
+	private static HopcroftMinimizer minimizer(GenericAutomaton automaton) {
+		Set<State> allStates = automaton.findAllStates();
+		Set<State> acceptStates = automaton.findAcceptStates();
+		return new HopcroftMinimizer(allStates, acceptStates, automaton.computeRelevantCharacters(), null);
+	}
+
+}
@@ -0,0 +1,151 @@
+package com.almondtools.rexlex.automaton;
+
+import static com.almondtools.rexlex.tokens.Accept.A;
+import static com.almondtools.rexlex.tokens.Accept.B;
+import static com.almondtools.rexlex.tokens.Accept.REMAINDER;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToLazyAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.pattern.DefaultMatcherBuilder;
+import com.almondtools.rexlex.pattern.DefaultTokenType;
+import com.almondtools.rexlex.pattern.Pattern;
+import com.almondtools.rexlex.pattern.RemainderTokenType;
+import com.almondtools.rexlex.tokens.TestToken;
+import com.almondtools.rexlex.tokens.TestTokenFactory;
+
+import net.amygdalum.util.io.StringCharProvider;
+
+public class LazyAutomatonTest {
+
+	@Test
+	public void testTokenizeAgreesWithTabledAutomaton() throws Exception {
+		GenericAutomaton nfa = lexerAutomaton();
+		TabledAutomaton tabled = nfa.toAutomaton(new ToTabledAutomaton(REMAINDER));
+		LazyAutomaton lazy = nfa.toAutomaton(new ToLazyAutomaton(REMAINDER));
+		Random random = new Random(13);
+		for (int i = 0; i < 200; i++) {
+			String input = randomInput(random, 1 + random.nextInt(30));
+			assertThat(input, tokenize(lazy, input), equalTo(tokenize(tabled, input)));
+		}
+		assertThat(lazy.getFlushCount(), equalTo(0l));
+	}
+
+	@Test
+	public void testTokenizeWithFlushedCache() throws Exception {
+		GenericAutomaton nfa = lexerAutomaton();
+		TabledAutomaton tabled = nfa.toAutomaton(new ToTabledAutomaton(REMAINDER));
+		LazyAutomaton lazy = nfa.toAutomaton(new ToLazyAutomaton(REMAINDER, 4));
+		Random random = new Random(17);
+		for (int i = 0; i < 200; i++) {
+			String input = randomInput(random, 1 + random.nextInt(30));
+			assertThat(input, tokenize(lazy, input), equalTo(tokenize(tabled, input)));
+		}
+		assertThat(lazy.getFlushCount(), greaterThan(0l));
+		assertThat(lazy.getStateCount(), lessThanOrEqualTo(4));
+	}
+
+	@Test
+	public void testErrorType() throws Exception {
+		LazyAutomaton automaton = Pattern.compileAutomaton("ab", new ToLazyAutomaton());
+		LazyAutomaton remainder = Pattern.compileAutomaton("ab", new ToLazyAutomaton(REMAINDER));
+
+		assertThat(automaton.getErrorType(), equalTo((Object) DefaultTokenType.ERROR));
+		assertThat(remainder.getErrorType(), equalTo((Object) REMAINDER));
+	}
+
+	@Test
+	public void testAutomatonWithoutMatches() throws Exception {
+		LazyAutomaton automaton = GenericAutomatonBuilder.matchNothing().toAutomaton(new ToLazyAutomaton(REMAINDER));
+
+		assertThat(automaton.getStartState(), equalTo(automaton.getErrorState()));
+		assertThat(tokenize(automaton, "ab"), contains(new TestToken("ab", REMAINDER)));
+	}
+
+	@Test
+	public void testExponentialPattern() throws Exception {
+		String regex = "(a|b)*a(a|b){20}";
+		Pattern pattern = Pattern.compile(regex, new DefaultMatcherBuilder(new ToLazyAutomaton()));
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(regex);
+		Random random = new Random(19);
+		for (int i = 0; i < 100; i++) {
+			StringBuilder buffer = new StringBuilder();
+			for (int j = 0; j < 30; j++) {
+				buffer.append(random.nextBoolean() ? 'a' : 'b');
+			}
+			String input = buffer.toString();
+			assertThat(input, pattern.matcher(input).matches(), equalTo(expected.matcher(input).matches()));
+		}
+	}
+
+	@Test
+	public void testSharedBetweenThreads() throws Exception {
+		GenericAutomaton nfa = lexerAutomaton();
+		final TabledAutomaton tabled = nfa.toAutomaton(new ToTabledAutomaton(REMAINDER));
+		final LazyAutomaton lazy = nfa.toAutomaton(new ToLazyAutomaton(REMAINDER, 6));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 4; t++) {
+				final Random random = new Random(t);
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() throws Exception {
+						for (int i = 0; i < 200; i++) {
+							String input = randomInput(random, 1 + random.nextInt(50));
+							if (!tokenize(lazy, input).equals(tokenize(tabled, input))) {
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertThat(result.get(), equalTo(true));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static GenericAutomaton lexerAutomaton() {
+		return GenericAutomatonBuilder.matchAlternatives(
+			Pattern.compileGenericAutomaton("[a-c]+", new RemainderTokenType(A)),
+			Pattern.compileGenericAutomaton("(ab|ba)*c", new RemainderTokenType(B)),
+			Pattern.compileGenericAutomaton("d+", new RemainderTokenType(DefaultTokenType.IGNORE)));
+	}
+
+	private static String randomInput(Random random, int length) {
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			buffer.append("abcde".charAt(random.nextInt(5)));
+		}
+		return buffer.toString();
+	}
+
+	private static List<TestToken> tokenize(Automaton automaton, String input) {
+		List<TestToken> tokens = new ArrayList<TestToken>();
+		Iterator<TestToken> tokenIterator = automaton.tokenize(new StringCharProvider(input, 0), new TestTokenFactory());
+		while (tokenIterator.hasNext()) {
+			tokens.add(tokenIterator.next());
+		}
+		return tokens;
+	}
+
+}
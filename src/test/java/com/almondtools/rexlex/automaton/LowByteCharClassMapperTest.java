@@ -27,6 +27,28 @@ public class LowByteCharClassMapperTest {
 		assertThat(mapper.getIndex(MAX_VALUE), equalTo(3));
 	}
 
+	@Test
+	public void testGetIndexOfAllChars() throws Exception {
+		char[] chars = new char[]{MIN_VALUE, 'c', 'h', 'o', '\u00e4'};
+		LowByteCharClassMapper mapper = new LowByteCharClassMapper(chars);
+		for (int ch = MIN_VALUE; ch <= MAX_VALUE; ch++) {
+			int expected = 0;
+			while (expected + 1 < chars.length && chars[expected + 1] <= ch) {
+				expected++;
+			}
+			assertThat(mapper.getIndex((char) ch), equalTo(expected));
+		}
+	}
+
+	@Test
+	public void testGetIndexOtherHighByte() throws Exception {
+		LowByteCharClassMapper mapper = new LowByteCharClassMapper(new char[]{'\u0100', '\u0163', '\u0170'});
+		assertThat(mapper.getIndex('c'), equalTo(0));
+		assertThat(mapper.getIndex('\u0163'), equalTo(1));
+		assertThat(mapper.getIndex('\u0171'), equalTo(2));
+		assertThat(mapper.getIndex('\u0263'), equalTo(2));
+	}
+
 	@Test
 	public void testGetRelevantChars() throws Exception {
 		LowByteCharClassMapper mapper = new LowByteCharClassMapper(new char[]{MIN_VALUE, 'c','h','o'});
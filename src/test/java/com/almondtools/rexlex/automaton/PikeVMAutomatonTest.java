@@ -0,0 +1,107 @@
+package com.almondtools.rexlex.automaton;
+
+import static com.almondtools.rexlex.tokens.Accept.A;
+import static com.almondtools.rexlex.tokens.Accept.B;
+import static com.almondtools.rexlex.tokens.Accept.REMAINDER;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToPikeVMAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.pattern.DefaultMatcherBuilder;
+import com.almondtools.rexlex.pattern.DefaultTokenType;
+import com.almondtools.rexlex.pattern.Finder;
+import com.almondtools.rexlex.pattern.Pattern;
+import com.almondtools.rexlex.pattern.RemainderTokenType;
+import com.almondtools.rexlex.tokens.TestToken;
+import com.almondtools.rexlex.tokens.TestTokenFactory;
+
+import net.amygdalum.util.io.StringCharProvider;
+
+public class PikeVMAutomatonTest {
+
+	@Test
+	public void testTokenizeAgreesWithTabledAutomaton() throws Exception {
+		GenericAutomaton nfa = GenericAutomatonBuilder.matchAlternatives(
+			Pattern.compileGenericAutomaton("[a-c]+", new RemainderTokenType(A)),
+			Pattern.compileGenericAutomaton("(ab|ba)*c", new RemainderTokenType(B)),
+			Pattern.compileGenericAutomaton("d+", new RemainderTokenType(DefaultTokenType.IGNORE)));
+		TabledAutomaton tabled = nfa.toAutomaton(new ToTabledAutomaton(REMAINDER));
+		PikeVMAutomaton pikeVM = nfa.toAutomaton(new ToPikeVMAutomaton(REMAINDER));
+		Random random = new Random(31);
+		for (int i = 0; i < 200; i++) {
+			String input = randomInput(random, "abcde", 1 + random.nextInt(30));
+			assertThat(input, tokenize(pikeVM, input), equalTo(tokenize(tabled, input)));
+		}
+	}
+
+	@Test
+	public void testThompsonAutomaton() throws Exception {
+		String regex = "(a|b)*a(a|b){3}|b+c?";
+		GenericAutomaton nfa = Pattern.compileGenericAutomaton(regex, new ThompsonAutomatonBuilder());
+		TabledAutomaton tabled = nfa.toAutomaton(new ToTabledAutomaton());
+		PikeVMAutomaton pikeVM = nfa.toAutomaton(new ToPikeVMAutomaton());
+		Random random = new Random(37);
+		for (int i = 0; i < 200; i++) {
+			String input = randomInput(random, "abc", 1 + random.nextInt(30));
+			assertThat(input, tokenize(pikeVM, input), equalTo(tokenize(tabled, input)));
+		}
+	}
+
+	@Test
+	public void testNestedLoopsDoNotBacktrack() throws Exception {
+		Pattern pattern = Pattern.compile("(a*)*b", new ThompsonAutomatonBuilder(), new DefaultMatcherBuilder(new ToPikeVMAutomaton()));
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			buffer.append('a');
+		}
+
+		assertThat(pattern.matcher(buffer.toString()).matches(), equalTo(false));
+		assertThat(pattern.matcher(buffer.append('b').toString()).matches(), equalTo(true));
+	}
+
+	@Test
+	public void testFind() throws Exception {
+		Pattern pattern = Pattern.compile("[0-9]{2}-[0-9]{2}", new DefaultMatcherBuilder(new ToPikeVMAutomaton()));
+		Finder finder = pattern.finder("on 12-04 and 3-4 or 24-12-1");
+
+		List<String> matches = new ArrayList<String>();
+		while (finder.find()) {
+			matches.add(finder.group());
+		}
+		assertThat(matches, contains("12-04", "24-12"));
+	}
+
+	@Test
+	public void testAutomatonWithoutMatches() throws Exception {
+		PikeVMAutomaton automaton = GenericAutomatonBuilder.matchNothing().toAutomaton(new ToPikeVMAutomaton(REMAINDER));
+
+		assertThat(tokenize(automaton, "ab"), contains(new TestToken("ab", REMAINDER)));
+	}
+
+	private static String randomInput(Random random, String alphabet, int length) {
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			buffer.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return buffer.toString();
+	}
+
+	private static List<TestToken> tokenize(Automaton automaton, String input) {
+		List<TestToken> tokens = new ArrayList<TestToken>();
+		Iterator<TestToken> tokenIterator = automaton.tokenize(new StringCharProvider(input, 0), new TestTokenFactory());
+		while (tokenIterator.hasNext()) {
+			tokens.add(tokenIterator.next());
+		}
+		return tokens;
+	}
+
+}
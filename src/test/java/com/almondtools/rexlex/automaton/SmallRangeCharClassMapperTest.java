@@ -27,6 +27,27 @@ public class SmallRangeCharClassMapperTest {
 		assertThat(mapper.getIndex(MAX_VALUE), equalTo(3));
 	}
 
+	@Test
+	public void testGetIndexOfAllChars() throws Exception {
+		char[] chars = new char[]{MIN_VALUE, 'c', 'h', 'o', '\u00a0'};
+		SmallRangeCharClassMapper mapper = new SmallRangeCharClassMapper(chars);
+		for (int ch = MIN_VALUE; ch <= MAX_VALUE; ch++) {
+			int expected = 0;
+			while (expected + 1 < chars.length && chars[expected + 1] <= ch) {
+				expected++;
+			}
+			assertThat(mapper.getIndex((char) ch), equalTo(expected));
+		}
+	}
+
+	@Test
+	public void testGetIndexWithoutRelevantChars() throws Exception {
+		SmallRangeCharClassMapper mapper = new SmallRangeCharClassMapper(new char[]{MIN_VALUE});
+		assertThat(mapper.getIndex(MIN_VALUE), equalTo(0));
+		assertThat(mapper.getIndex('a'), equalTo(0));
+		assertThat(mapper.getIndex(MAX_VALUE), equalTo(0));
+	}
+
 	@Test
 	public void testGetRelevantChars() throws Exception {
 		SmallRangeCharClassMapper mapper = new SmallRangeCharClassMapper(new char[]{MIN_VALUE, 'c','h','o'});
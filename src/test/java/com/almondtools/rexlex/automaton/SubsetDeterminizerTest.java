@@ -0,0 +1,73 @@
+package com.almondtools.rexlex.automaton;
+
+import static com.almondtools.rexlex.tokens.Accept.A;
+import static com.almondtools.rexlex.tokens.Accept.B;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.automaton.GenericAutomaton.EventTransition;
+import com.almondtools.rexlex.automaton.GenericAutomaton.ExactTransition;
+import com.almondtools.rexlex.automaton.GenericAutomaton.RangeTransition;
+import com.almondtools.rexlex.automaton.GenericAutomaton.State;
+import com.almondtools.rexlex.pattern.Pattern;
+
+public class SubsetDeterminizerTest {
+
+	@Test
+	public void testOverlappingTransitions() throws Exception {
+		State s0 = new State();
+		State s1 = new State(A);
+		State s2 = new State(B);
+		s0.addTransition(new RangeTransition('a', 'c', s1));
+		s0.addTransition(new RangeTransition('b', 'd', s2));
+		GenericAutomaton automaton = new GenericAutomaton(s0);
+
+		State start = new SubsetDeterminizer(automaton, null).determinize(Integer.MAX_VALUE);
+
+		assertThat(next(start, 'a').getType(), equalTo((Object) A));
+		assertThat(next(start, 'd').getType(), equalTo((Object) B));
+		assertThat(next(start, 'b'), sameInstance(next(start, 'c')));
+		assertThat(next(start, 'e'), sameInstance(next(start, 'x')));
+		assertThat(next(start, 'e').getType(), nullValue());
+		assertThat(next(next(start, 'e'), 'a'), sameInstance(next(start, 'e')));
+	}
+
+	@Test
+	public void testSharedSubsets() throws Exception {
+		State s0 = new State();
+		State s1 = new State();
+		State s2 = new State(A);
+		s0.addTransition(new ExactTransition('a', s1));
+		s0.addTransition(new ExactTransition('a', s2));
+		s1.addTransition(new ExactTransition('b', s2));
+		s2.addTransition(new ExactTransition('b', s1));
+		GenericAutomaton automaton = new GenericAutomaton(s0);
+
+		State start = new SubsetDeterminizer(automaton, null).determinize(Integer.MAX_VALUE);
+
+		State s12 = next(start, 'a');
+		assertThat(s12.getType(), equalTo((Object) A));
+		assertThat(next(s12, 'b'), sameInstance(s12));
+	}
+
+	@Test
+	public void testMaxStates() throws Exception {
+		GenericAutomaton automaton = Pattern.compileGenericAutomaton("(a|b)*a(a|b){4}").eliminateEpsilons();
+
+		assertThat(new SubsetDeterminizer(automaton, null).determinize(16), nullValue());
+		assertThat(new SubsetDeterminizer(automaton, null).determinize(1 << 6) == null, equalTo(false));
+	}
+
+	private static State next(State state, char ch) {
+		List<EventTransition> nexts = state.nexts(ch);
+		assertThat(nexts.size(), equalTo(1));
+		return nexts.get(0).getTarget();
+	}
+
+}
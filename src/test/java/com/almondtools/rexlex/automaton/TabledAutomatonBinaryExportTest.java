@@ -0,0 +1,204 @@
+package com.almondtools.rexlex.automaton;
+
+import static com.almondtools.rexlex.automaton.TabledAutomatonBinaryExport.MAGIC;
+import static com.almondtools.rexlex.automaton.TabledAutomatonBinaryExport.VERSION;
+import static com.almondtools.rexlex.tokens.Accept.A;
+import static com.almondtools.rexlex.tokens.Accept.B;
+import static com.almondtools.rexlex.tokens.Accept.REMAINDER;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.lexer.DynamicLexer;
+import com.almondtools.rexlex.pattern.DefaultTokenType;
+import com.almondtools.rexlex.tokens.Accept;
+import com.almondtools.rexlex.tokens.TestToken;
+import com.almondtools.rexlex.tokens.TestTokenFactory;
+
+import net.amygdalum.util.builders.Maps;
+import net.amygdalum.util.io.StringCharProvider;
+
+public class TabledAutomatonBinaryExportTest {
+
+	@Test
+	public void testStoreAndLoad() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType> linked()
+			.put("[a-z\u00e4]+", A)
+			.put("[0-9]+(\\.[0-9]+)?", B)
+			.put(" +", DefaultTokenType.IGNORE)
+			.build();
+		TabledAutomaton automaton = DynamicLexer.compile(patternToTypes, REMAINDER);
+		TokenTypeRegistry types = new TokenTypeRegistry().register(Accept.class);
+
+		TabledAutomaton loaded = load(store(automaton, types), types);
+
+		assertThat(loaded.getStartState(), equalTo(automaton.getStartState()));
+		assertThat(loaded.getProperty(), equalTo(automaton.getProperty()));
+		assertThat(loaded.getAccept(), equalTo(automaton.getAccept()));
+		assertThat(loaded.getTransitions(), equalTo(automaton.getTransitions()));
+		assertThat(loaded.getCharClassMapper().getRelevantChars(), equalTo(automaton.getCharClassMapper().getRelevantChars()));
+		assertThat(loaded.getErrorType(), equalTo((TokenType) REMAINDER));
+		String input = "k\u00e4se 42.5 x!y 3.";
+		assertThat(tokenize(loaded, input), equalTo(tokenize(automaton, input)));
+	}
+
+	@Test
+	public void testStoreAndLoadWithNamedTypes() throws Exception {
+		TabledAutomaton automaton = DynamicLexer.compile(Maps.<String, TokenType> linked().put("ab", A).build(), null);
+		TokenTypeRegistry types = new TokenTypeRegistry().register("a", A);
+
+		TabledAutomaton loaded = load(store(automaton, types), types);
+
+		assertThat(tokenize(loaded, "abxab"), equalTo(tokenize(automaton, "abxab")));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStoreUnregisteredType() throws Exception {
+		TabledAutomaton automaton = DynamicLexer.compile(Maps.<String, TokenType> linked().put("ab", A).build(), null);
+
+		store(automaton, new TokenTypeRegistry());
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadUnregisteredType() throws Exception {
+		TabledAutomaton automaton = DynamicLexer.compile(Maps.<String, TokenType> linked().put("ab", A).build(), null);
+		byte[] bytes = store(automaton, new TokenTypeRegistry().register(Accept.class));
+
+		load(bytes, new TokenTypeRegistry());
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadOtherFormat() throws Exception {
+		load("digraph".getBytes("UTF-8"), new TokenTypeRegistry());
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadOtherVersion() throws Exception {
+		TabledAutomaton automaton = DynamicLexer.compile(Maps.<String, TokenType> linked().put("ab", A).build(), null);
+		byte[] bytes = store(automaton, new TokenTypeRegistry().register(Accept.class));
+		bytes[5]++;
+
+		load(bytes, new TokenTypeRegistry().register(Accept.class));
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadTruncated() throws Exception {
+		TabledAutomaton automaton = DynamicLexer.compile(Maps.<String, TokenType> linked().put("ab", A).build(), null);
+		byte[] bytes = store(automaton, new TokenTypeRegistry().register(Accept.class));
+		byte[] truncated = new byte[bytes.length - 1];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+		load(truncated, new TokenTypeRegistry().register(Accept.class));
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadTruncatedTables() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataOutputStream data = header(out, 'a', 'b');
+		data.writeInt(0);
+		data.writeInt(1 << 24);
+		data.writeInt(-1);
+
+		load(out.toByteArray(), new TokenTypeRegistry());
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadNegativeCount() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataOutputStream data = header(out);
+		data.writeInt(0);
+		data.writeInt(-2);
+
+		load(out.toByteArray(), new TokenTypeRegistry());
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadMoreTypesThanStates() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataOutputStream data = header(out, 'a');
+		data.writeInt(2);
+		data.writeUTF("A");
+		data.writeUTF("B");
+		data.writeInt(1);
+
+		load(out.toByteArray(), new TokenTypeRegistry().register(Accept.class));
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadTooManyTransitions() throws Exception {
+		char[] relevantChars = new char[256];
+		for (int i = 0; i < relevantChars.length; i++) {
+			relevantChars[i] = (char) i;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataOutputStream data = header(out, relevantChars);
+		data.writeInt(0);
+		data.writeInt(1 << 24);
+
+		load(out.toByteArray(), new TokenTypeRegistry());
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadUnorderedRelevantChars() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataOutputStream data = header(out, 'b', 'a');
+		data.writeInt(0);
+		data.writeInt(2);
+		data.writeInt(-1);
+		data.writeInt(-1);
+		for (int i = 0; i < 4; i++) {
+			data.writeInt(1);
+		}
+
+		load(out.toByteArray(), new TokenTypeRegistry());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegisterNameTwice() throws Exception {
+		new TokenTypeRegistry().register("x", A).register("x", B);
+	}
+
+	private static byte[] store(TabledAutomaton automaton, TokenTypeRegistry types) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		automaton.storeBinary(types).to(out);
+		return out.toByteArray();
+	}
+
+	private static DataOutputStream header(ByteArrayOutputStream out, char... relevantChars) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeShort(VERSION);
+		data.writeInt(0);
+		data.writeByte(AutomatonProperty.UNKNOWN.ordinal());
+		data.writeInt(relevantChars.length);
+		for (char c : relevantChars) {
+			data.writeChar(c);
+		}
+		return data;
+	}
+
+	private static TabledAutomaton load(byte[] bytes, TokenTypeRegistry types) throws IOException {
+		return new TabledAutomatonBinaryImport(types).from(new ByteArrayInputStream(bytes));
+	}
+
+	private static List<TestToken> tokenize(Automaton automaton, String input) {
+		List<TestToken> tokens = new ArrayList<TestToken>();
+		Iterator<TestToken> tokenIterator = automaton.tokenize(new StringCharProvider(input, 0), new TestTokenFactory());
+		while (tokenIterator.hasNext()) {
+			tokens.add(tokenIterator.next());
+		}
+		return tokens;
+	}
+
+}
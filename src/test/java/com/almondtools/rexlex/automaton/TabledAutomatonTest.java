@@ -47,6 +47,7 @@ import static com.almondtools.rexlex.tokens.Accept.A;
 import static com.almondtools.rexlex.tokens.Accept.B;
 import static com.almondtools.rexlex.tokens.Fail.TESTERROR;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
@@ -62,6 +63,7 @@ import org.junit.Test;
 import com.almondtools.rexlex.TokenType;
 import com.almondtools.rexlex.automaton.DeterministicAutomaton.State;
 import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.automaton.TabledAutomaton.LongestMatches;
 import com.almondtools.rexlex.pattern.DefaultTokenType;
 import com.almondtools.rexlex.pattern.Pattern;
 import com.almondtools.rexlex.tokens.TestTokenFactory;
@@ -431,6 +433,80 @@ public class TabledAutomatonTest {
 		assertThat(automaton.getTarget(3,1), equalTo(1));
 	}
 
+	@Test
+	public void testGetTransitionsMergesIndistinguishableCharClasses() throws Exception {
+		State start = new State(); // -> 0
+		State next = new State(A); // -> 2
+		State error = new State(TESTERROR); // -> 1
+		start.addTransition(new DeterministicAutomaton.ExactTransition('a', next));
+		start.addTransition(new DeterministicAutomaton.ExactTransition('b', next));
+		start.addErrorTransitions(error);
+		TabledAutomaton automaton = new TabledAutomaton(new char[] { 'a', 'b', 'c' }, start, error);
+		assertThat(automaton.getTransitions().length, equalTo(3 * 2));
+		assertThat(automaton.getCharClassCount(), equalTo(2));
+		assertThat(automaton.getCharClassMapper().getRelevantChars(), equalTo(new char[] { 'a', 'c' }));
+		assertThat(automaton.next(0, 'a'), equalTo(2));
+		assertThat(automaton.next(0, 'b'), equalTo(2));
+		assertThat(automaton.next(0, 'c'), equalTo(1));
+	}
+
+	@Test
+	public void testMergedCharClassesMatch() throws Exception {
+		TabledAutomaton automaton = Pattern.compileGenericAutomaton("ac|bc|[a-c]d").toAutomaton(new ToTabledAutomaton());
+		assertThat(automaton.getCharClassCount(), equalTo(5)); // MIN_VALUE, [ab], c, d, e
+		assertThat(automaton.getType(automaton.findState("ac")), equalTo((TokenType) ACCEPT));
+		assertThat(automaton.getType(automaton.findState("bc")), equalTo((TokenType) ACCEPT));
+		assertThat(automaton.getType(automaton.findState("bd")), equalTo((TokenType) ACCEPT));
+		assertThat(automaton.getType(automaton.findState("cd")), equalTo((TokenType) ACCEPT));
+		assertThat(automaton.findState("cc"), equalTo(automaton.getErrorState()));
+	}
+
+	@Test
+	public void testFusedTableOnAscii() throws Exception {
+		TabledAutomaton automaton = Pattern.compileGenericAutomaton("[a-z]+[0-9]*").toAutomaton(new ToTabledAutomaton());
+		assertThat(automaton.getTableLayout(), startsWith("fused 128 chars"));
+		assertFusedAgrees(automaton);
+	}
+
+	@Test
+	public void testFusedTableOnLatin1() throws Exception {
+		TabledAutomaton automaton = Pattern.compileGenericAutomaton("[a-z\u00e4]+").toAutomaton(new ToTabledAutomaton());
+		assertThat(automaton.getTableLayout(), startsWith("fused 256 chars"));
+		assertFusedAgrees(automaton);
+	}
+
+	@Test
+	public void testNoFusedTableOnUnicode() throws Exception {
+		TabledAutomaton automaton = Pattern.compileGenericAutomaton("[a-z\u2020]+").toAutomaton(new ToTabledAutomaton());
+		assertThat(automaton.getTableLayout(), not(startsWith("fused")));
+		assertFusedAgrees(automaton);
+	}
+
+	@Test
+	public void testMatchLongNonAcceptingRuns() throws Exception {
+		TabledAutomaton fused = Pattern.compileGenericAutomaton("x[a-x\u00e4]*y").toAutomaton(new ToTabledAutomaton());
+		TabledAutomaton unfused = Pattern.compileGenericAutomaton("x[a-x\u00e4\u2020]*y").toAutomaton(new ToTabledAutomaton());
+		assertThat(fused.getTableLayout(), startsWith("fused"));
+		assertThat(unfused.getTableLayout(), not(startsWith("fused")));
+		for (TabledAutomaton a : new TabledAutomaton[] { fused, unfused }) {
+			assertThat(matchSamples(a, "xabcdefy"), contains("xabcdefy"));
+			assertThat(matchSamples(a, "xa\u00e4by"), contains("xa\u00e4by"));
+			assertThat(matchSamples(a, "xabcdef"), empty());
+			assertThat(matchSamples(a, "xab\u0101cdy"), empty());
+		}
+		assertThat(matchSamples(fused, "xab\u2020cdy"), empty());
+		assertThat(matchSamples(unfused, "xab\u2020cdy"), contains("xab\u2020cdy"));
+	}
+
+	private void assertFusedAgrees(TabledAutomaton automaton) {
+		CharClassMapper mapper = automaton.getCharClassMapper();
+		for (int state = 0; state < automaton.getStateCount(); state++) {
+			for (int c = 0; c < 0x300; c++) {
+				assertThat(automaton.next(state, (char) c), equalTo(automaton.getTarget(state, mapper.getIndex((char) c))));
+			}
+		}
+	}
+
 	@Test
 	public void testGetTransitionsOnNonmatching() throws Exception {
 		State error = new State(TESTERROR);
@@ -569,6 +645,30 @@ public class TabledAutomatonTest {
 			.withArcs(1, "a"));
 	}
 
+	@Test
+	public void testLongestMatches() throws Exception {
+		TabledAutomaton automaton = Pattern.compileGenericAutomaton("ab|a.*c").toAutomaton(new ToTabledAutomaton());
+		LongestMatches matches = automaton.longestMatches("abxabacb");
+
+		matches.matchAt(0);
+		assertThat(matches.end(), equalTo(7));
+		assertThat(matches.type(), equalTo((TokenType) ACCEPT));
+		matches.matchAt(7);
+		assertThat(matches.end(), equalTo(7));
+		assertThat(matches.type(), nullValue());
+	}
+
+	@Test
+	public void testLongestMatchesStopAtDeadEnds() throws Exception {
+		TabledAutomaton automaton = Pattern.compileGenericAutomaton("ab|a.*c").toAutomaton(new ToTabledAutomaton());
+		LongestMatches matches = automaton.longestMatches("ababab");
+
+		for (int start = 0; start < 6; start += 2) {
+			matches.matchAt(start);
+			assertThat(matches.end(), equalTo(start + 2));
+		}
+	}
+
 	@Test
 	public void testStoreUnprintableCharTransition() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
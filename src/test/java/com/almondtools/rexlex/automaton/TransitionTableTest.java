@@ -0,0 +1,115 @@
+package com.almondtools.rexlex.automaton;
+
+import static com.almondtools.rexlex.automaton.TabledAutomaton.ERROR;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.automaton.TransitionTable.ByteTable;
+import com.almondtools.rexlex.automaton.TransitionTable.CharTable;
+import com.almondtools.rexlex.automaton.TransitionTable.CombTable;
+import com.almondtools.rexlex.automaton.TransitionTable.DeduplicatedTable;
+import com.almondtools.rexlex.automaton.TransitionTable.IntTable;
+import com.almondtools.rexlex.pattern.Pattern;
+
+public class TransitionTableTest {
+
+	@Test
+	public void testAllLayoutsAgree() throws Exception {
+		Random random = new Random(17);
+		for (int k = 0; k < 20; k++) {
+			int stateCount = 2 + random.nextInt(300);
+			int charClassCount = 1 + random.nextInt(40);
+			int[] transitions = new int[stateCount * charClassCount];
+			for (int i = 0; i < transitions.length; i++) {
+				transitions[i] = random.nextInt(4) == 0 ? random.nextInt(stateCount) : ERROR;
+			}
+
+			assertAgrees(new IntTable(transitions, charClassCount), transitions, stateCount);
+			assertAgrees(new CharTable(transitions, charClassCount), transitions, stateCount);
+			if (stateCount <= 1 << 8) {
+				assertAgrees(new ByteTable(transitions, charClassCount), transitions, stateCount);
+			}
+			assertAgrees(DeduplicatedTable.of(transitions, charClassCount), transitions, stateCount);
+			assertAgrees(CombTable.of(transitions, charClassCount, Long.MAX_VALUE), transitions, stateCount);
+			assertAgrees(TransitionTable.compress(transitions, charClassCount), transitions, stateCount);
+		}
+	}
+
+	@Test
+	public void testCompressSmallTable() throws Exception {
+		int[] transitions = new int[] { 1, 2, 1, 1, 2, 1 };
+
+		TransitionTable table = TransitionTable.compress(transitions, 2);
+
+		assertThat(table, instanceOf(ByteTable.class));
+		assertThat(table.size(), equalTo(6l));
+	}
+
+	@Test
+	public void testCompressRepeatedRows() throws Exception {
+		int stateCount = 1000;
+		int charClassCount = 20;
+		int[] transitions = new int[stateCount * charClassCount];
+		for (int state = 0; state < stateCount; state++) {
+			for (int charClass = 0; charClass < charClassCount; charClass++) {
+				transitions[state * charClassCount + charClass] = (state % 2) * charClass * 37 % stateCount;
+			}
+		}
+
+		TransitionTable table = TransitionTable.compress(transitions, charClassCount);
+
+		assertThat(table, instanceOf(DeduplicatedTable.class));
+		assertAgrees(table, transitions, stateCount);
+	}
+
+	@Test
+	public void testCompressSparseTable() throws Exception {
+		int stateCount = 1000;
+		int charClassCount = 100;
+		int[] transitions = new int[stateCount * charClassCount];
+		for (int state = 0; state < stateCount; state++) {
+			for (int charClass = 0; charClass < charClassCount; charClass++) {
+				transitions[state * charClassCount + charClass] = charClass == state % charClassCount ? (state + 1) % stateCount : ERROR;
+			}
+		}
+
+		TransitionTable table = TransitionTable.compress(transitions, charClassCount);
+
+		assertThat(table, instanceOf(CombTable.class));
+		assertThat(table.size() < stateCount * charClassCount / 4, equalTo(true));
+		assertAgrees(table, transitions, stateCount);
+	}
+
+	@Test
+	public void testTabledAutomatonKeepsTransitions() throws Exception {
+		TabledAutomaton automaton = Pattern.compileGenericAutomaton("[a-z]+[0-9]*|\u00e4{1,40}").toAutomaton(new FromGenericAutomaton.ToTabledAutomaton());
+		int stateCount = automaton.getStateCount();
+		int charClassCount = automaton.getCharClassCount();
+
+		int[] transitions = automaton.getTransitions();
+
+		assertThat(transitions.length, equalTo(stateCount * charClassCount));
+		for (int state = 0; state < stateCount; state++) {
+			for (int charClass = 0; charClass < charClassCount; charClass++) {
+				assertThat(automaton.getTarget(state, charClass), equalTo(transitions[state * charClassCount + charClass]));
+			}
+		}
+		assertThat(automaton.getTransitionTable().size() <= 4l * transitions.length, equalTo(true));
+	}
+
+	private static void assertAgrees(TransitionTable table, int[] transitions, int stateCount) {
+		int charClassCount = transitions.length / stateCount;
+		for (int state = 0; state < stateCount; state++) {
+			for (int charClass = 0; charClass < charClassCount; charClass++) {
+				assertThat(table.target(state, charClass), equalTo(transitions[state * charClassCount + charClass]));
+			}
+		}
+		assertThat(table.toArray(stateCount), equalTo(transitions));
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.almondtools.rexlex.automaton;
+
+import static com.almondtools.rexlex.tokens.Accept.A;
+import static com.almondtools.rexlex.tokens.Accept.B;
+import static com.almondtools.rexlex.tokens.Accept.REMAINDER;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToUtf8TabledAutomaton;
+import com.almondtools.rexlex.io.ByteBufferCharProvider;
+import com.almondtools.rexlex.pattern.Pattern;
+import com.almondtools.rexlex.pattern.RemainderTokenType;
+import com.almondtools.rexlex.tokens.TestToken;
+import com.almondtools.rexlex.tokens.TestTokenFactory;
+
+import net.amygdalum.util.io.CharProvider;
+import net.amygdalum.util.io.StringCharProvider;
+
+public class Utf8TabledAutomatonTest {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	@Test
+	public void testUtf8SequencesAscii() throws Exception {
+		List<char[][]> sequences = GenericAutomaton.utf8Sequences('a', 'z');
+		assertThat(sequences.size(), equalTo(1));
+		assertThat(sequences.get(0), equalTo(new char[][] { { 'a', 'z' } }));
+	}
+
+	@Test
+	public void testUtf8SequencesAll() throws Exception {
+		List<char[][]> sequences = GenericAutomaton.utf8Sequences('\u0000', '\uffff');
+		assertThat(sequences.toArray(new char[0][][]), equalTo(new char[][][] {
+			{ { 0x00, 0x7f } },
+			{ { 0xc2, 0xdf }, { 0x80, 0xbf } },
+			{ { 0xe0, 0xe0 }, { 0xa0, 0xbf }, { 0x80, 0xbf } },
+			{ { 0xe1, 0xec }, { 0x80, 0xbf }, { 0x80, 0xbf } },
+			{ { 0xed, 0xed }, { 0x80, 0x9f }, { 0x80, 0xbf } },
+			{ { 0xee, 0xef }, { 0x80, 0xbf }, { 0x80, 0xbf } }
+		}));
+	}
+
+	@Test
+	public void testUtf8SequencesOfSurrogates() throws Exception {
+		assertThat(GenericAutomaton.utf8Sequences('\ud800', '\udfff').isEmpty(), equalTo(true));
+	}
+
+	@Test
+	public void testRelevantCharsAreBytes() throws Exception {
+		TabledAutomaton automaton = Pattern.compileGenericAutomaton("[^a]*\u20ac").toAutomaton(new ToUtf8TabledAutomaton());
+		for (char c : automaton.getCharClassMapper().getRelevantChars()) {
+			assertThat(c <= 0xff, equalTo(true));
+		}
+	}
+
+	@Test
+	public void testTokenizeAgreesWithCharAutomaton() throws Exception {
+		List<GenericAutomaton> patterns = new ArrayList<GenericAutomaton>();
+		patterns.add(Pattern.compileGenericAutomaton("[a-z\u00e4]+", new RemainderTokenType(A)));
+		patterns.add(Pattern.compileGenericAutomaton("\u20ac|\u07ff|[\u0800-\ufffd]\u00e4", new RemainderTokenType(B)));
+		GenericAutomaton nfa = GenericAutomatonBuilder.matchAlternatives(patterns);
+		TabledAutomaton chars = nfa.toAutomaton(new ToTabledAutomaton(REMAINDER));
+		TabledAutomaton bytes = nfa.toAutomaton(new ToUtf8TabledAutomaton(REMAINDER));
+		char[] alphabet = { 'a', 'z', '\u00e4', '\u20ac', ' ', '\u07ff', '\u0800', '\ufffd' };
+		Random random = new Random(7);
+		for (int i = 0; i < 200; i++) {
+			StringBuilder buffer = new StringBuilder();
+			for (int j = 0; j < 20; j++) {
+				buffer.append(alphabet[random.nextInt(alphabet.length)]);
+			}
+			String input = buffer.toString();
+			List<TestToken> expected = tokenize(chars, new StringCharProvider(input, 0));
+			List<TestToken> actual = tokenize(bytes, new ByteBufferCharProvider(ByteBuffer.wrap(input.getBytes(UTF8)), UTF8));
+			assertThat(input, actual, equalTo(expected));
+		}
+	}
+
+	@Test
+	public void testSurrogateSequences() throws Exception {
+		assertThat(GenericAutomaton.highSurrogateSequences('\ud83d', '\ud83d', 1).toArray(new char[0][][]), equalTo(new char[][][] {
+			{ { 0xf0, 0xf0 }, { 0x9f, 0x9f } }
+		}));
+		assertThat(GenericAutomaton.highSurrogateSequences('\ud83d', '\ud83d', 0).isEmpty(), equalTo(true));
+		assertThat(GenericAutomaton.lowSurrogateSequences('\ude00', '\ude00', 1).toArray(new char[0][][]), equalTo(new char[][][] {
+			{ { 0x98, 0x98 }, { 0x80, 0x80 } }
+		}));
+	}
+
+	@Test
+	public void testTokenizeSupplementaryCharsAgreesWithCharAutomaton() throws Exception {
+		List<GenericAutomaton> patterns = new ArrayList<GenericAutomaton>();
+		patterns.add(Pattern.compileGenericAutomaton("[^ ]+", new RemainderTokenType(A)));
+		patterns.add(Pattern.compileGenericAutomaton("\\ud83d\\ude00|x[\\ud800-\\udbff][\\udc00-\\udfff]", new RemainderTokenType(B)));
+		GenericAutomaton nfa = GenericAutomatonBuilder.matchAlternatives(patterns);
+		TabledAutomaton chars = nfa.toAutomaton(new ToTabledAutomaton(REMAINDER));
+		TabledAutomaton bytes = nfa.toAutomaton(new ToUtf8TabledAutomaton(REMAINDER));
+		String[] alphabet = { "a", "x", " ", "\u00e4", "\u20ac", "\ud83d\ude00", "\ud800\udc00", "\udbff\udfff", "\ud834\udd1e" };
+		Random random = new Random(11);
+		for (int i = 0; i < 200; i++) {
+			StringBuilder buffer = new StringBuilder();
+			for (int j = 0; j < 20; j++) {
+				buffer.append(alphabet[random.nextInt(alphabet.length)]);
+			}
+			String input = buffer.toString();
+			List<TestToken> expected = tokenize(chars, new StringCharProvider(input, 0));
+			List<TestToken> actual = tokenize(bytes, new ByteBufferCharProvider(ByteBuffer.wrap(input.getBytes(UTF8)), UTF8));
+			assertThat(input, actual, equalTo(expected));
+		}
+	}
+
+	private static List<TestToken> tokenize(Automaton automaton, CharProvider input) {
+		List<TestToken> tokens = new ArrayList<TestToken>();
+		Iterator<TestToken> tokenIterator = automaton.tokenize(input, new TestTokenFactory());
+		while (tokenIterator.hasNext()) {
+			tokens.add(tokenIterator.next());
+		}
+		return tokens;
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.almondtools.rexlex.io;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class ByteBufferCharProviderTest {
+
+	@Test
+	public void testNext() throws Exception {
+		ByteBufferCharProvider chars = new ByteBufferCharProvider(ByteBuffer.wrap("aäb".getBytes("ISO-8859-1")));
+		assertThat(chars.next(), equalTo('a'));
+		assertThat(chars.next(), equalTo('ä'));
+		assertThat(chars.lookahead(), equalTo('b'));
+		assertThat(chars.finished(), is(false));
+		assertThat(chars.next(), equalTo('b'));
+		assertThat(chars.finished(), is(true));
+	}
+
+	@Test
+	public void testPrevAndLookbehind() throws Exception {
+		ByteBufferCharProvider chars = new ByteBufferCharProvider(ByteBuffer.wrap("abc".getBytes("ISO-8859-1")));
+		chars.finish();
+		assertThat(chars.lookbehind(), equalTo('c'));
+		assertThat(chars.lookbehind(1), equalTo('b'));
+		assertThat(chars.prev(), equalTo('c'));
+		assertThat(chars.current(), equalTo(2l));
+	}
+
+	@Test
+	public void testSliceRespectsBufferPosition() throws Exception {
+		ByteBuffer buffer = ByteBuffer.wrap("xxabcd".getBytes("ISO-8859-1"));
+		buffer.position(2);
+		ByteBufferCharProvider chars = new ByteBufferCharProvider(buffer);
+		assertThat(chars.slice(1, 3), equalTo("bc"));
+		assertThat(chars.at(0), equalTo('a'));
+		assertThat(chars.finished(3), is(false));
+		assertThat(chars.finished(4), is(true));
+	}
+
+	@Test
+	public void testMarkChanged() throws Exception {
+		ByteBufferCharProvider chars = new ByteBufferCharProvider(ByteBuffer.wrap("ab".getBytes("ISO-8859-1")));
+		chars.mark();
+		chars.next();
+		assertThat(chars.changed(), is(true));
+		assertThat(chars.changed(), is(false));
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.almondtools.rexlex.io;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringReader;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.automaton.TabledAutomaton;
+import com.almondtools.rexlex.pattern.Pattern;
+import com.almondtools.rexlex.tokens.TestToken;
+import com.almondtools.rexlex.tokens.TestTokenFactory;
+
+import net.amygdalum.util.io.OutOfBufferException;
+
+public class StreamCharProviderTest {
+
+	@Test
+	public void testNextAndLookahead() throws Exception {
+		StreamCharProvider chars = new StreamCharProvider(new StringReader("abcdef"), 2);
+		assertThat(chars.lookahead(), equalTo('a'));
+		assertThat(chars.lookahead(3), equalTo('d'));
+		assertThat(chars.next(), equalTo('a'));
+		assertThat(chars.next(), equalTo('b'));
+		assertThat(chars.current(), equalTo(2l));
+		assertThat(chars.lookbehind(), equalTo('b'));
+		assertThat(chars.prev(), equalTo('b'));
+		assertThat(chars.current(), equalTo(1l));
+	}
+
+	@Test
+	public void testFinished() throws Exception {
+		StreamCharProvider chars = new StreamCharProvider(new StringReader("ab"), 1);
+		assertThat(chars.finished(), is(false));
+		assertThat(chars.finished(1), is(false));
+		assertThat(chars.finished(2), is(true));
+		chars.next();
+		chars.next();
+		assertThat(chars.finished(), is(true));
+	}
+
+	@Test
+	public void testFinish() throws Exception {
+		StreamCharProvider chars = new StreamCharProvider(new StringReader("abcdefghij"), 2);
+		chars.finish();
+		assertThat(chars.current(), equalTo(10l));
+		assertThat(chars.finished(), is(true));
+	}
+
+	@Test
+	public void testSliceAcrossChunks() throws Exception {
+		StreamCharProvider chars = new StreamCharProvider(new StringReader("abcdefghij"), 2);
+		assertThat(chars.slice(1, 9), equalTo("bcdefghi"));
+		assertThat(new String(chars.between(3, 6)), equalTo("def"));
+		assertThat(chars.at(9), equalTo('j'));
+	}
+
+	@Test
+	public void testMarkChanged() throws Exception {
+		StreamCharProvider chars = new StreamCharProvider(new StringReader("ab"), 2);
+		chars.mark();
+		assertThat(chars.changed(), is(false));
+		chars.mark();
+		chars.next();
+		assertThat(chars.changed(), is(true));
+		assertThat(chars.changed(), is(false));
+	}
+
+	@Test
+	public void testReleaseDiscardsChars() throws Exception {
+		StreamCharProvider chars = new StreamCharProvider(new StringReader("abcdefghijklmnopqrstuvwxyz"), 4);
+		for (int i = 0; i < 20; i++) {
+			chars.release(chars.current());
+			chars.next();
+		}
+		assertThat(chars.getWindowSize(), lessThan(8));
+		assertThat(chars.slice(18, 20), equalTo("st"));
+	}
+
+	@Test(expected = OutOfBufferException.class)
+	public void testAccessReleasedChars() throws Exception {
+		StreamCharProvider chars = new StreamCharProvider(new StringReader("abcdefghijklmnopqrstuvwxyz"), 4);
+		chars.release(20);
+		chars.at(20);
+		chars.at(0);
+	}
+
+	@Test
+	public void testTokenizeKeepsOnlyTheCurrentToken() throws Exception {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			input.append("word").append(i).append(' ');
+		}
+		TabledAutomaton automaton = Pattern.compileAutomaton("[a-z]+[0-9]+ ", new ToTabledAutomaton());
+		StreamCharProvider chars = new StreamCharProvider(new StringReader(input.toString()), 16);
+		Iterator<TestToken> tokens = automaton.tokenize(chars, new TestTokenFactory());
+		StringBuilder output = new StringBuilder();
+		int maxWindowSize = 0;
+		while (tokens.hasNext()) {
+			output.append(tokens.next().getLiteral());
+			maxWindowSize = Math.max(maxWindowSize, chars.getWindowSize());
+		}
+		assertThat(output.toString(), equalTo(input.toString()));
+		assertThat(maxWindowSize, lessThan(64));
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.almondtools.rexlex.io;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class Utf8ByteBufferCharProviderTest {
+
+	private static final String MIXED = "aä€😀b";
+
+	@Test
+	public void testNext() throws Exception {
+		Utf8ByteBufferCharProvider chars = new Utf8ByteBufferCharProvider(utf8(MIXED));
+		StringBuilder buffer = new StringBuilder();
+		while (!chars.finished()) {
+			buffer.append(chars.next());
+		}
+		assertThat(buffer.toString(), equalTo(MIXED));
+		assertThat(chars.current(), equalTo(11l));
+	}
+
+	@Test
+	public void testPositionsAreByteOffsets() throws Exception {
+		Utf8ByteBufferCharProvider chars = new Utf8ByteBufferCharProvider(utf8(MIXED));
+		long[] positions = new long[6];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = chars.current();
+			chars.next();
+		}
+		assertThat(positions, equalTo(new long[] { 0, 1, 3, 6, 8, 10 }));
+	}
+
+	@Test
+	public void testPrev() throws Exception {
+		Utf8ByteBufferCharProvider chars = new Utf8ByteBufferCharProvider(utf8(MIXED));
+		chars.finish();
+		StringBuilder buffer = new StringBuilder();
+		while (chars.current() > 0) {
+			buffer.append(chars.prev());
+		}
+		assertThat(buffer.reverse().toString(), equalTo(MIXED));
+	}
+
+	@Test
+	public void testLookaheadAndLookbehind() throws Exception {
+		Utf8ByteBufferCharProvider chars = new Utf8ByteBufferCharProvider(utf8(MIXED));
+		chars.move(3);
+		assertThat(chars.lookahead(), equalTo('€'));
+		assertThat(chars.lookahead(1), equalTo('\ud83d'));
+		assertThat(chars.lookahead(2), equalTo('\ude00'));
+		assertThat(chars.lookbehind(), equalTo('ä'));
+		assertThat(chars.lookbehind(1), equalTo('a'));
+		assertThat(chars.finished(4), is(true));
+		assertThat(chars.finished(3), is(false));
+	}
+
+	@Test
+	public void testSlice() throws Exception {
+		Utf8ByteBufferCharProvider chars = new Utf8ByteBufferCharProvider(utf8(MIXED));
+		assertThat(chars.slice(1, 6), equalTo("ä€"));
+		assertThat(chars.slice(6, 10), equalTo("😀"));
+		assertThat(new String(chars.between(0, 11)), equalTo(MIXED));
+	}
+
+	@Test
+	public void testMalformed() throws Exception {
+		Utf8ByteBufferCharProvider chars = new Utf8ByteBufferCharProvider(ByteBuffer.wrap(new byte[] { 'a', (byte) 0x80, (byte) 0xc3, 'b' }));
+		assertThat(chars.next(), equalTo('a'));
+		assertThat(chars.next(), equalTo('�'));
+		assertThat(chars.next(), equalTo('�'));
+		assertThat(chars.next(), equalTo('b'));
+		assertThat(chars.prev(), equalTo('b'));
+		assertThat(chars.prev(), equalTo('�'));
+		assertThat(chars.prev(), equalTo('�'));
+		assertThat(chars.prev(), equalTo('a'));
+	}
+
+	private static ByteBuffer utf8(String input) throws Exception {
+		return ByteBuffer.wrap(input.getBytes("UTF-8"));
+	}
+
+}
@@ -4,23 +4,57 @@ import static com.almondtools.rexlex.tokens.Accept.A;
 import static com.almondtools.rexlex.tokens.Accept.B;
 import static com.almondtools.rexlex.tokens.Accept.REMAINDER;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.contains;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import com.almondtools.rexlex.RangeTokenFactory;
 import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.AhoCorasickAutomaton;
+import com.almondtools.rexlex.automaton.Automaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToAhoCorasickAutomaton;
+import com.almondtools.rexlex.automaton.TabledAutomaton;
+import com.almondtools.rexlex.pattern.DefaultTokenType;
+import com.almondtools.rexlex.pattern.TokenCursor;
 import com.almondtools.rexlex.tokens.TestToken;
 import com.almondtools.rexlex.tokens.TestTokenFactory;
 
 import net.amygdalum.util.builders.Maps;
+import net.amygdalum.util.io.CharProvider;
+import net.amygdalum.util.io.StringCharProvider;
 
 public class DynamicLexerTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	private TestTokenFactory factory;
 
 	@Before
@@ -138,4 +172,297 @@ public class DynamicLexerTest {
 		assertThat(tokens.next(), equalTo(new TestToken("[/quote]", REMAINDER)));
 	}
 
+	@Test
+	public void testLexReader() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType>linked()
+			.put("a+", A)
+			.put("b", B)
+			.build();
+		DynamicLexer<TestToken> lexer = new DynamicLexer<TestToken>(patternToTypes, REMAINDER, factory);
+		Iterator<TestToken> tokens = lexer.lex(new StringReader("aabcba"));
+		assertThat(tokens.next(), equalTo(new TestToken("aa", A)));
+		assertThat(tokens.next(), equalTo(new TestToken("b", B)));
+		assertThat(tokens.next(), equalTo(new TestToken("c", REMAINDER)));
+		assertThat(tokens.next(), equalTo(new TestToken("b", B)));
+		assertThat(tokens.next(), equalTo(new TestToken("a", A)));
+		assertFalse(tokens.hasNext());
+	}
+
+	@Test
+	public void testLexChannel() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType>linked()
+			.put("\u00e4+", A)
+			.put("b", B)
+			.build();
+		DynamicLexer<TestToken> lexer = new DynamicLexer<TestToken>(patternToTypes, REMAINDER, factory);
+		ReadableByteChannel input = Channels.newChannel(new ByteArrayInputStream("\u00e4\u00e4bc".getBytes("UTF-8")));
+		Iterator<TestToken> tokens = lexer.lex(input, Charset.forName("UTF-8"));
+		assertThat(tokens.next(), equalTo(new TestToken("\u00e4\u00e4", A)));
+		assertThat(tokens.next(), equalTo(new TestToken("b", B)));
+		assertThat(tokens.next(), equalTo(new TestToken("c", REMAINDER)));
+		assertFalse(tokens.hasNext());
+	}
+
+	@Test
+	public void testLexMappedBuffer() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType>linked()
+			.put("[a-z\u00e4]+", A)
+			.put("[0-9]+", B)
+			.put(" ", DefaultTokenType.IGNORE)
+			.build();
+		DynamicLexer<TestToken> lexer = new DynamicLexer<TestToken>(patternToTypes, REMAINDER, factory);
+		String input = "k\u00e4se 42 \u20ac";
+		for (String charset : new String[] { "UTF-8", "ISO-8859-15" }) {
+			File file = folder.newFile(charset);
+			Files.write(file.toPath(), input.getBytes(charset));
+			try (FileChannel channel = FileChannel.open(file.toPath())) {
+				MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+				Iterator<TestToken> tokens = lexer.lex(buffer, Charset.forName(charset));
+				assertThat(tokens.next(), equalTo(new TestToken("k\u00e4se", A)));
+				assertThat(tokens.next(), equalTo(new TestToken("42", B)));
+				assertThat(tokens.next(), equalTo(new TestToken("\u20ac", REMAINDER)));
+				assertFalse(tokens.hasNext());
+			}
+		}
+	}
+
+	@Test
+	public void testLexUtf8BufferWithSupplementaryChars() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType>linked()
+			.put("[^ ]+", A)
+			.put(" ", DefaultTokenType.IGNORE)
+			.build();
+		DynamicLexer<TestToken> lexer = new DynamicLexer<TestToken>(patternToTypes, REMAINDER, factory);
+		String input = "a\ud83d\ude00b c \udbff\udfff";
+		List<TestToken> expected = toList(lexer.lex(input));
+		assertThat(expected, contains(new TestToken("a\ud83d\ude00b", A), new TestToken("c", A), new TestToken("\udbff\udfff", A)));
+		assertThat(toList(lexer.lex(ByteBuffer.wrap(input.getBytes("UTF-8")), Charset.forName("UTF-8"))), equalTo(expected));
+	}
+
+	@Test
+	public void testLexBufferWithRangeTokenFactory() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType>linked()
+			.put("[a-z]+", A)
+			.put(" +", DefaultTokenType.IGNORE)
+			.build();
+		final List<String> sliced = new ArrayList<String>();
+		DynamicLexer<TestToken> lexer = new DynamicLexer<TestToken>(patternToTypes, REMAINDER, new RangeTokenFactory<TestToken>() {
+
+			@Override
+			public TestToken createToken(String literal, TokenType type) {
+				return new TestToken(literal, type);
+			}
+
+			@Override
+			public TestToken createToken(final CharProvider chars, final long start, final long end, TokenType type) {
+				return new TestToken(null, type) {
+					@Override
+					public String getLiteral() {
+						String literal = chars.slice(start, end);
+						sliced.add(literal);
+						return literal;
+					}
+				};
+			}
+		});
+		Iterator<TestToken> tokens = lexer.lex(ByteBuffer.wrap("ab   cd".getBytes("ISO-8859-1")), Charset.forName("ISO-8859-1"));
+		TestToken ab = tokens.next();
+		TestToken cd = tokens.next();
+		assertFalse(tokens.hasNext());
+		assertThat(sliced.isEmpty(), is(true));
+		assertThat(cd.getLiteral(), equalTo("cd"));
+		assertThat(ab.getLiteral(), equalTo("ab"));
+		assertThat(sliced, contains("cd", "ab"));
+	}
+
+	@Test
+	public void testCursor() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType>linked()
+			.put("[a-z]+", A)
+			.put(" +", DefaultTokenType.IGNORE)
+			.build();
+		DynamicLexer<TestToken> lexer = new DynamicLexer<TestToken>(patternToTypes, REMAINDER, factory);
+		TokenCursor cursor = lexer.cursor("ab  cd!");
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.literal(), equalTo("ab"));
+		assertThat(cursor.type(), equalTo((TokenType) A));
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.start(), equalTo(4l));
+		assertThat(cursor.end(), equalTo(6l));
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.literal(), equalTo("!"));
+		assertThat(cursor.type(), equalTo((TokenType) REMAINDER));
+		assertFalse(cursor.next());
+	}
+
+	@Test
+	public void testLexWithAhoCorasickAutomaton() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType>linked()
+			.put("if|iff|then", A)
+			.put(" ", DefaultTokenType.IGNORE)
+			.build();
+		assertThat(new DynamicLexer<TestToken>(patternToTypes, REMAINDER, factory).getAutomaton(), instanceOf(TabledAutomaton.class));
+		DynamicLexer<TestToken> lexer = new DynamicLexer<TestToken>(patternToTypes, REMAINDER, new ToAhoCorasickAutomaton(REMAINDER), factory);
+		assertThat(lexer.getAutomaton(), instanceOf(AhoCorasickAutomaton.class));
+		Iterator<TestToken> tokens = lexer.lex("iff then x");
+		assertThat(tokens.next(), equalTo(new TestToken("iff", A)));
+		assertThat(tokens.next(), equalTo(new TestToken("then", A)));
+		assertThat(tokens.next(), equalTo(new TestToken("x", REMAINDER)));
+		assertFalse(tokens.hasNext());
+	}
+
+	@Test
+	public void testLexWithPrecompiledAutomaton() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType>linked()
+			.put("[a-z\u00e4]+", A)
+			.put(" ", DefaultTokenType.IGNORE)
+			.build();
+		TabledAutomaton automaton = DynamicLexer.compile(patternToTypes, REMAINDER);
+		DynamicLexer<TestToken> lexer = new DynamicLexer<TestToken>(automaton, factory);
+		assertThat(lexer.getAutomaton(), sameInstance((Automaton) automaton));
+		Iterator<TestToken> tokens = lexer.lex(ByteBuffer.wrap("k\u00e4se 42".getBytes("UTF-8")), Charset.forName("UTF-8"));
+		assertThat(tokens.next(), equalTo(new TestToken("k\u00e4se", A)));
+		assertThat(tokens.next(), equalTo(new TestToken("42", REMAINDER)));
+		assertFalse(tokens.hasNext());
+	}
+
+	@Test
+	public void testCursorOnUtf8WithPrecompiledAutomaton() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType>linked()
+			.put("[a-z\u00e4]+", A)
+			.put(" ", DefaultTokenType.IGNORE)
+			.build();
+		DynamicLexer<TestToken> lexer = new DynamicLexer<TestToken>(DynamicLexer.compile(patternToTypes, REMAINDER), factory);
+		TokenCursor cursor = lexer.cursor(ByteBuffer.wrap("k\u00e4se 42".getBytes("UTF-8")), Charset.forName("UTF-8"));
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.literal(), equalTo("k\u00e4se"));
+		assertThat(cursor.end(), equalTo(5l));
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.start(), equalTo(6l));
+		assertThat(cursor.literal(), equalTo("42"));
+		assertFalse(cursor.next());
+	}
+
+	@Test
+	public void testBacktrackingToPendingMatchEnd() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType>linked()
+			.put("ab*c", A)
+			.put("a", B)
+			.put("b", B)
+			.build();
+		DynamicLexer<TestToken> lexer = new DynamicLexer<TestToken>(patternToTypes, REMAINDER, factory);
+		Iterator<TestToken> tokens = lexer.lex("abbd");
+		assertThat(tokens.next(), equalTo(new TestToken("a", B)));
+		assertThat(tokens.next(), equalTo(new TestToken("b", B)));
+		assertThat(tokens.next(), equalTo(new TestToken("b", B)));
+		assertThat(tokens.next(), equalTo(new TestToken("d", REMAINDER)));
+		assertFalse(tokens.hasNext());
+	}
+
+	@Test
+	public void testBacktrackingIsLinear() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType>linked()
+			.put("a+b", A)
+			.put("a", B)
+			.build();
+		TabledAutomaton automaton = DynamicLexer.compile(patternToTypes, REMAINDER);
+		for (int n : new int[] { 20000, 80000 }) {
+			StringBuilder buffer = new StringBuilder();
+			for (int i = 0; i < n; i++) {
+				buffer.append('a');
+			}
+			String input = buffer.toString();
+			final long[] reads = new long[1];
+			TokenCursor cursor = new TokenCursor(automaton, new StringCharProvider(input, 0) {
+				@Override
+				public char next() {
+					reads[0]++;
+					return super.next();
+				}
+			});
+			int count = 0;
+			while (cursor.next()) {
+				assertThat(cursor.type(), equalTo((TokenType) B));
+				count++;
+			}
+			assertThat(count, equalTo(n));
+			assertThat(reads[0] <= 8l * n, is(true));
+		}
+	}
+
+	@Test
+	public void testLexParallel() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType>linked()
+			.put("ab*c", A)
+			.put("b", B)
+			.put(" ", DefaultTokenType.IGNORE)
+			.build();
+		DynamicLexer<TestToken> lexer = new DynamicLexer<TestToken>(patternToTypes, REMAINDER, factory);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Iterator<TestToken> tokens = lexer.lex("abbbbc bxabbbbd", executor, 3);
+			assertThat(tokens.next(), equalTo(new TestToken("abbbbc", A)));
+			assertThat(tokens.next(), equalTo(new TestToken("b", B)));
+			assertThat(tokens.next(), equalTo(new TestToken("xa", REMAINDER)));
+			assertThat(tokens.next(), equalTo(new TestToken("b", B)));
+			assertThat(tokens.next(), equalTo(new TestToken("b", B)));
+			assertThat(tokens.next(), equalTo(new TestToken("b", B)));
+			assertThat(tokens.next(), equalTo(new TestToken("b", B)));
+			assertThat(tokens.next(), equalTo(new TestToken("d", REMAINDER)));
+			assertFalse(tokens.hasNext());
+			assertFalse(lexer.lex("", executor).hasNext());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testLexSkipsNullTypes() throws Exception {
+		Map<String, TokenType> words = Maps.<String, TokenType>linked()
+			.put("a", A)
+			.put("b", B)
+			.build();
+		DynamicLexer<TestToken> lexer = new DynamicLexer<TestToken>(new AhoCorasickAutomaton(words, null), factory);
+		assertThat(toList(lexer.lex("axbyya")), contains(new TestToken("a", A), new TestToken("b", B), new TestToken("a", A)));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			assertThat(toList(lexer.lex("axbyya", executor, 2)), contains(new TestToken("a", A), new TestToken("b", B), new TestToken("a", A)));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testLexParallelAgreesWithLex() throws Exception {
+		Map<String, TokenType> patternToTypes = Maps.<String, TokenType>linked()
+			.put("ab*c", A)
+			.put("a+", B)
+			.put("\"[^\"]*\"", A)
+			.put("b", null)
+			.build();
+		DynamicLexer<TestToken> lexer = new DynamicLexer<TestToken>(patternToTypes, REMAINDER, factory);
+		Random random = new Random(9);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int i = 0; i < 200; i++) {
+				StringBuilder input = new StringBuilder();
+				for (int j = random.nextInt(60); j > 0; j--) {
+					input.append("abc\"d".charAt(random.nextInt(5)));
+				}
+				int chunkSize = 1 + random.nextInt(8);
+				assertThat(input + "/" + chunkSize, toList(lexer.lex(input.toString(), executor, chunkSize)), equalTo(toList(lexer.lex(input.toString()))));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static List<TestToken> toList(Iterator<TestToken> tokens) {
+		List<TestToken> list = new ArrayList<TestToken>();
+		while (tokens.hasNext()) {
+			list.add(tokens.next());
+		}
+		return list;
+	}
+
 }
@@ -0,0 +1,178 @@
+package com.almondtools.rexlex.lexer;
+
+import static com.almondtools.rexlex.tokens.Accept.A;
+import static com.almondtools.rexlex.tokens.Accept.B;
+import static com.almondtools.rexlex.tokens.Accept.C;
+import static com.almondtools.rexlex.tokens.Accept.REMAINDER;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.almondtools.rexlex.Lexer;
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.LazyAutomaton;
+import com.almondtools.rexlex.tokens.TestToken;
+import com.almondtools.rexlex.tokens.TestTokenFactory;
+
+public class IncrementalLexerTest {
+
+	private TestTokenFactory factory;
+
+	@Before
+	public void before() {
+		this.factory = new TestTokenFactory();
+	}
+
+	@Test
+	public void testAgreesWithDynamicLexer() throws Exception {
+		Map<String, TokenType> patterns = new LinkedHashMap<String, TokenType>();
+		IncrementalLexer<TestToken> lexer = new IncrementalLexer<TestToken>(patterns, REMAINDER, factory);
+		Random random = new Random(23);
+
+		lexer.matchPattern("[a-c]+", A);
+		patterns.put("[a-c]+", A);
+		assertAgrees(lexer, patterns, random);
+
+		lexer.matchPattern("(ab|ba)*c", B);
+		patterns.put("(ab|ba)*c", B);
+		assertAgrees(lexer, patterns, random);
+
+		lexer.matchPattern("d+", null);
+		patterns.put("d+", null);
+		assertAgrees(lexer, patterns, random);
+
+		lexer.matchPattern("[a-c]+", C);
+		patterns.put("[a-c]+", C);
+		assertAgrees(lexer, patterns, random);
+
+		lexer.removePattern("(ab|ba)*c");
+		patterns.remove("(ab|ba)*c");
+		assertAgrees(lexer, patterns, random);
+
+		assertThat(lexer.getPatterns(), equalTo(patterns));
+	}
+
+	@Test
+	public void testReplaceAndRemovePattern() throws Exception {
+		Map<String, TokenType> patterns = new LinkedHashMap<String, TokenType>();
+		patterns.put("a+", A);
+		patterns.put("b+", B);
+		IncrementalLexer<TestToken> lexer = new IncrementalLexer<TestToken>(patterns, REMAINDER, factory);
+
+		assertThat(tokens(lexer, "aab"), contains(new TestToken("aa", A), new TestToken("b", B)));
+
+		lexer.matchPattern("a+", C);
+		assertThat(tokens(lexer, "aab"), contains(new TestToken("aa", C), new TestToken("b", B)));
+
+		lexer.removePattern("b+");
+		assertThat(tokens(lexer, "aab"), contains(new TestToken("aa", C), new TestToken("b", REMAINDER)));
+	}
+
+	@Test
+	public void testCompileInBackground() throws Exception {
+		Map<String, TokenType> patterns = new LinkedHashMap<String, TokenType>();
+		patterns.put("a+", A);
+		QueuedExecutor executor = new QueuedExecutor();
+		IncrementalLexer<TestToken> lexer = new IncrementalLexer<TestToken>(patterns, REMAINDER, factory, executor);
+
+		assertThat(lexer.isCompiled(), equalTo(false));
+		assertThat(lexer.getAutomaton(), instanceOf(LazyAutomaton.class));
+		assertThat(tokens(lexer, "aab"), contains(new TestToken("aa", A), new TestToken("b", REMAINDER)));
+
+		executor.runAll();
+
+		assertThat(lexer.isCompiled(), equalTo(true));
+		assertThat(lexer.getAutomaton(), not(instanceOf(LazyAutomaton.class)));
+		assertThat(tokens(lexer, "aab"), contains(new TestToken("aa", A), new TestToken("b", REMAINDER)));
+	}
+
+	@Test
+	public void testOutdatedCompilationIsDiscarded() throws Exception {
+		Map<String, TokenType> patterns = new LinkedHashMap<String, TokenType>();
+		patterns.put("a+", A);
+		QueuedExecutor executor = new QueuedExecutor();
+		IncrementalLexer<TestToken> lexer = new IncrementalLexer<TestToken>(patterns, REMAINDER, factory, executor);
+		Runnable outdated = executor.next();
+
+		lexer.matchPattern("b+", B);
+		outdated.run();
+
+		assertThat(lexer.isCompiled(), equalTo(false));
+		assertThat(tokens(lexer, "aab"), contains(new TestToken("aa", A), new TestToken("b", B)));
+
+		executor.runAll();
+
+		assertThat(lexer.isCompiled(), equalTo(true));
+		assertThat(tokens(lexer, "aab"), contains(new TestToken("aa", A), new TestToken("b", B)));
+	}
+
+	@Test
+	public void testLexingKeepsAutomatonOfItsStart() throws Exception {
+		Map<String, TokenType> patterns = new LinkedHashMap<String, TokenType>();
+		patterns.put("a+", A);
+		IncrementalLexer<TestToken> lexer = new IncrementalLexer<TestToken>(patterns, REMAINDER, factory);
+		Iterator<TestToken> tokens = lexer.lex("ab");
+
+		lexer.matchPattern("b", B);
+
+		assertThat(tokens.next(), equalTo(new TestToken("a", A)));
+		assertThat(tokens.next(), equalTo(new TestToken("b", REMAINDER)));
+	}
+
+	private void assertAgrees(IncrementalLexer<TestToken> lexer, Map<String, TokenType> patterns, Random random) {
+		DynamicLexer<TestToken> expected = new DynamicLexer<TestToken>(patterns, REMAINDER, factory);
+		for (int i = 0; i < 50; i++) {
+			StringBuilder buffer = new StringBuilder();
+			int length = 1 + random.nextInt(20);
+			for (int j = 0; j < length; j++) {
+				buffer.append("abcde".charAt(random.nextInt(5)));
+			}
+			String input = buffer.toString();
+			assertThat(input, tokens(lexer, input), equalTo(tokens(expected, input)));
+		}
+	}
+
+	private static List<TestToken> tokens(Lexer<TestToken> lexer, String input) {
+		List<TestToken> tokens = new ArrayList<TestToken>();
+		Iterator<TestToken> iterator = lexer.lex(input);
+		while (iterator.hasNext()) {
+			tokens.add(iterator.next());
+		}
+		return tokens;
+	}
+
+	private static class QueuedExecutor implements Executor {
+
+		private List<Runnable> queue = new ArrayList<Runnable>();
+
+		@Override
+		public void execute(Runnable command) {
+			queue.add(command);
+		}
+
+		public Runnable next() {
+			return queue.remove(0);
+		}
+
+		public void runAll() {
+			while (!queue.isEmpty()) {
+				next().run();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.almondtools.rexlex.pattern;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToAdaptiveAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToAdaptiveAutomaton.Engine;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToCompactGenericAutomaton;
+
+public class AdaptiveMatcherBuilderTest {
+
+	@Test
+	public void testLiterals() throws Exception {
+		AdaptiveMatcherBuilder builder = new AdaptiveMatcherBuilder();
+		Pattern pattern = Pattern.compile("if|then|else", builder);
+
+		assertThat(builder.getEngine(), equalTo(Engine.LITERALS));
+		assertThat(findAll(pattern, "if x then y else z"), contains("if", "then", "else"));
+	}
+
+	@Test
+	public void testSmallPattern() throws Exception {
+		AdaptiveMatcherBuilder builder = new AdaptiveMatcherBuilder();
+		Pattern pattern = Pattern.compile("[0-9]{2}-[0-9]{2}", builder);
+
+		assertThat(builder.getEngine(), equalTo(Engine.BIT_PARALLEL));
+		assertThat(findAll(pattern, "on 12-04 and 3-4 or 24-12-1"), contains("12-04", "24-12"));
+	}
+
+	@Test
+	public void testBoundedPattern() throws Exception {
+		AdaptiveMatcherBuilder builder = new AdaptiveMatcherBuilder();
+		Pattern pattern = Pattern.compile("[a-z]{70}", builder);
+
+		assertThat(builder.getEngine(), equalTo(Engine.TABLED));
+		assertThat(pattern.matcher(repeat('x', 70)).matches(), equalTo(true));
+		assertThat(pattern.matcher(repeat('x', 69)).matches(), equalTo(false));
+	}
+
+	@Test
+	public void testExplosivePattern() throws Exception {
+		AdaptiveMatcherBuilder builder = new AdaptiveMatcherBuilder(1 << 12);
+		Pattern pattern = Pattern.compile("(a|b)*a(a|b){40}", builder);
+
+		assertThat(builder.getEngine(), equalTo(Engine.LAZY));
+		assertThat(pattern.matcher("a" + repeat('b', 40)).matches(), equalTo(true));
+		assertThat(pattern.matcher("b" + repeat('b', 40)).matches(), equalTo(false));
+	}
+
+	@Test
+	public void testEngineOfSharedSelector() throws Exception {
+		AdaptiveMatcherBuilder literals = new AdaptiveMatcherBuilder();
+		AdaptiveMatcherBuilder small = literals.copy();
+		Pattern.compile("if|then|else", literals);
+		Pattern.compile("[0-9]{2}-[0-9]{2}", small);
+
+		assertThat(literals.getEngine(), equalTo(Engine.LITERALS));
+		assertThat(small.getEngine(), equalTo(Engine.BIT_PARALLEL));
+	}
+
+	@Test
+	public void testEngineOf() throws Exception {
+		ToAdaptiveAutomaton selector = new ToAdaptiveAutomaton();
+
+		assertThat(Engine.of(Pattern.compileGenericAutomaton("if|then").toAutomaton(selector)), equalTo(Engine.LITERALS));
+		assertThat(Engine.of(Pattern.compileGenericAutomaton("[a-z]{70}").toAutomaton(selector)), equalTo(Engine.TABLED));
+		assertThat(Engine.of(Pattern.compileGenericAutomaton("a").toAutomaton(new ToCompactGenericAutomaton())), nullValue());
+	}
+
+	@Test
+	public void testNotInitialized() throws Exception {
+		assertThat(new AdaptiveMatcherBuilder().getEngine(), nullValue());
+	}
+
+	private static String repeat(char c, int times) {
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < times; i++) {
+			buffer.append(c);
+		}
+		return buffer.toString();
+	}
+
+	private static List<String> findAll(Pattern pattern, String input) {
+		Finder finder = pattern.finder(input);
+		List<String> matches = new ArrayList<String>();
+		while (finder.find()) {
+			matches.add(finder.group());
+		}
+		return matches;
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.almondtools.rexlex.pattern;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.automaton.CompileStatistics;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.automaton.GenericAutomaton;
+import com.almondtools.rexlex.automaton.TabledAutomaton;
+
+public class CompileBudgetTest {
+
+	@Test
+	public void testWithinBudget() throws Exception {
+		GenericAutomaton nfa = Pattern.compileGenericAutomaton("[a-c]+d", new CompileBudget(100, 1000, 10000));
+		TabledAutomaton automaton = nfa.toAutomaton(new ToTabledAutomaton());
+		CompileStatistics statistics = nfa.getStatistics();
+
+		assertThat(statistics.getPhase(), equalTo("tables"));
+		assertThat(statistics.getStates(), equalTo(automaton.getStateCount()));
+		assertThat(statistics.getCells(), equalTo((long) automaton.getStateCount() * automaton.getCharClassCount()));
+		assertTrue(Pattern.compile("[a-c]+d", new CompileBudget(100, 1000, 10000)).matcher("abcd").matches());
+	}
+
+	@Test
+	public void testStatesExceeded() throws Exception {
+		try {
+			Pattern.compile("(a|b)*a(a|b){12}", CompileBudget.maxStates(100));
+			fail();
+		} catch (PatternCompileException e) {
+			CompileStatistics statistics = e.getStatistics();
+			assertThat(statistics.getPhase(), equalTo("determinize"));
+			assertThat(statistics.getStates(), equalTo(101));
+			assertTrue(statistics.isFinished());
+		}
+	}
+
+	@Test
+	public void testCellsExceeded() throws Exception {
+		try {
+			Pattern.compile("[a-z]{2}[0-9]{2}", CompileBudget.maxCells(10));
+			fail();
+		} catch (PatternCompileException e) {
+			CompileStatistics statistics = e.getStatistics();
+			assertThat(statistics.getPhase(), equalTo("tables"));
+			assertThat(statistics.getCells(), greaterThan(10l));
+		}
+	}
+
+	@Test
+	public void testTimeExceeded() throws Exception {
+		try {
+			Pattern.compile("(a|b)*a(a|b){18}", CompileBudget.maxMillis(1));
+			fail();
+		} catch (PatternCompileException e) {
+			CompileStatistics statistics = e.getStatistics();
+			assertThat(statistics.getPhase(), equalTo("determinize"));
+			assertThat(statistics.getElapsedMillis(), greaterThan(1l));
+			assertThat(statistics.getStates(), lessThanOrEqualTo(1 << 19));
+		}
+	}
+
+	@Test
+	public void testBudgetEndsWithCompilation() throws Exception {
+		GenericAutomaton nfa = Pattern.compileGenericAutomaton("(a|b)*a(a|b){8}", CompileBudget.maxStates(5));
+		nfa.getStatistics().finish();
+		TabledAutomaton automaton = nfa.toAutomaton(new ToTabledAutomaton());
+
+		assertThat(automaton.getStateCount(), greaterThan(5));
+		assertThat(nfa.getStatistics().getPhase(), equalTo("parse"));
+	}
+
+	@Test
+	public void testBudgetAppliesToSearch() throws Exception {
+		Pattern pattern = Pattern.compile("(a|b){14}a", CompileBudget.maxStates(1000));
+		try {
+			pattern.findAll("abababababababababab", new DirectExecutor());
+			fail();
+		} catch (PatternCompileException e) {
+			CompileStatistics statistics = e.getStatistics();
+			assertThat(statistics.getStates(), equalTo(1001));
+			assertTrue(statistics.isFinished());
+		}
+		assertThat(Pattern.compile("[a-c]+d", CompileBudget.maxStates(100)).findAll("xabdy", new DirectExecutor()).size(), equalTo(1));
+	}
+
+	@Test
+	public void testEquals() throws Exception {
+		assertThat(CompileBudget.maxStates(10), equalTo(CompileBudget.maxStates(10)));
+		assertThat(CompileBudget.maxStates(10).hashCode(), equalTo(CompileBudget.maxStates(10).hashCode()));
+		assertThat(CompileBudget.maxStates(10), not(equalTo(CompileBudget.maxStates(11))));
+		assertThat(CompileBudget.maxStates(10), not(equalTo(CompileBudget.maxCells(10))));
+
+		PatternCache cache = new PatternCache(10);
+		Pattern pattern = cache.compile("a+", CompileBudget.maxStates(10));
+		assertThat(cache.compile("a+", CompileBudget.maxStates(10)), sameInstance(pattern));
+		assertThat(cache.compile("a+"), not(sameInstance(pattern)));
+	}
+
+	private static class DirectExecutor implements Executor {
+
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+
+	}
+
+}
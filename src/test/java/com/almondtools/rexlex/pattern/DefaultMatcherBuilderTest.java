@@ -11,6 +11,8 @@ import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToAhoCorasickAutomaton;
+
 public class DefaultMatcherBuilderTest {
 
 	private DefaultMatcherBuilder builder;
@@ -52,4 +54,40 @@ public class DefaultMatcherBuilderTest {
 		assertThat(matcher.group(), nullValue());
 	}
 
+	@Test
+	public void testFindWithLiteralPrefix() throws Exception {
+		DefaultMatcherBuilder builder = DefaultMatcherBuilder.from(Pattern.compileGenericAutomaton("ERROR [0-9]+"));
+		Finder matcher = builder.buildFinder("INFO 1\nERROR x\nERROR 42\nERROR 7");
+		assertTrue(matcher.find());
+		assertThat(matcher.start(), equalTo(15l));
+		assertThat(matcher.group(), equalTo("ERROR 42"));
+		assertTrue(matcher.find());
+		assertThat(matcher.start(), equalTo(24l));
+		assertThat(matcher.group(), equalTo("ERROR 7"));
+		assertFalse(matcher.find());
+	}
+
+	@Test
+	public void testFindWithLiteralPrefixNotFound() throws Exception {
+		DefaultMatcherBuilder builder = DefaultMatcherBuilder.from(Pattern.compileGenericAutomaton("GET /api/[a-z]+"));
+		assertFalse(builder.buildFinder("GET /app/x").find());
+		assertFalse(builder.buildFinder("").find());
+	}
+
+	@Test
+	public void testFindWithLiterals() throws Exception {
+		MatcherBuilder builder = new DefaultMatcherBuilder(new ToAhoCorasickAutomaton()).initWith(Pattern.compileGenericAutomaton("foo|bar|barbaz|az"));
+		Finder matcher = builder.buildFinder("xxbarbazxfoxfooaz");
+		assertTrue(matcher.find());
+		assertThat(matcher.start(), equalTo(2l));
+		assertThat(matcher.group(), equalTo("barbaz"));
+		assertTrue(matcher.find());
+		assertThat(matcher.start(), equalTo(12l));
+		assertThat(matcher.group(), equalTo("foo"));
+		assertTrue(matcher.find());
+		assertThat(matcher.start(), equalTo(15l));
+		assertThat(matcher.group(), equalTo("az"));
+		assertFalse(matcher.find());
+	}
+
 }
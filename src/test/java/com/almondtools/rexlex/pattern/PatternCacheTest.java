@@ -0,0 +1,243 @@
+package com.almondtools.rexlex.pattern;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.GenericAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToLazyAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+import com.almondtools.rexlex.automaton.GenericAutomatonBuilder;
+import com.almondtools.rexlex.tokens.Accept;
+
+import net.amygdalum.regexparser.RegexNode;
+import net.amygdalum.regexparser.RegexParserOption;
+
+public class PatternCacheTest {
+
+	@Test
+	public void testCompile() throws Exception {
+		PatternCache cache = new PatternCache(10);
+		Pattern pattern = cache.compile("a+b");
+		assertTrue(pattern.matcher("aab").matches());
+		assertThat(cache.compile("a+b"), sameInstance(pattern));
+		assertThat(cache.getHitCount(), equalTo(1l));
+		assertThat(cache.getMissCount(), equalTo(1l));
+		assertThat(cache.size(), equalTo(1));
+	}
+
+	@Test
+	public void testCompileWithOptions() throws Exception {
+		PatternCache cache = new PatternCache(10);
+		Pattern pattern = cache.compile("a.b");
+		Pattern dotall = cache.compile("a.b", new PatternFlag(RegexParserOption.DOT_ALL));
+		Pattern search = cache.compile("a.b", new SearchMatcherBuilder());
+		assertThat(dotall, not(sameInstance(pattern)));
+		assertThat(search, not(sameInstance(pattern)));
+		assertThat(cache.compile("a.b", PatternFlag.DOTALL), sameInstance(dotall));
+		assertThat(cache.compile("a.b", new SearchMatcherBuilder()), sameInstance(search));
+		assertThat(cache.compile("a.b", new RemainderTokenType(DefaultTokenType.IGNORE)), not(sameInstance(pattern)));
+		assertThat(cache.compile("a.b", new RemainderTokenType(DefaultTokenType.IGNORE)), sameInstance(cache.compile("a.b", new RemainderTokenType(DefaultTokenType.IGNORE))));
+		assertThat(cache.getMissCount(), equalTo(4l));
+	}
+
+	@Test
+	public void testCompileWithParameterizedBuilders() throws Exception {
+		PatternCache cache = new PatternCache(10);
+		Pattern lazySmall = cache.compile("a.b", new DefaultMatcherBuilder(new ToLazyAutomaton(null, 100)));
+		Pattern lazyLarge = cache.compile("a.b", new DefaultMatcherBuilder(new ToLazyAutomaton(null, 100000)));
+		Pattern tabled = cache.compile("a.b", new DefaultMatcherBuilder(new ToTabledAutomaton()));
+		Pattern tabledRemainder = cache.compile("a.b", new DefaultMatcherBuilder(new ToTabledAutomaton(Accept.REMAINDER)));
+		Pattern adaptive = cache.compile("a.b", new AdaptiveMatcherBuilder());
+		Pattern adaptiveSmall = cache.compile("a.b", new AdaptiveMatcherBuilder(4));
+		assertThat(lazyLarge, not(sameInstance(lazySmall)));
+		assertThat(tabledRemainder, not(sameInstance(tabled)));
+		assertThat(adaptiveSmall, not(sameInstance(adaptive)));
+		assertThat(adaptive, not(sameInstance(tabled)));
+		assertThat(cache.compile("a.b", new DefaultMatcherBuilder(new ToLazyAutomaton(null, 100))), sameInstance(lazySmall));
+		assertThat(cache.compile("a.b", new DefaultMatcherBuilder(new ToTabledAutomaton(Accept.REMAINDER))), sameInstance(tabledRemainder));
+		assertThat(cache.compile("a.b", new AdaptiveMatcherBuilder(4)), sameInstance(adaptiveSmall));
+		assertThat(cache.getMissCount(), equalTo(6l));
+	}
+
+	@Test
+	public void testCompileWithSharedBuilder() throws Exception {
+		PatternCache cache = new PatternCache(10);
+		DefaultMatcherBuilder builder = new DefaultMatcherBuilder();
+		Pattern foo = cache.compile("foo", builder);
+		Pattern bar = cache.compile("bar", builder);
+		assertThat(cache.compile("foo", builder), sameInstance(foo));
+		assertTrue(foo.matcher("foo").matches());
+		assertFalse(foo.matcher("bar").matches());
+		assertTrue(bar.matcher("bar").matches());
+		assertFalse(bar.matcher("foo").matches());
+	}
+
+	@Test
+	public void testCompileWithSharedSearchBuilder() throws Exception {
+		PatternCache cache = new PatternCache(10);
+		SearchMatcherBuilder builder = new SearchMatcherBuilder();
+		Pattern x = cache.compile("x+", builder);
+		cache.compile("y", builder);
+		assertThat(cache.compile("x+", builder), sameInstance(x));
+		assertTrue(x.matcher("xx").matches());
+		assertFalse(x.matcher("y").matches());
+		assertTrue(x.finder("axxb").find());
+	}
+
+	@Test
+	public void testCompileWithUnknownBuilder() throws Exception {
+		PatternCache cache = new PatternCache(10);
+		GenericAutomatonBuilder builder = new GenericAutomatonBuilder() {
+		};
+		Pattern pattern = cache.compile("a", builder);
+		assertThat(cache.compile("a", builder), sameInstance(pattern));
+		assertThat(cache.compile("a", new GenericAutomatonBuilder() {
+		}), not(sameInstance(pattern)));
+		assertThat(cache.compile("a", new GenericAutomatonBuilder()), sameInstance(cache.compile("a", new GenericAutomatonBuilder())));
+	}
+
+	@Test
+	public void testCompileDoesNotChangeOptions() throws Exception {
+		PatternCache cache = new PatternCache(10);
+		List<PatternOption> options = new ArrayList<PatternOption>();
+		options.add(PatternFlag.DOTALL);
+		cache.compile("a.b", options);
+		assertThat(options.size(), equalTo(1));
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed() throws Exception {
+		PatternCache cache = new PatternCache(2);
+		Pattern a = cache.compile("a");
+		Pattern b = cache.compile("b");
+		cache.compile("a");
+		cache.compile("c");
+		assertThat(cache.size(), equalTo(2));
+		assertThat(cache.getEvictionCount(), equalTo(1l));
+		assertThat(cache.compile("a"), sameInstance(a));
+		assertThat(cache.compile("b"), not(sameInstance(b)));
+	}
+
+	@Test
+	public void testEvictByWeight() throws Exception {
+		PatternCache cache = new PatternCache(10, new PatternCache.Weigher() {
+
+			@Override
+			public long weigh(String pattern, Pattern compiled) {
+				return pattern.length();
+			}
+		});
+		cache.compile("abcd");
+		cache.compile("efgh");
+		assertThat(cache.getWeight(), equalTo(8l));
+		cache.compile("ijkl");
+		assertThat(cache.size(), equalTo(2));
+		assertThat(cache.getWeight(), equalTo(8l));
+		cache.compile("abcdefghijk");
+		assertThat(cache.size(), equalTo(0));
+		assertThat(cache.getEvictionCount(), equalTo(4l));
+	}
+
+	@Test
+	public void testFailedCompilationIsNotCached() throws Exception {
+		PatternCache cache = new PatternCache(10);
+		FailingAutomatonBuilder builder = new FailingAutomatonBuilder();
+		for (int i = 0; i < 2; i++) {
+			try {
+				cache.compile("a", builder);
+				fail();
+			} catch (IllegalStateException e) {
+				assertThat(e.getMessage(), equalTo("failed"));
+			}
+		}
+		assertThat(builder.builds.get(), equalTo(2));
+		assertThat(cache.size(), equalTo(0));
+	}
+
+	@Test
+	public void testCoalesceConcurrentCompilations() throws Exception {
+		final PatternCache cache = new PatternCache(10);
+		final BlockingAutomatonBuilder builder = new BlockingAutomatonBuilder();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Pattern>> patterns = new ArrayList<Future<Pattern>>();
+			for (int i = 0; i < 4; i++) {
+				patterns.add(executor.submit(new Callable<Pattern>() {
+					@Override
+					public Pattern call() throws Exception {
+						return cache.compile("a|b", builder);
+					}
+				}));
+			}
+			assertTrue(builder.started.await(10, TimeUnit.SECONDS));
+			while (cache.getHitCount() < 3) {
+				Thread.sleep(1);
+			}
+			builder.release.countDown();
+			Pattern pattern = patterns.get(0).get();
+			for (Future<Pattern> other : patterns) {
+				assertThat(other.get(), sameInstance(pattern));
+			}
+			assertThat(builder.builds.get(), equalTo(1));
+			assertThat(cache.getMissCount(), equalTo(1l));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static class FailingAutomatonBuilder extends GenericAutomatonBuilder {
+
+		private AtomicInteger builds = new AtomicInteger();
+
+		@Override
+		public GenericAutomaton buildFrom(RegexNode node) {
+			builds.incrementAndGet();
+			throw new IllegalStateException("failed");
+		}
+
+		@Override
+		public GenericAutomaton buildFrom(RegexNode node, TokenType type) {
+			return buildFrom(node);
+		}
+
+	}
+
+	private static class BlockingAutomatonBuilder extends GenericAutomatonBuilder {
+
+		private AtomicInteger builds = new AtomicInteger();
+		private CountDownLatch started = new CountDownLatch(1);
+		private CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public GenericAutomaton buildFrom(RegexNode node) {
+			builds.incrementAndGet();
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return super.buildFrom(node);
+		}
+
+	}
+
+}
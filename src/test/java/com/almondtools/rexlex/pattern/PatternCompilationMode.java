@@ -5,8 +5,13 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToAdaptiveAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToAhoCorasickAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToBitParallelAutomaton;
 import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToCompactGenericAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToLazyAutomaton;
 import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToMinimalDeterministicAutomaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToPikeVMAutomaton;
 import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
 import com.almondtools.rexlex.automaton.GenericAutomaton;
 import com.almondtools.rexlex.automaton.ToAutomaton;
@@ -27,6 +32,46 @@ public enum PatternCompilationMode {
 		public ToAutomaton<GenericAutomaton, ?> getAutomatonBuilder() {
 			return new ToTabledAutomaton();
 		}
+	}, LITERAL {
+		@Override
+		public ToAutomaton<GenericAutomaton, ?> getAutomatonBuilder() {
+			return new ToAhoCorasickAutomaton();
+		}
+	}, LAZY {
+		@Override
+		public ToAutomaton<GenericAutomaton, ?> getAutomatonBuilder() {
+			return new ToLazyAutomaton();
+		}
+	}, BITPARALLEL {
+		@Override
+		public ToAutomaton<GenericAutomaton, ?> getAutomatonBuilder() {
+			return new ToBitParallelAutomaton();
+		}
+	}, PIKEVM {
+		@Override
+		public ToAutomaton<GenericAutomaton, ?> getAutomatonBuilder() {
+			return new ToPikeVMAutomaton();
+		}
+	}, ADAPTIVE {
+		@Override
+		public ToAutomaton<GenericAutomaton, ?> getAutomatonBuilder() {
+			return new ToAdaptiveAutomaton();
+		}
+
+		@Override
+		public MatcherBuilder getMatcherBuilder() {
+			return new AdaptiveMatcherBuilder();
+		}
+	}, SEARCH {
+		@Override
+		public ToAutomaton<GenericAutomaton, ?> getAutomatonBuilder() {
+			return new ToTabledAutomaton();
+		}
+
+		@Override
+		public MatcherBuilder getMatcherBuilder() {
+			return new SearchMatcherBuilder();
+		}
 	};
 	
 	public abstract ToAutomaton<GenericAutomaton, ?> getAutomatonBuilder();
@@ -1,10 +1,13 @@
 package com.almondtools.rexlex.pattern;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import org.junit.Test;
 
+import com.almondtools.rexlex.automaton.CompileStatistics;
+
 
 public class PatternCompileExceptionTest {
 
@@ -14,4 +17,13 @@ public class PatternCompileExceptionTest {
 		assertThat(exception.getMessage(), equalTo("error compiling pattern <pattern> at position 1, found: a, expecting on of: bc"));
 	}
 
+	@Test
+	public void testBudgetPatternCompileException() throws Exception {
+		CompileStatistics statistics = new CompileStatistics(CompileBudget.maxStates(10));
+		statistics.finish();
+		PatternCompileException exception = new PatternCompileException("compile budget exceeded", statistics);
+		assertThat(exception.getMessage(), equalTo("compile budget exceeded (" + statistics + ")"));
+		assertThat(exception.getStatistics(), sameInstance(statistics));
+	}
+
 }
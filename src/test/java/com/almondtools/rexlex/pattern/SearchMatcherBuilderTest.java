@@ -0,0 +1,159 @@
+package com.almondtools.rexlex.pattern;
+
+import static com.almondtools.rexlex.pattern.DefaultTokenType.ACCEPT;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+public class SearchMatcherBuilderTest {
+
+	@Test
+	public void testMatches() throws Exception {
+		SearchMatcherBuilder builder = SearchMatcherBuilder.from(Pattern.compileGenericAutomaton("a+"));
+		assertTrue(builder.buildMatcher("aaa").matches());
+		assertFalse(builder.buildMatcher("aab").matches());
+		assertFalse(builder.buildMatcher("").matches());
+	}
+
+	@Test
+	public void testFindNot() throws Exception {
+		SearchMatcherBuilder builder = SearchMatcherBuilder.from(Pattern.compileGenericAutomaton("c"));
+		assertThat(findAll(builder.buildFinder("ab")), empty());
+		assertThat(findAll(builder.buildFinder("")), empty());
+	}
+
+	@Test
+	public void testFindLeftmostEndingAfterEarliestEnd() throws Exception {
+		SearchMatcherBuilder builder = SearchMatcherBuilder.from(Pattern.compileGenericAutomaton("abcd|c"));
+		assertThat(findAll(builder.buildFinder("xabcdc")), contains(Match.create(1, "abcd", ACCEPT), Match.create(5, "c", ACCEPT)));
+	}
+
+	@Test
+	public void testFindLeftmostBeforeLongest() throws Exception {
+		SearchMatcherBuilder builder = SearchMatcherBuilder.from(Pattern.compileGenericAutomaton("a|by"));
+		assertThat(findAll(builder.buildFinder("xaby")), contains(Match.create(1, "a", ACCEPT), Match.create(2, "by", ACCEPT)));
+	}
+
+	@Test
+	public void testFindLongestAtLeftmost() throws Exception {
+		SearchMatcherBuilder builder = SearchMatcherBuilder.from(Pattern.compileGenericAutomaton("(ab|a|bcdef|g)+"));
+		Finder finder = builder.buildFinder("xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxabcdefgxxxxxxxxxabgxxxagabxxx");
+		assertThat(findAll(finder), contains(Match.create(35, "abcdefg", ACCEPT), Match.create(51, "abg", ACCEPT), Match.create(57, "agab", ACCEPT)));
+	}
+
+	@Test
+	public void testFindNonOverlapping() throws Exception {
+		SearchMatcherBuilder builder = SearchMatcherBuilder.from(Pattern.compileGenericAutomaton("aba"));
+		assertThat(findAll(builder.buildFinder("ababababa")), contains(Match.create(0, "aba", ACCEPT), Match.create(4, "aba", ACCEPT)));
+	}
+
+	@Test
+	public void testFindEmptyMatches() throws Exception {
+		SearchMatcherBuilder builder = SearchMatcherBuilder.from(Pattern.compileGenericAutomaton("a*"));
+		assertThat(findAll(builder.buildFinder("baa")), contains(Match.create(0, "", ACCEPT), Match.create(1, "aa", ACCEPT), Match.create(3, "", ACCEPT)));
+	}
+
+	@Test
+	public void testFindAgreesWithDefaultMatcherBuilder() throws Exception {
+		String text = "http://www.linux.com/\nhttp://www.thelinuxshow.com/main.php3\nhttp";
+		String pattern = "(([^:]+)://)?([^:/]+)(:([0-9]+))?(/.*)";
+		Finder search = SearchMatcherBuilder.from(Pattern.compileGenericAutomaton(pattern)).buildFinder(text);
+		Finder naive = DefaultMatcherBuilder.from(Pattern.compileGenericAutomaton(pattern)).buildFinder(text);
+		assertThat(findAll(search), contains(findAll(naive).toArray(new Match[0])));
+	}
+
+	@Test
+	public void testFindAllInChunks() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			SearchMatcherBuilder builder = SearchMatcherBuilder.from(Pattern.compileGenericAutomaton("(ab|a|bcdef|g)+"));
+			String text = "xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxabcdefgxxxxxxxxxabgxxxagabxxx";
+			for (int chunkSize = 1; chunkSize < 10; chunkSize++) {
+				assertThat(builder.findAll(text, executor, chunkSize), contains(Match.create(35, "abcdefg", ACCEPT), Match.create(51, "abg", ACCEPT), Match.create(57, "agab", ACCEPT)));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFindAllAgreesWithFinder() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			String[] patterns = { "a*", "ab*a", "(ab|ba)+", "a|abbb|b", "[ab]{3}", "(a|b)*b", "ab|a.*c", "b|a[ab]*c" };
+			Random random = new Random(13);
+			for (String pattern : patterns) {
+				SearchMatcherBuilder builder = SearchMatcherBuilder.from(Pattern.compileGenericAutomaton(pattern));
+				for (int i = 0; i < 50; i++) {
+					StringBuilder buffer = new StringBuilder();
+					int length = random.nextInt(40);
+					for (int j = 0; j < length; j++) {
+						buffer.append("abc".charAt(random.nextInt(3)));
+					}
+					String text = buffer.toString();
+					List<Match> expected = findAll(builder.buildFinder(text));
+					if (!pattern.equals("a*")) { // the default finder does not advance after empty matches
+						assertThat(findAll(DefaultMatcherBuilder.from(Pattern.compileGenericAutomaton(pattern)).buildFinder(text)), equalTo(expected));
+					}
+					int chunkSize = 1 + random.nextInt(8);
+					assertThat(pattern + " in " + text + " chunked by " + chunkSize, builder.findAll(text, executor, chunkSize), equalTo(expected));
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testFindIsLinear() throws Exception {
+		SearchMatcherBuilder builder = SearchMatcherBuilder.from(Pattern.compileGenericAutomaton("ab|a.*c"));
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < 200000; i++) {
+			buffer.append("ab");
+		}
+		String text = buffer.toString();
+		Finder finder = builder.buildFinder(text);
+		int count = 0;
+		while (finder.find()) {
+			assertThat(finder.group(), equalTo("ab"));
+			count++;
+		}
+		assertThat(count, equalTo(200000));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			assertThat(builder.findAll(text, executor, 1 << 16).size(), equalTo(200000));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testPatternFindAll() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Pattern pattern = Pattern.compile("aba");
+			assertThat(pattern.findAll("ababababa", executor), contains(Match.create(0, "aba", ACCEPT), Match.create(4, "aba", ACCEPT)));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public List<Match> findAll(Finder matcher) {
+		List<Match> matches = new ArrayList<Match>();
+		while (matcher.find()) {
+			matches.add(matcher.match.copy());
+		}
+		return matches;
+	}
+}
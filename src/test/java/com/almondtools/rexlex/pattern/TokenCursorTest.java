@@ -0,0 +1,74 @@
+package com.almondtools.rexlex.pattern;
+
+import static com.almondtools.rexlex.automaton.GenericAutomatonBuilder.match;
+import static com.almondtools.rexlex.automaton.GenericAutomatonBuilder.matchAlternatives;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.almondtools.rexlex.TokenType;
+import com.almondtools.rexlex.automaton.Automaton;
+import com.almondtools.rexlex.automaton.FromGenericAutomaton.ToTabledAutomaton;
+
+import net.amygdalum.util.io.StringCharProvider;
+
+public class TokenCursorTest {
+
+	@Test
+	public void testNextOnEmptyChars() throws Exception {
+		TokenCursor cursor = new TokenCursor(match('a'), new StringCharProvider("", 0));
+		assertThat(cursor.next(), is(false));
+		assertThat(cursor.next(), is(false));
+	}
+
+	@Test
+	public void testNext() throws Exception {
+		TokenCursor cursor = new TokenCursor(match('a'), new StringCharProvider("bab", 0));
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.start(), equalTo(0l));
+		assertThat(cursor.end(), equalTo(1l));
+		assertThat(cursor.type().error(), is(true));
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.start(), equalTo(1l));
+		assertThat(cursor.end(), equalTo(2l));
+		assertThat(cursor.literal(), equalTo("a"));
+		assertThat(cursor.type().accept(), is(true));
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.literal(), equalTo("b"));
+		assertThat(cursor.next(), is(false));
+		assertThat(cursor.type(), nullValue());
+	}
+
+	@Test
+	public void testNextWithBegin() throws Exception {
+		TokenCursor cursor = new TokenCursor(match('a'), new StringCharProvider("aba", 1));
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.start(), equalTo(1l));
+		assertThat(cursor.literal(), equalTo("b"));
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.start(), equalTo(2l));
+		assertThat(cursor.literal(), equalTo("a"));
+		assertThat(cursor.next(), is(false));
+	}
+
+	@Test
+	public void testNextSkipsIgnored() throws Exception {
+		Automaton automaton = matchAlternatives(
+			Pattern.compileGenericAutomaton("a+", new RemainderTokenType(DefaultTokenType.ACCEPT)),
+			Pattern.compileGenericAutomaton(" ", new RemainderTokenType(DefaultTokenType.IGNORE)))
+			.toAutomaton(new ToTabledAutomaton());
+		TokenCursor cursor = new TokenCursor(automaton, new StringCharProvider(" aa  a ", 0), Collections.<TokenType> singleton(DefaultTokenType.IGNORE));
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.literal(), equalTo("aa"));
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.literal(), equalTo("a"));
+		assertThat(cursor.start(), equalTo(5l));
+		assertThat(cursor.next(), is(false));
+	}
+
+}